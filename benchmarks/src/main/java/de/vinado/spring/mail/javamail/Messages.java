@@ -0,0 +1,74 @@
+package de.vinado.spring.mail.javamail;
+
+import org.springframework.mail.SimpleMailMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * Creates the messages benchmarks are run with. Recipients are spread across the given number of domains.
+ *
+ * @author Vincent Nadoll
+ */
+public final class Messages {
+
+    private static final Session SESSION = Session.getInstance(System.getProperties());
+
+    private Messages() {
+    }
+
+    public static SimpleMailMessage[] simpleMessages(int amount, int domains) {
+        SimpleMailMessage[] simpleMessages = new SimpleMailMessage[amount];
+        for (int i = 0; i < amount; i++) {
+            SimpleMailMessage simpleMessage = new SimpleMailMessage();
+            simpleMessage.setFrom("sender@example.com");
+            simpleMessage.setTo(recipient(i, domains));
+            simpleMessage.setSubject("Ping " + i);
+            simpleMessage.setText("Lorem Ipsum");
+            simpleMessages[i] = simpleMessage;
+        }
+        return simpleMessages;
+    }
+
+    public static MimeMessage[] mimeMessages(int amount, int domains, int bodySize) throws MessagingException {
+        String body = body(bodySize);
+        MimeMessage[] mimeMessages = new MimeMessage[amount];
+        for (int i = 0; i < amount; i++) {
+            MimeMessage mimeMessage = new MimeMessage(SESSION);
+            mimeMessage.setFrom("sender@example.com");
+            mimeMessage.setRecipient(Message.RecipientType.TO, new InternetAddress(recipient(i, domains)));
+            mimeMessage.setSubject("Ping " + i);
+            mimeMessage.setText(body, StandardCharsets.UTF_8.name());
+            mimeMessage.saveChanges();
+            mimeMessages[i] = mimeMessage;
+        }
+        return mimeMessages;
+    }
+
+    private static String recipient(int index, int domains) {
+        return "recipient" + index + "@domain" + (index % Math.max(domains, 1)) + ".example";
+    }
+
+    /**
+     * @return text of the given length, broken into lines of 76 characters with trailing whitespace to be canonicalized
+     */
+    private static String body(int size) {
+        char[] line = new char[78];
+        Arrays.fill(line, 'x');
+        line[74] = ' ';
+        line[75] = ' ';
+        line[76] = '\r';
+        line[77] = '\n';
+
+        StringBuilder body = new StringBuilder(size);
+        while (body.length() < size) {
+            body.append(line, 0, Math.min(line.length, size - body.length()));
+        }
+        return body.toString();
+    }
+}
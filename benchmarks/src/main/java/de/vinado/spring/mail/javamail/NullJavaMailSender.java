@@ -0,0 +1,70 @@
+package de.vinado.spring.mail.javamail;
+
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+
+/**
+ * {@link JavaMailSenderImpl} whose in-process transport writes every message to a stream discarding its bytes. Hence,
+ * messages are rendered and signed same as for an actual mail server, without any network roundtrip.
+ *
+ * @author Vincent Nadoll
+ */
+public class NullJavaMailSender extends JavaMailSenderImpl {
+
+    public NullJavaMailSender() {
+        setHost("localhost");
+    }
+
+    @Override
+    protected Transport getTransport(Session session) {
+        return new NullTransport(session);
+    }
+
+
+    private static final class NullTransport extends Transport {
+
+        private NullTransport(Session session) {
+            super(session, null);
+        }
+
+        @Override
+        public void connect(String host, int port, String username, String password) {
+            setConnected(true);
+        }
+
+        @Override
+        public synchronized void close() {
+            setConnected(false);
+        }
+
+        @Override
+        public void sendMessage(Message msg, Address[] addresses) throws MessagingException {
+            try {
+                msg.writeTo(NullOutputStream.INSTANCE);
+            } catch (IOException e) {
+                throw new MessagingException("Could not write message", e);
+            }
+        }
+    }
+
+
+    private static final class NullOutputStream extends OutputStream {
+
+        private static final NullOutputStream INSTANCE = new NullOutputStream();
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import de.vinado.spring.mail.javamail.Messages;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * Measures the cost of splitting a send into batches: deriving the priority class and recipient domain every message
+ * is partitioned by, creating the batches and estimating their size, which a queue bounded by bytes requires.
+ *
+ * @author Vincent Nadoll
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchBenchmark {
+
+    private static final int BATCH_SIZE = 10;
+
+    @Param({"100", "1000"})
+    private int messageCount;
+
+    @Param({"1", "16"})
+    private int domains;
+
+    private MimeMessage[] messages;
+
+    @Setup(Level.Trial)
+    public void setUp() throws MessagingException {
+        messages = Messages.mimeMessages(messageCount, domains, 1024);
+    }
+
+    @Benchmark
+    public void partition(Blackhole blackhole) {
+        Map<String, Integer> partitions = new HashMap<>();
+        for (MimeMessage message : messages) {
+            String key = MailPriority.of(message) + "/" + RecipientDomains.of(message);
+            partitions.merge(key, 1, Integer::sum);
+        }
+        blackhole.consume(partitions);
+    }
+
+    @Benchmark
+    public void createBatches(Blackhole blackhole) {
+        for (int i = 0; i < messages.length; i += BATCH_SIZE) {
+            MimeMessage[] chunk = Arrays.copyOfRange(messages, i, Math.min(i + BATCH_SIZE, messages.length));
+            blackhole.consume(new Batch(0, chunk));
+        }
+    }
+
+    @Benchmark
+    public void createAndEstimateBatches(Blackhole blackhole) {
+        for (int i = 0; i < messages.length; i += BATCH_SIZE) {
+            MimeMessage[] chunk = Arrays.copyOfRange(messages, i, Math.min(i + BATCH_SIZE, messages.length));
+            blackhole.consume(new Batch(0, chunk).estimateSize());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import de.vinado.spring.mail.javamail.Messages;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * Measures how many sends per second several producers can enqueue into a {@link ConcurrentJavaMailSender} at once.
+ * The workers discard every batch without rendering it, so that the producers contend for the queue rather than wait
+ * for the workers. The queue is bounded and blocks once full, which keeps the heap from growing if the producers
+ * outpace the workers anyway.
+ *
+ * @author Vincent Nadoll
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrentJavaMailSenderBenchmark {
+
+    private static final int MESSAGE_POOL_SIZE = 1024;
+
+    @Param({"1", "4"})
+    private int workers;
+
+    @Param({"1", "10"})
+    private int messagesPerSend;
+
+    @Param({"false", "true"})
+    private boolean partitionedByDomain;
+
+    private ExecutorService threadPool;
+    private ConcurrentJavaMailSender sender;
+    private SimpleMailMessage[] messages;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        threadPool = Executors.newFixedThreadPool(workers);
+        sender = new ConcurrentJavaMailSender(new DiscardingJavaMailSender(), threadPool, workers);
+        sender.setBatchSize(Math.max(messagesPerSend, 1));
+        sender.setCooldownMillis(0);
+        sender.setPartitionedByDomain(partitionedByDomain);
+        sender.setQueueCapacity(100_000);
+        sender.setBackpressurePolicy(BackpressurePolicy.BLOCK);
+
+        messages = Messages.simpleMessages(MESSAGE_POOL_SIZE, 16);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        threadPool.shutdownNow();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void enqueue() {
+        SimpleMailMessage[] send = new SimpleMailMessage[messagesPerSend];
+        int offset = ThreadLocalRandom.current().nextInt(MESSAGE_POOL_SIZE - messagesPerSend);
+        System.arraycopy(messages, offset, send, 0, messagesPerSend);
+        sender.send(send);
+    }
+
+
+    /**
+     * Drops every message right after it was converted.
+     */
+    private static final class DiscardingJavaMailSender extends JavaMailSenderImpl {
+
+        @Override
+        protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) {
+        }
+    }
+}
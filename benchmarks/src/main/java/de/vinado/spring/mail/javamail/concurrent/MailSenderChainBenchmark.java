@@ -0,0 +1,90 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import de.vinado.spring.mail.javamail.AsyncJavaMailSender;
+import de.vinado.spring.mail.javamail.Messages;
+import de.vinado.spring.mail.javamail.NullJavaMailSender;
+import de.vinado.spring.mail.javamail.dkim.DkimJavaMailSenderDecoratorFactory;
+import de.vinado.spring.mail.javamail.dkim.DkimMimeMessageSigner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * Measures how many sends per second pass the entire decorator chain down to an in-process transport, which renders
+ * every message but discards its bytes. Every send waits for its messages to be handed to the transport. Depending on
+ * the chain, messages are sent by a plain {@link ConcurrentJavaMailSender}, signed on the calling thread before they
+ * are enqueued ({@code dkim}) or signed by the workers after they are dequeued ({@code deferred-dkim}).
+ *
+ * @author Vincent Nadoll
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MailSenderChainBenchmark {
+
+    @Param({"plain", "dkim", "deferred-dkim"})
+    private String chain;
+
+    @Param({"1", "4"})
+    private int workers;
+
+    @Param({"1", "100"})
+    private int messagesPerSend;
+
+    @Param({"1024"})
+    private int bodySize;
+
+    private ExecutorService threadPool;
+    private AsyncJavaMailSender sender;
+    private MimeMessage[] messages;
+
+    @Setup(Level.Trial)
+    public void setUp() throws GeneralSecurityException, MessagingException {
+        DkimJavaMailSenderDecoratorFactory dkimSenderFactory = new DkimJavaMailSenderDecoratorFactory(
+            new DkimMimeMessageSigner("example.com", "default",
+                KeyPairGenerator.getInstance("RSA").generateKeyPair().getPrivate()));
+        JavaMailSender delegate = new NullJavaMailSender();
+        threadPool = Executors.newFixedThreadPool(workers);
+
+        ConcurrentJavaMailSender concurrentSender = "deferred-dkim".equals(chain)
+            ? new ConcurrentJavaMailSender(delegate, threadPool, workers, () -> dkimSenderFactory.decorate(delegate))
+            : new ConcurrentJavaMailSender(delegate, threadPool, workers);
+        concurrentSender.setBatchSize(Math.min(messagesPerSend, 50));
+        concurrentSender.setCooldownMillis(0);
+
+        sender = "dkim".equals(chain) ? dkimSenderFactory.decorate(concurrentSender) : concurrentSender;
+        messages = Messages.mimeMessages(messagesPerSend, 16, bodySize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        threadPool.shutdownNow();
+    }
+
+    @Benchmark
+    public void send() {
+        sender.sendAsync(messages).join();
+    }
+}
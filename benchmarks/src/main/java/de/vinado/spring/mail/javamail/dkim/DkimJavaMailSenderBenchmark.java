@@ -0,0 +1,128 @@
+package de.vinado.spring.mail.javamail.dkim;
+
+import de.vinado.spring.mail.javamail.Messages;
+import de.vinado.spring.mail.javamail.NullJavaMailSender;
+import net.markenwerk.utils.mail.dkim.Canonicalization;
+import net.markenwerk.utils.mail.dkim.DkimSigner;
+import net.markenwerk.utils.mail.dkim.SigningAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.util.concurrent.TimeUnit;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * Measures how many messages per second the {@link DkimJavaMailSender} signs off, per canonicalization, algorithm and
+ * body size. Every message is written out, since signers compute the signature once the message is written to the
+ * transport. The {@code deferred} signer is the {@link DkimMimeMessageSigner}, the {@code legacy} one adapts the
+ * {@link DkimSigner}, which doesn't support Ed25519. Ed25519 requires Java 15 or later, unsupported combinations fail
+ * on setup.
+ *
+ * @author Vincent Nadoll
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DkimJavaMailSenderBenchmark {
+
+    @Param({"deferred", "legacy"})
+    private String signer;
+
+    @Param({"RSA_SHA256", "ED25519_SHA256"})
+    private DkimAlgorithm algorithm;
+
+    @Param({"SIMPLE", "RELAXED"})
+    private Canonicalization headerCanonicalization;
+
+    @Param({"SIMPLE", "RELAXED"})
+    private Canonicalization bodyCanonicalization;
+
+    @Param({"1024", "102400"})
+    private int bodySize;
+
+    private DkimJavaMailSender sender;
+    private MimeMessage message;
+    private final CountingOutputStream out = new CountingOutputStream();
+
+    @Setup(Level.Trial)
+    public void setUp() throws GeneralSecurityException, MessagingException {
+        if (!algorithm.isSupported()) {
+            throw new IllegalStateException(algorithm + " is not supported by this JVM");
+        }
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance(algorithm.getKeyAlgorithm());
+        if ("RSA".equals(algorithm.getKeyAlgorithm())) {
+            keyPairGenerator.initialize(2048);
+        }
+        PrivateKey privateKey = keyPairGenerator.generateKeyPair().getPrivate();
+        MimeMessageSigner mimeMessageSigner = "legacy".equals(signer)
+            ? MimeMessageSigner.of(legacySigner(privateKey))
+            : deferredSigner(privateKey);
+
+        sender = new DkimJavaMailSenderDecoratorFactory(mimeMessageSigner).decorate(new NullJavaMailSender());
+        message = Messages.mimeMessages(1, 1, bodySize)[0];
+    }
+
+    private DkimMimeMessageSigner deferredSigner(PrivateKey privateKey) {
+        DkimMimeMessageSigner deferredSigner = new DkimMimeMessageSigner("example.com", "default", privateKey);
+        deferredSigner.setAlgorithm(algorithm);
+        deferredSigner.setHeaderCanonicalization(headerCanonicalization);
+        deferredSigner.setBodyCanonicalization(bodyCanonicalization);
+        return deferredSigner;
+    }
+
+    private DkimSigner legacySigner(PrivateKey privateKey) {
+        if (algorithm != DkimAlgorithm.RSA_SHA256) {
+            throw new IllegalStateException("The legacy signer doesn't support " + algorithm);
+        }
+
+        DkimSigner legacySigner = new DkimSigner("example.com", "default", (RSAPrivateKey) privateKey);
+        legacySigner.setSigningAlgorithm(SigningAlgorithm.SHA256_WITH_RSA);
+        legacySigner.setHeaderCanonicalization(headerCanonicalization);
+        legacySigner.setBodyCanonicalization(bodyCanonicalization);
+        legacySigner.setCheckDomainKey(false);
+        return legacySigner;
+    }
+
+    @Benchmark
+    public long sign() throws IOException, MessagingException {
+        sender.createSignedMimeMessage(message).writeTo(out);
+        return out.count;
+    }
+
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package de.vinado.spring.mail.javamail;
+
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessagePreparator;
+
+import java.util.concurrent.CompletableFuture;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * Extended {@link JavaMailSender} whose messages can be sent asynchronously. Instead of throwing, each method returns a
+ * {@link CompletableFuture} that completes once all given messages were handed over to the mail server, or
+ * exceptionally with the first {@link org.springframework.mail.MailException} that occurred while preparing, queueing
+ * or dispatching them.
+ *
+ * @author Vincent Nadoll
+ */
+public interface AsyncJavaMailSender extends JavaMailSender {
+
+    default CompletableFuture<Void> sendAsync(MimeMessage mimeMessage) {
+        return sendAsync(new MimeMessage[]{mimeMessage});
+    }
+
+    CompletableFuture<Void> sendAsync(MimeMessage... mimeMessages);
+
+    default CompletableFuture<Void> sendAsync(MimeMessagePreparator mimeMessagePreparator) {
+        return sendAsync(new MimeMessagePreparator[]{mimeMessagePreparator});
+    }
+
+    CompletableFuture<Void> sendAsync(MimeMessagePreparator... mimeMessagePreparators);
+
+    default CompletableFuture<Void> sendAsync(SimpleMailMessage simpleMessage) {
+        return sendAsync(new SimpleMailMessage[]{simpleMessage});
+    }
+
+    CompletableFuture<Void> sendAsync(SimpleMailMessage... simpleMessages);
+}
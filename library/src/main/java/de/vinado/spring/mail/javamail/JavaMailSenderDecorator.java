@@ -26,6 +26,26 @@ public abstract class JavaMailSenderDecorator implements JavaMailSender {
         this.delegate = delegate;
     }
 
+    /**
+     * Finds the first sender of the given type along the chain of decorators starting with the given sender.
+     *
+     * @param sender the outermost sender of the chain
+     * @param type   the type of the sender to be found
+     * @param <T>    the type of the sender to be found
+     * @return the first sender of the given type, {@code null} if there is none
+     */
+    public static <T extends JavaMailSender> T find(JavaMailSender sender, Class<T> type) {
+        JavaMailSender current = sender;
+        while (current != null) {
+            if (type.isInstance(current)) {
+                return type.cast(current);
+            }
+            current = current instanceof JavaMailSenderDecorator ? ((JavaMailSenderDecorator) current).getDelegate()
+                : null;
+        }
+        return null;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,128 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link RateLimiter} implementation adapting the batch size and the cooldown between batches to the feedback of the
+ * mail server in an AIMD fashion. Every batch dispatched in time grows the batch size by one message and shrinks the
+ * cooldown by a fixed step. A transient negative reply, e.g. {@code 421} or {@code 451} of a throttling server, halves
+ * the batch size and doubles the cooldown. Both values are kept within the configured bounds.
+ *
+ * <p>A batch whose dispatch took longer per message than the configured tolerance times the average is taken as a
+ * sign of a server under load, hence the values are held instead of being grown. Permanent failures, e.g. unknown
+ * recipients, don't affect the values at all.
+ *
+ * <p>The controller starts with the largest batch size and the longest cooldown, which correspond to the fixed
+ * settings of a sender without controller.
+ *
+ * @author Vincent Nadoll
+ */
+@Slf4j
+public class AdaptiveRateController implements RateLimiter, BatchListener {
+
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    @Getter
+    private final int minBatchSize;
+
+    @Getter
+    private final int maxBatchSize;
+
+    @Getter
+    private final long minCooldownMillis;
+
+    @Getter
+    private final long maxCooldownMillis;
+
+    /**
+     * Milliseconds the cooldown shrinks by with every batch dispatched in time.
+     */
+    @Getter
+    private long cooldownStepMillis;
+
+    /**
+     * Factor of the average dispatch time per message a batch may take without holding the values.
+     */
+    @Getter
+    private double latencyTolerance = 2;
+
+    @Getter
+    private volatile int batchSize;
+
+    @Getter
+    private volatile long cooldownMillis;
+
+    private double averageNanosPerMessage;
+    private final AtomicLong next = new AtomicLong();
+
+    public AdaptiveRateController(int minBatchSize, int maxBatchSize, long minCooldownMillis, long maxCooldownMillis) {
+        Assert.isTrue(minBatchSize > 0, "Minimum batch size must be a positive integer");
+        Assert.isTrue(maxBatchSize >= minBatchSize, "Maximum batch size must not be less than the minimum");
+        Assert.isTrue(minCooldownMillis >= 0, "Minimum cooldown must not be negative");
+        Assert.isTrue(maxCooldownMillis >= minCooldownMillis, "Maximum cooldown must not be less than the minimum");
+
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.minCooldownMillis = minCooldownMillis;
+        this.maxCooldownMillis = maxCooldownMillis;
+        this.cooldownStepMillis = Math.max((maxCooldownMillis - minCooldownMillis) / 10, 1);
+        this.batchSize = maxBatchSize;
+        this.cooldownMillis = maxCooldownMillis;
+    }
+
+    public void setCooldownStepMillis(long cooldownStepMillis) {
+        Assert.isTrue(cooldownStepMillis > 0, "Cooldown step must be a positive number");
+        this.cooldownStepMillis = cooldownStepMillis;
+    }
+
+    public void setLatencyTolerance(double latencyTolerance) {
+        Assert.isTrue(latencyTolerance >= 1, "Latency tolerance must not be less than 1");
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    /**
+     * Schedules every batch one current cooldown after its predecessor. The schedule starts over as soon as the last
+     * reserved batch is due.
+     */
+    @Override
+    public long reserve(int permits) {
+        long time = System.currentTimeMillis();
+        long cooldown = cooldownMillis;
+        return Math.max(next.getAndUpdate(slot -> Math.max(slot, time) + cooldown), time);
+    }
+
+    @Override
+    public synchronized void onDispatched(Batch batch) {
+        double nanosPerMessage = (double) batch.getDispatchNanos() / batch.getMessages().length;
+        boolean slow = averageNanosPerMessage > 0 && nanosPerMessage > latencyTolerance * averageNanosPerMessage;
+        averageNanosPerMessage = averageNanosPerMessage > 0
+            ? averageNanosPerMessage + LATENCY_SMOOTHING * (nanosPerMessage - averageNanosPerMessage)
+            : nanosPerMessage;
+
+        if (slow) {
+            if (log.isDebugEnabled()) log.debug("Holding batch size {} and cooldown {}ms, dispatch took {}ms",
+                batchSize, cooldownMillis, TimeUnit.NANOSECONDS.toMillis(batch.getDispatchNanos()));
+            return;
+        }
+
+        batchSize = Math.min(batchSize + 1, maxBatchSize);
+        cooldownMillis = Math.max(cooldownMillis - cooldownStepMillis, minCooldownMillis);
+    }
+
+    @Override
+    public synchronized void onFailed(Batch batch, RuntimeException exception) {
+        if (!SmtpReplies.isTransient(exception)) {
+            return;
+        }
+
+        batchSize = Math.max(batchSize / 2, minBatchSize);
+        cooldownMillis = Math.min(Math.max(cooldownMillis * 2, cooldownStepMillis), maxCooldownMillis);
+        if (log.isInfoEnabled()) log.info("Mail server is throttling, backing off to batch size {} and cooldown {}ms",
+            batchSize, cooldownMillis);
+    }
+}
@@ -0,0 +1,30 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+/**
+ * Decides what happens to a batch that doesn't fit into the bounded queue of the {@link ConcurrentJavaMailSender}.
+ *
+ * @author Vincent Nadoll
+ */
+public enum BackpressurePolicy {
+
+    /**
+     * Blocks the sending thread until the queue has room for the batch or the configured timeout expires, in which case
+     * a {@link MailQueueException} is thrown.
+     */
+    BLOCK,
+
+    /**
+     * Throws a {@link MailQueueException} immediately.
+     */
+    FAIL,
+
+    /**
+     * Evicts the batches which are due first until the new batch fits. Evicted messages are not sent.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Dispatches the batch on the sending thread right away, regardless of its scheduled time.
+     */
+    CALLER_RUNS,
+}
@@ -4,19 +4,33 @@ import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessagePreparator;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Delayed;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
 
 /**
@@ -35,10 +49,226 @@ public class Batch implements Delayed {
 
     private final Derivate derivate;
 
+    /**
+     * The domain all messages of this batch are destined to, {@code null} if the batch isn't partitioned by domain.
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private final String domain;
+
+    /**
+     * The priority class all messages of this batch belong to.
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private final MailPriority priority;
+
+    @EqualsAndHashCode.Exclude
+    private long size = -1;
+
+    /**
+     * Nanoseconds the last attempt to dispatch this batch took, {@code 0} if it was never dispatched.
+     */
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.PACKAGE)
+    @Setter(AccessLevel.PACKAGE)
+    private volatile long dispatchNanos;
+
+    /**
+     * Value of {@link System#nanoTime()} when this batch was enqueued, {@code 0} if it was never enqueued.
+     */
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.PACKAGE)
+    @Setter(AccessLevel.PACKAGE)
+    private volatile long enqueuedNanos;
+
+    /**
+     * Estimated bytes this batch accounts for while it is queued, {@code 0} unless the queue is bounded by size.
+     */
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.PACKAGE)
+    @Setter(AccessLevel.PACKAGE)
+    private volatile long queuedBytes;
+
+    /**
+     * Nanoseconds this batch waited in the queue until it was taken for dispatch, {@code 0} if it was never enqueued.
+     */
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.PACKAGE)
+    @Setter(AccessLevel.PACKAGE)
+    private volatile long queuedNanos;
+
+    /**
+     * Completes once this batch was dispatched, or exceptionally if it failed or was dropped.
+     */
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.PACKAGE)
+    private final CompletableFuture<Void> completion;
+
+    /**
+     * Messages finally rejected by an attempt whose other messages were retried. Shared with the retries like the
+     * completion, which fails once the last attempt is made, even if that one succeeds.
+     */
+    @EqualsAndHashCode.Exclude
+    private final Map<Object, Exception> rejections;
+
+    /**
+     * Number of attempts to dispatch the messages of this batch including this one, i.e. {@code 1} unless this batch
+     * is a {@link #retry(long, Object[]) retry}.
+     */
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.PACKAGE)
+    private final int attempt;
+
     protected Batch(long time, Object[] messages) {
+        this(time, messages, null);
+    }
+
+    protected Batch(long time, Object[] messages, String domain) {
+        this(time, messages, domain, MailPriority.TRANSACTIONAL);
+    }
+
+    protected Batch(long time, Object[] messages, String domain, MailPriority priority) {
+        this(time, messages, domain, priority, 1);
+    }
+
+    /**
+     * Creates a batch whose messages were attempted to be dispatched before, e.g. a batch recovered from a spool.
+     *
+     * @param attempt the number of attempts including this one
+     */
+    protected Batch(long time, Object[] messages, String domain, MailPriority priority, int attempt) {
         this.time = time;
         this.messages = messages;
         this.derivate = Derivate.forClass(messages.getClass());
+        this.domain = domain;
+        this.priority = priority;
+        this.completion = new CompletableFuture<>();
+        this.rejections = new LinkedHashMap<>();
+        this.attempt = attempt;
+    }
+
+    /**
+     * Creates a batch of the given subset of messages of the given batch, which completes the same future.
+     */
+    protected Batch(Batch batch, long time, Object[] messages, int attempt) {
+        this.time = time;
+        this.messages = messages;
+        this.derivate = batch.derivate;
+        this.domain = batch.domain;
+        this.priority = batch.priority;
+        this.size = messages == batch.messages ? batch.size : -1;
+        this.completion = batch.completion;
+        this.rejections = batch.rejections;
+        this.attempt = attempt;
+    }
+
+    /**
+     * Creates the next attempt of the given messages of this batch, e.g. those which failed to be sent, scheduled at
+     * the given time. The original batch and its retries share the completion, hence it completes once the last attempt
+     * is made.
+     *
+     * @param time     the time in epoch milliseconds the next attempt is due
+     * @param messages subset of this batch's messages, typed like them
+     * @return the next attempt
+     */
+    Batch retry(long time, Object[] messages) {
+        return copy(time, messages, attempt + 1);
+    }
+
+    /**
+     * Narrows this batch down to the given messages, e.g. those which were finally rejected.
+     *
+     * @param messages subset of this batch's messages, typed like them
+     * @return the narrowed batch of the same attempt
+     */
+    Batch narrow(Object[] messages) {
+        return copy(time, messages, attempt);
+    }
+
+    protected Batch copy(long time, Object[] messages, int attempt) {
+        return new Batch(this, time, messages, attempt);
+    }
+
+    /**
+     * Copies the given messages into an array of this batch's message type.
+     *
+     * @param messages subset of this batch's messages
+     * @return array of the given messages, typed like the messages of this batch
+     */
+    Object[] subset(List<?> messages) {
+        return messages.toArray((Object[]) Array.newInstance(this.messages.getClass().getComponentType(), 0));
+    }
+
+    /**
+     * Attributes the given failure to the messages of this batch by the failed messages a {@link MailSendException}
+     * reports. Messages which aren't reported were sent. If the exception doesn't report any message, or reports a
+     * message which isn't part of this batch, e.g. because it was converted by a decorating sender, every message is
+     * attributed the exception itself.
+     *
+     * @param exception the failure of dispatching this batch
+     * @return the failure of every message in order of this batch, {@code null} for messages which were sent
+     */
+    Exception[] failures(RuntimeException exception) {
+        Exception[] failures = new Exception[messages.length];
+        Map<Object, Exception> failedMessages = new IdentityHashMap<>();
+        if (exception instanceof MailSendException) {
+            failedMessages.putAll(((MailSendException) exception).getFailedMessages());
+        }
+
+        Set<Object> attributed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < messages.length; i++) {
+            failures[i] = failedMessages.get(messages[i]);
+            if (failures[i] != null) {
+                attributed.add(messages[i]);
+            }
+        }
+
+        if (failedMessages.isEmpty() || attributed.size() < failedMessages.size()) {
+            Arrays.fill(failures, exception);
+        }
+        return failures;
+    }
+
+    /**
+     * Records the given messages as finally rejected, while the remaining messages of this batch are retried.
+     *
+     * @param rejections the failure of every rejected message
+     */
+    void reject(Map<Object, Exception> rejections) {
+        synchronized (this.rejections) {
+            this.rejections.putAll(rejections);
+        }
+    }
+
+    /**
+     * Completes this batch and its retries once the last attempt succeeded, or exceptionally if any previous attempt
+     * {@link #reject(Map) rejected} messages.
+     */
+    void complete() {
+        synchronized (rejections) {
+            if (rejections.isEmpty()) {
+                completion.complete(null);
+            } else {
+                completion.completeExceptionally(new MailSendException(new LinkedHashMap<>(rejections)));
+            }
+        }
+    }
+
+    /**
+     * Completes this batch and its retries exceptionally once the last attempt failed. The given exception is passed
+     * on as is, unless any previous attempt {@link #reject(Map) rejected} messages.
+     *
+     * @param exception  the failure of the last attempt
+     * @param rejections the failure of every message the last attempt rejected
+     */
+    void fail(RuntimeException exception, Map<Object, Exception> rejections) {
+        synchronized (this.rejections) {
+            if (this.rejections.isEmpty()) {
+                completion.completeExceptionally(exception);
+            } else {
+                this.rejections.putAll(rejections);
+                completion.completeExceptionally(new MailSendException(new LinkedHashMap<>(this.rejections)));
+            }
+        }
     }
 
     /**
@@ -51,6 +281,40 @@ public class Batch implements Delayed {
         derivate.send(sender, messages);
     }
 
+    /**
+     * Estimates the number of bytes this batch occupies once it is transferred. The estimation is computed once on
+     * demand since a {@link MimeMessage} of unknown size needs to be written out to be measured. Preparators are not
+     * prepared before dispatch, hence they don't count.
+     *
+     * @return estimated size of all messages in bytes
+     */
+    long estimateSize() {
+        if (size < 0) {
+            size = Arrays.stream(messages).mapToLong(derivate.estimator).sum();
+        }
+        return size;
+    }
+
+    private static long sizeOf(SimpleMailMessage simpleMessage) {
+        return simpleMessage.toString().length();
+    }
+
+    private static long sizeOf(MimeMessage mimeMessage) {
+        try {
+            int size = mimeMessage.getSize();
+            if (size >= 0) {
+                return size;
+            }
+
+            CountingOutputStream out = new CountingOutputStream();
+            mimeMessage.writeTo(out);
+            return out.count;
+        } catch (MessagingException | IOException e) {
+            if (log.isDebugEnabled()) log.debug("Could not estimate size of {}", mimeMessage, e);
+            return 0;
+        }
+    }
+
     @Override
     public long getDelay(TimeUnit unit) {
         long diff = this.time - System.currentTimeMillis();
@@ -77,23 +341,42 @@ public class Batch implements Delayed {
         return new StringJoiner(", ", Batch.class.getSimpleName() + "[", "]")
             .add("time=" + Instant.ofEpochMilli(time).atZone(ZoneId.systemDefault()).toLocalDateTime())
             .add("delay=" + getDelay(TimeUnit.MILLISECONDS) + "ms")
+            .add("domain=" + domain)
+            .add("priority=" + priority)
             .add("messages=" + Arrays.toString(messages))
             .add("derivate=" + derivate)
             .toString();
     }
 
 
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+
     @RequiredArgsConstructor
     private enum Derivate {
         // CHECKSTYLE.OFF: LineLength - Much more readable
-        SIMPLE_MAIL_MESSAGE(SimpleMailMessage[].class, (sender, messages) -> sender.send((SimpleMailMessage[]) messages)),
-        MIME_MESSAGE(MimeMessage[].class, (sender, messages) -> sender.send((MimeMessage[]) messages)),
-        MIME_MESSAGE_PREPARATOR(MimeMessagePreparator[].class, (sender, messages) -> sender.send((MimeMessagePreparator[]) messages)),
+        SIMPLE_MAIL_MESSAGE(SimpleMailMessage[].class, (sender, messages) -> sender.send((SimpleMailMessage[]) messages), message -> sizeOf((SimpleMailMessage) message)),
+        MIME_MESSAGE(MimeMessage[].class, (sender, messages) -> sender.send((MimeMessage[]) messages), message -> sizeOf((MimeMessage) message)),
+        MIME_MESSAGE_PREPARATOR(MimeMessagePreparator[].class, (sender, messages) -> sender.send((MimeMessagePreparator[]) messages), message -> 0),
         ;
         // CHECKSTYLE.ON: LineLength
 
         private final Class<?> messageType;
         private final BiConsumer<JavaMailSender, Object[]> dispatcher;
+        private final ToLongFunction<Object> estimator;
 
         private void send(JavaMailSender sender, Object[] messages) {
             dispatcher.accept(sender, messages);
@@ -1,10 +1,11 @@
 package de.vinado.spring.mail.javamail.concurrent;
 
-import lombok.RequiredArgsConstructor;
+import de.vinado.spring.mail.javamail.JavaMailSenderDecorator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.mail.javamail.JavaMailSender;
 
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A {@link Runnable} consumer dequeuing batches and handing them over to the actual {@link JavaMailSender}.
@@ -12,36 +13,99 @@ import java.util.concurrent.BlockingQueue;
  * @author Vincent Nadoll
  */
 @Slf4j
-@RequiredArgsConstructor
 class BatchConsumer implements Runnable {
 
     private final BlockingQueue<Batch> queue;
     private final JavaMailSender sender;
+    private final BatchListener listener;
+
+    /**
+     * The sender holding the connection, which may be decorated by the sender dispatching the batches.
+     */
+    private final ConnectionHoldingJavaMailSender connectionHolder;
+
+    BatchConsumer(BlockingQueue<Batch> queue, JavaMailSender sender) {
+        this(queue, sender, BatchListener.noop());
+    }
+
+    BatchConsumer(BlockingQueue<Batch> queue, JavaMailSender sender, BatchListener listener) {
+        this.queue = queue;
+        this.sender = sender;
+        this.listener = listener;
+        this.connectionHolder = JavaMailSenderDecorator.find(sender, ConnectionHoldingJavaMailSender.class);
+    }
 
     /**
      * {@inheritDoc}
+     *
+     * <p>Consumes batches until the thread is interrupted. Batches still queued by then are left to whoever interrupted
+     * it, usually the sender shutting down.
      */
     @Override
     public void run() {
+        try {
+            consume();
+        } finally {
+            if (connectionHolder != null) {
+                connectionHolder.close();
+            }
+        }
+    }
+
+    private void consume() {
         while (true) {
             try {
-                Batch batch = queue.take();
+                Batch batch = dequeue();
+                if (batch == null) continue;
+
                 if (log.isDebugEnabled()) {
+                    int remaining = queue.size();
                     log.debug("Dequeued {}", batch);
-                    log.debug(queue.isEmpty()
+                    log.debug(remaining == 0
                         ? "Queue is empty now"
-                        : (queue.size() + " batch(es) remain in the queue"));
+                        : (remaining + " batch(es) remain in the queue"));
                 }
 
-                batch.dispatch(sender);
+                dispatch(batch);
+            } catch (RuntimeException e) {
+                if (log.isErrorEnabled()) log.error("Could not complete dispatch, continuing with the next batch", e);
             } catch (InterruptedException e) {
-                if (queue.isEmpty()) break;
-
-                if (log.isErrorEnabled()) log.error(""
-                    + "Mail sender thread was interrupted but queue was not empty. "
-                    + "Some Emails were not sent.");
-                throw new MailQueueException("Could not dequeue email batch", e);
+                if (log.isDebugEnabled()) log.debug("Interrupted, leaving {} batch(es) in the queue", queue.size());
+                break;
             }
         }
     }
+
+    /**
+     * Dispatches the given batch. A failure is handed over to the listener, which decides whether the batch is retried,
+     * and never propagated, so that a single bad batch doesn't strand the remaining ones.
+     */
+    private void dispatch(Batch batch) {
+        long start = System.nanoTime();
+        try {
+            batch.dispatch(sender);
+        } catch (RuntimeException e) {
+            batch.setDispatchNanos(System.nanoTime() - start);
+            listener.onFailed(batch, e);
+            return;
+        }
+        batch.setDispatchNanos(System.nanoTime() - start);
+        listener.onDispatched(batch);
+    }
+
+    /**
+     * Waits for the next batch. A sender holding its connection is only waited for until its idle timeout expires, in
+     * which case the connection gets closed and {@code null} is returned.
+     */
+    private Batch dequeue() throws InterruptedException {
+        if (connectionHolder == null) {
+            return queue.take();
+        }
+
+        Batch batch = queue.poll(connectionHolder.getIdleTimeoutMillis(), TimeUnit.MILLISECONDS);
+        if (batch == null) {
+            connectionHolder.closeIfIdle();
+        }
+        return batch;
+    }
 }
@@ -0,0 +1,48 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+/**
+ * Callback notified about the outcome of every batch passing through the {@link ConcurrentJavaMailSender}.
+ *
+ * @author Vincent Nadoll
+ */
+interface BatchListener {
+
+    /**
+     * Invoked after the batch was handed over to the actual sender successfully.
+     *
+     * @param batch the dispatched batch
+     */
+    default void onDispatched(Batch batch) {
+    }
+
+    /**
+     * Invoked if the actual sender failed to dispatch the batch, whether or not it is retried.
+     *
+     * @param batch     the failed batch
+     * @param exception the cause
+     */
+    default void onFailed(Batch batch, RuntimeException exception) {
+    }
+
+    /**
+     * Invoked if the batch was rejected or evicted by the queue and won't be dispatched.
+     *
+     * @param batch the dropped batch
+     */
+    default void onDropped(Batch batch) {
+    }
+
+    /**
+     * Invoked if the batch failed for the last time and was taken over by the {@link DeadLetterSink}.
+     *
+     * @param batch     the dead-lettered batch
+     * @param exception the failure of the last attempt
+     */
+    default void onDeadLettered(Batch batch, RuntimeException exception) {
+    }
+
+    static BatchListener noop() {
+        return new BatchListener() {
+        };
+    }
+}
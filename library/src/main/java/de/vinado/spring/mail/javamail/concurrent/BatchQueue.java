@@ -0,0 +1,778 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded {@link java.util.concurrent.DelayQueue} counterpart, whose capacity is measured in messages and in
+ * estimated bytes instead of batches. Same as the delay queue, a batch can only be taken once its delay has expired.
+ * A queue without any batches always accepts the next batch, even if the batch alone exceeds the capacity. A
+ * non-positive capacity leaves the respective dimension unbounded.
+ *
+ * <p>Batches are kept in one lane per destination domain. Each lane is ordered by the scheduled time of its batches,
+ * and lanes holding due batches are served in turns, so that a backed-up domain can't starve any other. The number of
+ * batches of the same domain being dispatched at once can be capped, in which case a lane isn't served until one of its
+ * batches is {@link #done(Batch) done}. Batches without destination domain share a single lane, which is never capped.
+ *
+ * <p>Lanes are grouped by the {@link MailPriority} of their batches. Whenever several priority classes hold due
+ * batches, the class to be served is chosen by smooth weighted round-robin, so that every class is served according to
+ * its weight, but none is starved. Evictions hit the lowest priority class first.
+ *
+ * @author Vincent Nadoll
+ */
+class BatchQueue extends AbstractQueue<Batch> implements BlockingQueue<Batch> {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition drained = lock.newCondition();
+    private final Map<MailPriority, Tier> tiers = new EnumMap<>(MailPriority.class);
+
+    /**
+     * Batches taken from this queue which aren't done yet, mapped to their destination domain, if any.
+     */
+    private final Map<Batch, String> inFlight = new IdentityHashMap<>();
+    private final Map<String, Integer> inFlightPerDomain = new HashMap<>();
+
+    private int messageCapacity;
+    private volatile long byteCapacity;
+    private int maxInFlightPerDomain;
+
+    private int size;
+    private int messages;
+    private long bytes;
+
+    /**
+     * Thread designated to wait for the batch at the head of the queue, same as in
+     * {@link java.util.concurrent.DelayQueue}.
+     */
+    private Thread leader;
+
+    BatchQueue() {
+        for (MailPriority priority : MailPriority.values()) {
+            tiers.put(priority, new Tier(priority.getDefaultWeight()));
+        }
+    }
+
+    int getMessageCapacity() {
+        lock.lock();
+        try {
+            return messageCapacity;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void setMessageCapacity(int messageCapacity) {
+        lock.lock();
+        try {
+            this.messageCapacity = messageCapacity;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getByteCapacity() {
+        lock.lock();
+        try {
+            return byteCapacity;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void setByteCapacity(long byteCapacity) {
+        lock.lock();
+        try {
+            this.byteCapacity = byteCapacity;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getMaxInFlightPerDomain() {
+        lock.lock();
+        try {
+            return maxInFlightPerDomain;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void setMaxInFlightPerDomain(int maxInFlightPerDomain) {
+        lock.lock();
+        try {
+            this.maxInFlightPerDomain = maxInFlightPerDomain;
+            leader = null;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getWeight(MailPriority priority) {
+        lock.lock();
+        try {
+            return tiers.get(priority).weight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void setWeight(MailPriority priority, int weight) {
+        lock.lock();
+        try {
+            Tier tier = tiers.get(priority);
+            tier.weight = weight;
+            tier.currentWeight = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of queued messages.
+     *
+     * @return the number of messages of all queued batches
+     */
+    int messageCount() {
+        lock.lock();
+        try {
+            return messages;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sizes are only estimated while the byte capacity is bounded.
+     *
+     * @return the estimated size of all queued batches in bytes
+     */
+    long byteCount() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Estimates the size of the given batch before the lock is acquired, since a message of unknown size is written out
+     * to be measured, or even signed if signing is deferred. Other threads must not wait for that.
+     *
+     * @return the estimated size of the batch in bytes, {@code 0} if the queue isn't bounded by size
+     */
+    private long estimate(Batch batch) {
+        return byteCapacity > 0 ? batch.estimateSize() : 0;
+    }
+
+    private boolean fits(Batch batch, long batchBytes) {
+        if (size == 0) {
+            return true;
+        }
+        if (messageCapacity > 0 && messages + batch.getMessages().length > messageCapacity) {
+            return false;
+        }
+        return byteCapacity <= 0 || bytes + batchBytes <= byteCapacity;
+    }
+
+    private void insert(Batch batch, long batchBytes) {
+        batch.setQueuedBytes(batchBytes);
+        bytes += batchBytes;
+        messages += batch.getMessages().length;
+        size++;
+        batch.setEnqueuedNanos(System.nanoTime());
+
+        Tier tier = tiers.get(batch.getPriority());
+        Lane lane = tier.lanes.computeIfAbsent(batch.getDomain(), domain -> new Lane(tier, domain));
+        lane.batches.offer(batch);
+        if (lane.batches.peek() == batch) {
+            leader = null;
+            available.signal();
+        }
+    }
+
+    /**
+     * Picks the lane to be served next. Every priority class holding a servable due batch accumulates its weight, the
+     * class with the highest sum is served and charged the weights of all contenders. Hence, a class whose batches are
+     * due on their own is served without being charged at all.
+     *
+     * @return the lane to be served next, {@code null} if there is no servable due batch
+     */
+    private Lane due() {
+        Tier selected = null;
+        Lane selectedLane = null;
+        int total = 0;
+        for (Tier tier : tiers.values()) {
+            Lane lane = due(tier);
+            if (lane == null) {
+                continue;
+            }
+
+            tier.currentWeight += tier.weight;
+            total += tier.weight;
+            if (selected == null || tier.currentWeight > selected.currentWeight) {
+                selected = tier;
+                selectedLane = lane;
+            }
+        }
+
+        if (selected != null) {
+            selected.currentWeight -= total;
+        }
+        return selectedLane;
+    }
+
+    /**
+     * Selects the next lane of the given class to be dispatched from.
+     *
+     * @return the first lane of the given class in turn whose earliest batch is due and which isn't capped,
+     *     {@code null} if there is none
+     */
+    private Lane due(Tier tier) {
+        for (Lane lane : tier.lanes.values()) {
+            if (isServable(lane) && lane.batches.peek().getDelay(TimeUnit.NANOSECONDS) <= 0) {
+                return lane;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Computes the delay until the next batch can be dispatched.
+     *
+     * @return the nanoseconds until the next batch of any lane that isn't capped is due, {@link Long#MAX_VALUE} if
+     *     there is no such batch
+     */
+    private long nextDelay() {
+        long delay = Long.MAX_VALUE;
+        for (Tier tier : tiers.values()) {
+            for (Lane lane : tier.lanes.values()) {
+                if (isServable(lane)) {
+                    delay = Math.min(delay, lane.batches.peek().getDelay(TimeUnit.NANOSECONDS));
+                }
+            }
+        }
+        return delay;
+    }
+
+    private boolean isServable(Lane lane) {
+        return lane.domain == null
+            || maxInFlightPerDomain <= 0
+            || inFlightPerDomain.getOrDefault(lane.domain, 0) < maxInFlightPerDomain;
+    }
+
+    /**
+     * Selects the lane of the given class to be dispatched from regardless of its due time.
+     *
+     * @return the lane of the given class holding its earliest batch, {@code null} if the class holds no batches
+     */
+    private static Lane earliest(Tier tier) {
+        Lane earliest = null;
+        for (Lane lane : tier.lanes.values()) {
+            if (earliest == null || lane.batches.peek().compareTo(earliest.batches.peek()) < 0) {
+                earliest = lane;
+            }
+        }
+        return earliest;
+    }
+
+    /**
+     * Takes the earliest batch of the given lane for dispatch and moves the lane to the end of the turn.
+     */
+    private Batch dequeue(Lane lane) {
+        Batch batch = extract(lane);
+        batch.setQueuedNanos(System.nanoTime() - batch.getEnqueuedNanos());
+        inFlight.put(batch, lane.domain);
+        if (lane.domain != null) {
+            inFlightPerDomain.merge(lane.domain, 1, Integer::sum);
+        }
+
+        if (!lane.batches.isEmpty()) {
+            lane.tier.lanes.remove(lane.domain);
+            lane.tier.lanes.put(lane.domain, lane);
+        }
+        return batch;
+    }
+
+    private Batch extract(Lane lane) {
+        Batch batch = lane.batches.poll();
+        size--;
+        released(batch);
+        removeIfEmpty(lane);
+        return batch;
+    }
+
+    private static void removeIfEmpty(Lane lane) {
+        if (lane.batches.isEmpty()) {
+            lane.tier.lanes.remove(lane.domain);
+        }
+    }
+
+    private void released(Batch batch) {
+        messages -= batch.getMessages().length;
+        bytes -= batch.getQueuedBytes();
+        notFull.signalAll();
+    }
+
+    /**
+     * Marks the given batch, which was taken from this queue, as dispatched, so that its lane may be served again.
+     * Batches not taken from this queue are ignored.
+     *
+     * @param batch the dispatched or failed batch
+     */
+    void done(Batch batch) {
+        lock.lock();
+        try {
+            if (!inFlight.containsKey(batch)) {
+                return;
+            }
+
+            String domain = inFlight.remove(batch);
+            drained.signalAll();
+            if (domain == null) {
+                return;
+            }
+
+            inFlightPerDomain.computeIfPresent(domain, (key, count) -> count > 1 ? count - 1 : null);
+            leader = null;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Batch batch) {
+        if (batch == null) throw new NullPointerException();
+        long batchBytes = estimate(batch);
+        lock.lock();
+        try {
+            if (!fits(batch, batchBytes)) {
+                return false;
+            }
+            insert(batch, batchBytes);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Batch batch, long timeout, TimeUnit unit) throws InterruptedException {
+        if (batch == null) throw new NullPointerException();
+        long nanos = unit.toNanos(timeout);
+        long batchBytes = estimate(batch);
+        lock.lockInterruptibly();
+        try {
+            while (!fits(batch, batchBytes)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            insert(batch, batchBytes);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Batch batch) throws InterruptedException {
+        if (batch == null) throw new NullPointerException();
+        long batchBytes = estimate(batch);
+        lock.lockInterruptibly();
+        try {
+            while (!fits(batch, batchBytes)) {
+                notFull.await();
+            }
+            insert(batch, batchBytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Inserts the given batch regardless of the capacity, e.g. the retry of a batch that was accepted before. Neither
+     * the caller, usually a worker, nor the batch is ever blocked or rejected.
+     *
+     * @param batch the batch to be inserted
+     */
+    void requeue(Batch batch) {
+        if (batch == null) throw new NullPointerException();
+        long batchBytes = estimate(batch);
+        lock.lock();
+        try {
+            insert(batch, batchBytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every batch due within the given time was taken and is {@link #done(Batch) done}. Batches due later
+     * are not waited for.
+     *
+     * @return {@code true} if no batch is in flight and none is due within the given time, {@code false} if the time
+     *     elapsed before
+     */
+    boolean awaitDrained(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (!inFlight.isEmpty() || earliestDelay() <= nanos) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = drained.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Computes the delay until the earliest batch is due.
+     *
+     * @return the nanoseconds until the earliest batch of any lane is due, {@link Long#MAX_VALUE} if there is none
+     */
+    private long earliestDelay() {
+        long delay = Long.MAX_VALUE;
+        for (Tier tier : tiers.values()) {
+            for (Lane lane : tier.lanes.values()) {
+                delay = Math.min(delay, lane.batches.peek().getDelay(TimeUnit.NANOSECONDS));
+            }
+        }
+        return delay;
+    }
+
+    /**
+     * Removes every batch from this queue, no matter whether its delay has expired or not.
+     *
+     * @return the removed batches in no particular order
+     */
+    List<Batch> drainAll() {
+        lock.lock();
+        try {
+            List<Batch> batches = new ArrayList<>(size);
+            for (Tier tier : tiers.values()) {
+                for (Lane lane : tier.lanes.values()) {
+                    batches.addAll(lane.batches);
+                }
+            }
+            clear();
+            return batches;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the earliest batch of the lowest priority class holding any batches, no matter whether its delay has
+     * expired or not.
+     *
+     * @return the evicted batch or {@code null} if the queue is empty
+     */
+    Batch evict() {
+        lock.lock();
+        try {
+            MailPriority[] priorities = MailPriority.values();
+            for (int i = priorities.length - 1; i >= 0; i--) {
+                Lane lane = earliest(tiers.get(priorities[i]));
+                if (lane != null) {
+                    Batch batch = extract(lane);
+                    leader = null;
+                    available.signal();
+                    return batch;
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Batch poll() {
+        lock.lock();
+        try {
+            Lane lane = due();
+            return lane == null ? null : dequeue(lane);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Batch poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                Lane lane = due();
+                if (lane != null) {
+                    return dequeue(lane);
+                }
+                if (nanos <= 0) {
+                    return null;
+                }
+
+                long delay = nextDelay();
+                if (nanos < delay || leader != null) {
+                    nanos = available.awaitNanos(nanos);
+                    continue;
+                }
+
+                Thread thisThread = Thread.currentThread();
+                leader = thisThread;
+                try {
+                    long timeLeft = available.awaitNanos(delay);
+                    nanos -= delay - timeLeft;
+                } finally {
+                    if (leader == thisThread) leader = null;
+                }
+            }
+        } finally {
+            if (leader == null && nextDelay() != Long.MAX_VALUE) available.signal();
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Batch take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                Lane lane = due();
+                if (lane != null) {
+                    return dequeue(lane);
+                }
+
+                long delay = nextDelay();
+                if (delay == Long.MAX_VALUE || leader != null) {
+                    available.await();
+                    continue;
+                }
+
+                Thread thisThread = Thread.currentThread();
+                leader = thisThread;
+                try {
+                    available.awaitNanos(delay);
+                } finally {
+                    if (leader == thisThread) leader = null;
+                }
+            }
+        } finally {
+            if (leader == null && nextDelay() != Long.MAX_VALUE) available.signal();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the earliest batch of all lanes, due or not.
+     */
+    @Override
+    public Batch peek() {
+        lock.lock();
+        try {
+            Batch earliest = null;
+            for (Tier tier : tiers.values()) {
+                Lane lane = earliest(tier);
+                if (lane != null && (earliest == null || lane.batches.peek().compareTo(earliest) < 0)) {
+                    earliest = lane.batches.peek();
+                }
+            }
+            return earliest;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of messages that can still be enqueued or {@link Integer#MAX_VALUE} if the message capacity
+     * is unbounded.
+     */
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            return messageCapacity > 0 ? Math.max(messageCapacity - messages, 0) : Integer.MAX_VALUE;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Batch> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Batch> c, int maxElements) {
+        if (c == null) throw new NullPointerException();
+        if (c == this) throw new IllegalArgumentException();
+        if (maxElements <= 0) return 0;
+
+        lock.lock();
+        try {
+            int n = 0;
+            for (Lane lane; n < maxElements && (lane = due()) != null; n++) {
+                c.add(dequeue(lane));
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            tiers.values().forEach(tier -> tier.lanes.clear());
+            size = 0;
+            messages = 0;
+            bytes = 0;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        lock.lock();
+        try {
+            for (Tier tier : tiers.values()) {
+                for (Lane lane : tier.lanes.values()) {
+                    Iterator<Batch> iterator = lane.batches.iterator();
+                    while (iterator.hasNext()) {
+                        Batch batch = iterator.next();
+                        if (batch == o) {
+                            iterator.remove();
+                            size--;
+                            released(batch);
+                            removeIfEmpty(lane);
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns an iterator over a snapshot of all batches in this queue, expired or not, in no particular order.
+     */
+    @Override
+    public Iterator<Batch> iterator() {
+        List<Batch> snapshot = new ArrayList<>();
+        lock.lock();
+        try {
+            for (Tier tier : tiers.values()) {
+                for (Lane lane : tier.lanes.values()) {
+                    snapshot.addAll(lane.batches);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return new Itr(snapshot);
+    }
+
+
+    private final class Itr implements Iterator<Batch> {
+
+        private final List<Batch> snapshot;
+        private int cursor;
+        private int lastRet = -1;
+
+        private Itr(List<Batch> snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < snapshot.size();
+        }
+
+        @Override
+        public Batch next() {
+            if (cursor >= snapshot.size()) throw new NoSuchElementException();
+            lastRet = cursor;
+            return snapshot.get(cursor++);
+        }
+
+        @Override
+        public void remove() {
+            if (lastRet < 0) throw new IllegalStateException();
+            BatchQueue.this.remove(snapshot.get(lastRet));
+            lastRet = -1;
+        }
+    }
+
+
+    /**
+     * The lanes of a priority class in the order they are served, along with the weight of the class.
+     */
+    private static final class Tier {
+
+        private final Map<String, Lane> lanes = new LinkedHashMap<>();
+        private int weight;
+        private int currentWeight;
+
+        private Tier(int weight) {
+            this.weight = weight;
+        }
+    }
+
+
+    /**
+     * Batches of the same priority class and destination domain, ordered by their scheduled time. A lane is discarded
+     * as soon as it runs empty.
+     */
+    private static final class Lane {
+
+        private final Tier tier;
+        private final String domain;
+        private final PriorityQueue<Batch> batches = new PriorityQueue<>();
+
+        private Lane(Tier tier, String domain) {
+            this.tier = tier;
+            this.domain = domain;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.MailSendException;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * Settles the batches of a {@link ConcurrentJavaMailSender} which failed to be dispatched. Transient failures are
+ * retried with backoff if the {@link RetryPolicy} permits, while batches failing permanently or running out of retries
+ * are handed over to the {@link DeadLetterSink}, if any.
+ *
+ * @author Vincent Nadoll
+ */
+@Slf4j
+class BatchSettler {
+
+    private final BatchQueue queue;
+    private final BiFunction<MailPriority, String, RateLimiter> rateLimiters;
+    private final BatchListener listener;
+
+    /**
+     * Decides whether failed batches are attempted once more. Unless configured otherwise, every batch is attempted
+     * only once.
+     */
+    @Getter
+    private RetryPolicy retryPolicy = RetryPolicy.none();
+
+    /**
+     * Takes over the messages of batches which failed for the last time, {@code null} if they are discarded.
+     */
+    @Getter
+    @Setter
+    private DeadLetterSink deadLetterSink;
+
+    /**
+     * Records the attempts of retried batches, {@code null} if batches aren't spooled.
+     */
+    @Setter
+    private BatchSpooler spooler;
+
+    /**
+     * Creates a new settler.
+     *
+     * @param queue        the queue to enqueue retries in
+     * @param rateLimiters provides the rate limiter of a priority class and domain
+     * @param listener     the listener notified about dead-lettered batches
+     */
+    BatchSettler(BatchQueue queue, BiFunction<MailPriority, String, RateLimiter> rateLimiters,
+                 BatchListener listener) {
+        this.queue = queue;
+        this.rateLimiters = rateLimiters;
+        this.listener = listener;
+    }
+
+    void setRetryPolicy(RetryPolicy retryPolicy) {
+        Assert.notNull(retryPolicy, "Retry policy must not be null");
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Settles the failure of the given batch message by message. Messages which were sent are left out, while failed
+     * ones are retried if the {@link RetryPolicy} permits, or dead-lettered otherwise. If only some of them are
+     * retried, the rejected ones are dead-lettered as a batch of their own, so that a spooled record is kept until the
+     * retry settles. Their rejection is recorded and only reported once the last attempt of the retry was made.
+     *
+     * @param batch     the failed batch
+     * @param exception the failure of the batch
+     */
+    void settle(Batch batch, RuntimeException exception) {
+        Object[] messages = batch.getMessages();
+        Exception[] failures = batch.failures(exception);
+        List<Object> retryable = new ArrayList<>();
+        List<Object> rejected = new ArrayList<>();
+        Map<Object, Exception> rejections = new LinkedHashMap<>();
+        for (int i = 0; i < messages.length; i++) {
+            if (failures[i] == null) {
+                continue;
+            }
+
+            if (retryPolicy.shouldRetry(batch.getAttempt(), failures[i])) {
+                retryable.add(messages[i]);
+            } else {
+                rejected.add(messages[i]);
+                rejections.put(messages[i], failures[i]);
+            }
+        }
+
+        if (!retryable.isEmpty()) {
+            batch.reject(rejections);
+            retry(batch, batch.subset(retryable), exception);
+        }
+        if (rejected.isEmpty()) {
+            return;
+        }
+
+        RuntimeException rejection = retryable.isEmpty() ? exception : new MailSendException(rejections);
+        Batch deadLetters = retryable.isEmpty()
+            ? batch.narrow(batch.subset(rejected))
+            : new Batch(System.currentTimeMillis(), batch.subset(rejected), batch.getDomain(), batch.getPriority());
+        if (deadLetter(deadLetters, rejection)) {
+            listener.onDeadLettered(deadLetters, rejection);
+        }
+        if (retryable.isEmpty()) {
+            batch.fail(exception, rejections);
+        }
+    }
+
+    /**
+     * Enqueues the next attempt of the given messages of a failed batch. The attempt is backed off and scheduled by the
+     * rate limiter of the batch, whichever is later. It is enqueued regardless of the queue's capacity, since the batch
+     * was accepted before.
+     */
+    private void retry(Batch batch, Object[] messages, RuntimeException exception) {
+        long backoff = System.currentTimeMillis() + retryPolicy.backoffMillis(batch.getAttempt());
+        long time = Math.max(backoff, rateLimiters.apply(batch.getPriority(), batch.getDomain())
+            .reserve(messages.length));
+        Batch retry = batch.retry(time, messages);
+        if (spooler != null && retry instanceof SpooledBatch) {
+            spooler.recordAttempt((SpooledBatch) retry);
+        }
+        queue.requeue(retry);
+        if (log.isWarnEnabled()) log.warn("Attempt {} of {} failed, retrying {} message(s) in {}ms", batch.getAttempt(),
+            batch, messages.length, time - System.currentTimeMillis(), exception);
+    }
+
+    /**
+     * Hands the messages of the given batch over to the {@link DeadLetterSink}, if any.
+     *
+     * @return {@code true} if the sink took over the messages
+     */
+    private boolean deadLetter(Batch batch, RuntimeException exception) {
+        if (deadLetterSink == null) {
+            if (log.isErrorEnabled()) log.error("Could not dispatch {}", batch, exception);
+            return false;
+        }
+
+        try {
+            deadLetterSink.accept(batch.getMessages(), exception);
+            if (log.isWarnEnabled()) log.warn("Dead-lettered {}", batch, exception);
+            return true;
+        } catch (Exception e) {
+            if (log.isErrorEnabled()) log.error("Could not dead-letter {}", batch, e);
+            return false;
+        }
+    }
+}
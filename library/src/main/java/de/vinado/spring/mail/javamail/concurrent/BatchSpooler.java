@@ -0,0 +1,138 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailParseException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * Keeps the batches of a {@link ConcurrentJavaMailSender} in a {@link FileMailSpool}. Every accepted batch is appended
+ * as a record of its own, which is acknowledged once the batch was dispatched, dropped or dead-lettered. The attempts
+ * of retried batches are recorded as well, so that batches recovered after a crash or restart keep their priority and
+ * attempt count.
+ *
+ * @author Vincent Nadoll
+ */
+@Slf4j
+class BatchSpooler implements BatchListener {
+
+    @Getter
+    private final FileMailSpool spool;
+
+    private final Function<InputStream, MimeMessage> parser;
+
+    /**
+     * Creates a new spooler.
+     *
+     * @param spool  the spool to keep the batches in
+     * @param parser creates the messages of recovered or mapped batches
+     */
+    BatchSpooler(FileMailSpool spool, Function<InputStream, MimeMessage> parser) {
+        this.spool = spool;
+        this.parser = parser;
+    }
+
+    /**
+     * Appends the given messages to the spool. If the spool is mapped, the messages are replaced by their spooled
+     * counterpart, whose content remains in the memory-mapped segment.
+     *
+     * @return a new batch of the spooled messages
+     * @throws MailException if the messages could not be spooled
+     */
+    SpooledBatch spool(long time, MimeMessage[] mimeMessages, String domain, MailPriority priority)
+        throws MailException {
+        try {
+            long recordId = spool.append(priority, mimeMessages);
+            MimeMessage[] messages = spool.isMapped() ? spool.read(recordId, parser) : mimeMessages;
+            return new SpooledBatch(time, messages, recordId, domain, priority);
+        } catch (MessagingException e) {
+            throw new MailParseException(e);
+        } catch (IOException e) {
+            throw new MailQueueException("Could not spool email batch", e);
+        }
+    }
+
+    /**
+     * Recovers the batches left over by a previous run. Every batch keeps its spooled priority, or the one of its
+     * header if it was spooled without, and is scheduled by the rate limiter of its priority class and domain.
+     *
+     * @param partitionedByDomain whether the batches are partitioned by the domain of their recipients
+     * @param rateLimiters        provides the rate limiter of a priority class and domain
+     * @return the recovered batches
+     * @throws MailException if the spool could not be read
+     */
+    Batch[] recover(boolean partitionedByDomain, BiFunction<MailPriority, String, RateLimiter> rateLimiters)
+        throws MailException {
+        Map<Long, MimeMessage[]> recovered;
+        try {
+            recovered = spool.recover(parser);
+        } catch (IOException e) {
+            throw new MailQueueException("Could not recover spooled email batches", e);
+        }
+
+        Batch[] batches = recovered.entrySet().stream()
+            .map(entry -> {
+                MailPriority priority = spool.getPriority(entry.getKey());
+                if (priority == null) {
+                    priority = MailPriority.of(entry.getValue()[0]);
+                }
+                String domain = partitionedByDomain ? RecipientDomains.of(entry.getValue()[0]) : null;
+                long time = rateLimiters.apply(priority, domain).reserve(entry.getValue().length);
+                return new SpooledBatch(time, entry.getValue(), entry.getKey(), domain, priority,
+                    spool.getAttempt(entry.getKey()));
+            })
+            .toArray(Batch[]::new);
+
+        if (batches.length > 0 && log.isInfoEnabled()) {
+            log.info("Recovered {} batch(es) from {}", batches.length, spool.getDirectory());
+        }
+        return batches;
+    }
+
+    /**
+     * Records the attempt of the given batch. If it can't be recorded, the batch restarts with its last recorded
+     * attempt on recovery.
+     */
+    void recordAttempt(SpooledBatch batch) {
+        try {
+            spool.recordAttempt(batch.getRecordId(), batch.getAttempt());
+        } catch (IOException e) {
+            if (log.isWarnEnabled()) log.warn("Could not record attempt of {}, it restarts on recovery", batch, e);
+        }
+    }
+
+    @Override
+    public void onDispatched(Batch batch) {
+        acknowledge(batch);
+    }
+
+    @Override
+    public void onDropped(Batch batch) {
+        acknowledge(batch);
+    }
+
+    @Override
+    public void onDeadLettered(Batch batch, RuntimeException exception) {
+        acknowledge(batch);
+    }
+
+    private void acknowledge(Batch batch) {
+        if (!(batch instanceof SpooledBatch)) {
+            return;
+        }
+
+        try {
+            spool.acknowledge(((SpooledBatch) batch).getRecordId());
+        } catch (IOException e) {
+            if (log.isErrorEnabled()) log.error("Could not acknowledge {}, it will be resent on recovery", batch, e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import javax.mail.internet.SharedInputStream;
+
+/**
+ * {@link SharedInputStream} reading from a {@link ByteBuffer}, typically a memory-mapped file region. A
+ * {@link javax.mail.internet.MimeMessage} parsed from this stream only keeps its headers on the heap, whereas its
+ * content remains a {@link #newStream(long, long) substream} of the buffer.
+ *
+ * @author Vincent Nadoll
+ */
+class BufferSharedInputStream extends InputStream implements SharedInputStream {
+
+    private final ByteBuffer buffer;
+
+    BufferSharedInputStream(ByteBuffer buffer) {
+        this.buffer = buffer.slice();
+    }
+
+    @Override
+    public int read() {
+        return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+
+        int count = Math.min(len, buffer.remaining());
+        buffer.get(b, off, count);
+        return count;
+    }
+
+    @Override
+    public long skip(long n) {
+        int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+        ((Buffer) buffer).position(buffer.position() + count);
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        ((Buffer) buffer).mark();
+    }
+
+    @Override
+    public synchronized void reset() {
+        ((Buffer) buffer).reset();
+    }
+
+    @Override
+    public long getPosition() {
+        return buffer.position();
+    }
+
+    @Override
+    public InputStream newStream(long start, long end) {
+        if (start < 0) {
+            throw new IllegalArgumentException("start < 0");
+        }
+        if (end == -1) {
+            end = buffer.limit();
+        }
+
+        ByteBuffer substream = buffer.duplicate();
+        ((Buffer) substream).limit((int) end).position((int) start);
+        return new BufferSharedInputStream(substream);
+    }
+}
@@ -1,55 +1,275 @@
 package de.vinado.spring.mail.javamail.concurrent;
 
+import de.vinado.spring.mail.javamail.AsyncJavaMailSender;
 import de.vinado.spring.mail.javamail.JavaMailSenderDecorator;
 import lombok.Getter;
 import lombok.Setter;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.mail.MailException;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMailMessage;
 import org.springframework.mail.javamail.MimeMessagePreparator;
 import org.springframework.util.Assert;
 
-import java.time.Instant;
-import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.DelayQueue;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
 
 /**
  * {@link JavaMailSender} implementation that queues any messages and delays. The amount of concurrently enqueued emails
- * as well as the cooldown between dequeue operations can be configured using the appropriate setter. Also, this sender
+ * as well as the cooldown between dequeue operations can be configured using the appropriate setter. Instead of a fixed
+ * cooldown, any other {@link RateLimiter} may decide when a batch is due. Also, this sender
  * SMTP transport operation doesn't block the main thread which becomes handy in case your SMTP provider provides a darn
  * slow server. You can also overcome any rate limit or limit involving the amount of MIME messages to be present in an
  * SMTP session.
  *
+ * <p>The queue is drained by a configurable number of workers. Each worker dispatches through the delegate on its own,
+ * so a slow SMTP conversation only stalls the worker it is running on. Batches are still scheduled one cooldown apart
+ * and dequeued in order of their scheduled time, hence no batch is dispatched before its predecessor became due.
+ *
+ * <p>The queue can be bounded by the number of messages and by their estimated size. Once the capacity is reached, the
+ * configured {@link BackpressurePolicy} decides what happens to further batches. The current queue depth can be
+ * observed, so that callers are able to shed load beforehand.
+ *
+ * <p>Optionally, batches are partitioned by the domain of their recipients. Every domain is then scheduled by its own
+ * {@link RateLimiter}, and its batches are kept in a lane of their own, which workers serve in turns. Hence, a domain
+ * throttling or slowing down the sender only delays messages destined to itself. The number of batches of the same
+ * domain being dispatched at once can be capped, so that such a domain can't occupy every worker either.
+ *
+ * <p>Messages belong to a {@link MailPriority} class, which is either passed along with them or taken from their
+ * header. Every class is scheduled by a {@link RateLimiter} of its own, so that transactional mail doesn't wait for the
+ * schedule of any bulk mail queued before. Whenever batches of several classes are due, workers serve them according to
+ * the weight of their class.
+ *
+ * <p>Optionally, messages sent in small portions are coalesced. Such a portion lingers for a short while until further
+ * messages of the same kind, priority class and domain join it, or until the batch size is reached. Hence, a series of
+ * single messages occupies a single SMTP session and rate limit reservation instead of one each.
+ *
+ * <p>Messages sent {@link AsyncJavaMailSender asynchronously} are tracked by a {@link CompletableFuture}, which
+ * completes once every batch they were partitioned into has been dispatched by a worker.
+ *
+ * <p>Optionally, a {@link FileMailSpool} keeps every accepted batch on disk until it is dispatched. Batches left over
+ * by a crash or restart are recovered once the spool is configured. If the spool is mapped, queued messages are
+ * replaced by their spooled counterpart, whose content remains in the memory-mapped segment. Hence, the heap only
+ * grows with the number of queued messages, but not with their size.
+ *
+ * <p>A batch failing to be dispatched doesn't affect any other batch. Transient failures, e.g. a throttling or
+ * unreachable mail server, are retried with exponential backoff if a {@link RetryPolicy} permits. Batches failing
+ * permanently or running out of retries are handed over to the {@link DeadLetterSink}, if any. If the actual sender
+ * reports which messages failed, only those are retried or dead-lettered, while the messages sent already are not sent
+ * again.
+ *
+ * <p>Once {@link #shutdown() shut down}, the sender rejects any further messages, but still dispatches batches due
+ * within a drain timeout. Batches left over afterwards remain in the spool, if any, or are handed over to the
+ * {@link UnsentMailSink}.
+ *
  * @author Vincent Nadoll
  */
 @Slf4j
-public class ConcurrentJavaMailSender extends JavaMailSenderDecorator implements JavaMailSender {
+public class ConcurrentJavaMailSender extends JavaMailSenderDecorator implements AsyncJavaMailSender {
 
-    @Getter
     private int batchSize = 20;
 
     @Getter
-    @Setter
     private int cooldownMillis = 20 * 1000;
 
-    private final BlockingQueue<Batch> queue;
-    private final AtomicLong delay;
+    /**
+     * Schedules {@link MailPriority#TRANSACTIONAL transactional} batches, which includes every batch without priority.
+     */
+    @Getter
+    private RateLimiter rateLimiter = new CooldownRateLimiter(cooldownMillis);
+
+    private final Map<MailPriority, RateLimiter> priorityRateLimiters = new ConcurrentHashMap<>();
+
+    /**
+     * Schedules every priority class other than {@link MailPriority#TRANSACTIONAL} without a rate limiter of its own
+     * one cooldown after its predecessor.
+     */
+    private final Map<MailPriority, RateLimiter> cooldownRateLimiters = new ConcurrentHashMap<>();
+
+    /**
+     * Adapts batch size and cooldown to the feedback of the mail server, {@code null} if both are fixed.
+     */
+    @Getter
+    private AdaptiveRateController rateController;
+
+    @Getter
+    private BackpressurePolicy backpressurePolicy = BackpressurePolicy.BLOCK;
+
+    /**
+     * Time in milliseconds a sending thread waits for the queue to have room, if the {@link BackpressurePolicy#BLOCK}
+     * policy applies. Any non-positive value waits indefinitely.
+     */
+    @Getter
+    @Setter
+    private long blockTimeoutMillis;
+
+    /**
+     * Keeps the batches in the configured {@link FileMailSpool}, {@code null} if they are kept in memory only.
+     */
+    private BatchSpooler spooler;
+
+    /**
+     * Time in milliseconds the sender waits on {@link #shutdown() shutdown} for due batches to be dispatched. Batches
+     * due later are not waited for.
+     */
+    @Getter
+    @Setter
+    private long drainTimeoutMillis = 30 * 1000;
+
+    /**
+     * Takes over the messages of batches left over on {@link #shutdown() shutdown}, {@code null} if they are
+     * discarded.
+     */
+    @Getter
+    @Setter
+    private UnsentMailSink unsentMailSink;
+
+    @Getter
+    private volatile boolean shutdown;
+
+    /**
+     * Time in milliseconds messages of a call smaller than the batch size wait for further messages to be merged
+     * with. The merged batch is queued once the batch size is reached, by the calling thread, or once the time expired,
+     * by a timer thread. In the latter case, the calling thread isn't notified of any failure to queue the batch,
+     * unless it sent asynchronously. Any non-positive value disables coalescing.
+     */
+    @Getter
+    @Setter
+    private long lingerMillis;
+
+    private final Map<BatchKey, LingeringBatch> lingering = new HashMap<>();
+    private ScheduledExecutorService lingerScheduler;
+
+    /**
+     * Whether batches are partitioned by the domain of their recipients. Messages whose recipients are unknown before
+     * they are prepared share a lane, which is scheduled by the sender's {@link RateLimiter}.
+     */
+    @Getter
+    private boolean partitionedByDomain;
+
+    /**
+     * Creates the {@link RateLimiter} of a domain once a message is destined to it for the first time. If
+     * {@code null}, every domain is scheduled by a {@link CooldownRateLimiter} of the configured cooldown.
+     */
+    @Getter
+    private Supplier<? extends RateLimiter> domainRateLimiterFactory;
+
+    private final Map<MailPriority, Map<String, RateLimiter>> domainRateLimiters = new ConcurrentHashMap<>();
+
+    @Getter
+    private final int workers;
+
+    private final BatchQueue queue;
+    private final BatchSettler settler;
+    private final ExecutorService threadPool;
+    private final boolean ownsThreadPool;
+    private final JavaMailSender callerDispatcher;
+
+    /**
+     * Threads currently running a worker. Once stopped, no further worker is started.
+     */
+    private final Set<Thread> workerThreads = new HashSet<>();
+    private boolean workersStopped;
+    private final List<BatchListener> listeners = new CopyOnWriteArrayList<>();
+    private final BatchListener dispatchListener = new CompositeListener();
 
     ConcurrentJavaMailSender(JavaMailSender delegate,
                              ExecutorService threadPool) {
+        this(delegate, threadPool, 1);
+    }
+
+    ConcurrentJavaMailSender(JavaMailSender delegate,
+                             ExecutorService threadPool,
+                             int workers) {
+        this(delegate, threadPool, workers, () -> delegate);
+    }
+
+    /**
+     * Creates a new sender whose workers don't dispatch through the delegate itself but through their own sender.
+     *
+     * @param dispatchers supplies the sender each worker dispatches its batches with
+     */
+    ConcurrentJavaMailSender(JavaMailSender delegate,
+                             ExecutorService threadPool,
+                             int workers,
+                             Supplier<? extends JavaMailSender> dispatchers) {
+        this(delegate, threadPool, workers, dispatchers, delegate);
+    }
+
+    /**
+     * Creates a new sender which doesn't dispatch through the delegate itself at all, neither on its workers nor on the
+     * calling thread.
+     *
+     * @param dispatchers      supplies the sender each worker dispatches its batches with
+     * @param callerDispatcher the sender to dispatch batches with on the calling thread, if the
+     *                         {@link BackpressurePolicy#CALLER_RUNS} policy applies
+     */
+    ConcurrentJavaMailSender(JavaMailSender delegate,
+                             ExecutorService threadPool,
+                             int workers,
+                             Supplier<? extends JavaMailSender> dispatchers,
+                             JavaMailSender callerDispatcher) {
+        this(delegate, threadPool, workers, dispatchers, callerDispatcher, false);
+    }
+
+    /**
+     * Creates a new sender like {@link #ConcurrentJavaMailSender(JavaMailSender, ExecutorService, int, Supplier,
+     * JavaMailSender)}, which may own its thread pool.
+     *
+     * @param dispatchers      supplies the sender each worker dispatches its batches with
+     * @param callerDispatcher the sender to dispatch batches with on the calling thread, if the
+     *                         {@link BackpressurePolicy#CALLER_RUNS} policy applies
+     * @param ownsThreadPool   whether the thread pool was created for this sender and is to be shut down along with it
+     */
+    ConcurrentJavaMailSender(JavaMailSender delegate,
+                             ExecutorService threadPool,
+                             int workers,
+                             Supplier<? extends JavaMailSender> dispatchers,
+                             JavaMailSender callerDispatcher,
+                             boolean ownsThreadPool) {
         super(delegate);
-        this.queue = new DelayQueue<>();
-        this.delay = new AtomicLong(System.currentTimeMillis());
+        Assert.isTrue(workers > 0, "Number of workers must be a positive integer");
+
+        this.workers = workers;
+        this.queue = new BatchQueue();
+        this.settler = new BatchSettler(queue, this::rateLimiter, dispatchListener);
+        this.threadPool = threadPool;
+        this.ownsThreadPool = ownsThreadPool;
+        this.callerDispatcher = callerDispatcher;
 
-        startConsumer(threadPool, delegate);
+        startConsumers(threadPool, dispatchers);
+    }
+
+    /**
+     * Returns the current batch size.
+     *
+     * @return the maximum number of messages per batch, as adapted by the {@link AdaptiveRateController} if configured
+     */
+    public int getBatchSize() {
+        return rateController == null ? batchSize : rateController.getBatchSize();
     }
 
     public void setBatchSize(int batchSize) {
@@ -57,9 +277,432 @@ public class ConcurrentJavaMailSender extends JavaMailSenderDecorator implements
         this.batchSize = batchSize;
     }
 
-    private void startConsumer(ExecutorService threadPool, JavaMailSender delegate) {
-        BatchConsumer consumer = new BatchConsumer(queue, delegate);
-        threadPool.execute(consumer);
+    /**
+     * Schedules every batch one cooldown after its predecessor. Shorthand for configuring a
+     * {@link CooldownRateLimiter}, which replaces any previously configured {@link RateLimiter} or
+     * {@link AdaptiveRateController}. Rate limiters configured for other priority classes are kept, whereas the rate
+     * limiters of domains are recreated once a message is destined to them again.
+     *
+     * @param cooldownMillis the time in milliseconds between two batches
+     */
+    public void setCooldownMillis(int cooldownMillis) {
+        detachRateController();
+        this.cooldownMillis = cooldownMillis;
+        this.rateLimiter = new CooldownRateLimiter(cooldownMillis);
+        this.cooldownRateLimiters.clear();
+        this.domainRateLimiters.clear();
+    }
+
+    /**
+     * Replaces the {@link RateLimiter} scheduling {@link MailPriority#TRANSACTIONAL transactional} batches. A
+     * configured {@link AdaptiveRateController} is detached, so that the configured batch size applies again.
+     *
+     * @param rateLimiter the rate limiter scheduling the batches
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        Assert.notNull(rateLimiter, "Rate limiter must not be null");
+        detachRateController();
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Replaces the {@link RateLimiter} scheduling batches of the given priority class. Unless replaced, every class
+     * other than {@link MailPriority#TRANSACTIONAL} is scheduled by a {@link CooldownRateLimiter} of the configured
+     * cooldown.
+     *
+     * @param priority    the priority class to be scheduled
+     * @param rateLimiter the rate limiter scheduling the batches of the class
+     */
+    public void setRateLimiter(MailPriority priority, RateLimiter rateLimiter) {
+        Assert.notNull(priority, "Priority must not be null");
+        if (MailPriority.TRANSACTIONAL == priority) {
+            setRateLimiter(rateLimiter);
+            return;
+        }
+
+        Assert.notNull(rateLimiter, "Rate limiter must not be null");
+        priorityRateLimiters.put(priority, rateLimiter);
+    }
+
+    /**
+     * Lets the given controller adapt the batch size and the cooldown to the feedback of the mail server. The
+     * controller replaces the sender's {@link RateLimiter} and overrides the configured batch size. Bulk mail and
+     * domains scheduled by rate limiters of their own are only affected by the adapted batch size.
+     *
+     * @param rateController the controller to adapt batch size and cooldown
+     */
+    public void setRateController(AdaptiveRateController rateController) {
+        Assert.notNull(rateController, "Rate controller must not be null");
+        Assert.state(this.rateController == null, "Rate controller is already configured");
+        this.rateController = rateController;
+        this.rateLimiter = rateController;
+        addListener(rateController);
+    }
+
+    private void detachRateController() {
+        if (rateController != null) {
+            listeners.remove(rateController);
+            rateController = null;
+        }
+    }
+
+    /**
+     * Partitions batches by the domain of their recipients. Since batches recovered from the spool are partitioned
+     * as they are recovered, partitioning can't be changed once a spool is configured.
+     *
+     * @param partitionedByDomain whether batches are partitioned by the domain of their recipients
+     */
+    public void setPartitionedByDomain(boolean partitionedByDomain) {
+        Assert.state(spooler == null || this.partitionedByDomain == partitionedByDomain,
+            "Domain partitioning must be configured before the spool");
+        this.partitionedByDomain = partitionedByDomain;
+    }
+
+    /**
+     * Replaces the factory of domain rate limiters. Domains already known are scheduled by a rate limiter of the given
+     * factory once a message is destined to them again.
+     *
+     * @param domainRateLimiterFactory the factory creating a rate limiter per domain, {@code null} to schedule every
+     *                                 domain by a {@link CooldownRateLimiter} of the configured cooldown
+     */
+    public void setDomainRateLimiterFactory(Supplier<? extends RateLimiter> domainRateLimiterFactory) {
+        this.domainRateLimiterFactory = domainRateLimiterFactory;
+        this.domainRateLimiters.clear();
+    }
+
+    /**
+     * Returns the rate limiter of the given priority class.
+     *
+     * @param priority the priority class whose rate limiter is to be returned
+     * @return the rate limiter scheduling batches of the given priority class
+     */
+    public RateLimiter getRateLimiter(MailPriority priority) {
+        if (MailPriority.TRANSACTIONAL == priority) {
+            return rateLimiter;
+        }
+        RateLimiter rateLimiter = priorityRateLimiters.get(priority);
+        return rateLimiter != null
+            ? rateLimiter
+            : cooldownRateLimiters.computeIfAbsent(priority, key -> new CooldownRateLimiter(cooldownMillis));
+    }
+
+    /**
+     * Returns the retry policy of failed batches.
+     *
+     * @return the policy deciding whether failed batches are attempted once more
+     */
+    public RetryPolicy getRetryPolicy() {
+        return settler.getRetryPolicy();
+    }
+
+    /**
+     * Decides whether failed batches are attempted once more. Unless configured otherwise, every batch is attempted
+     * only once.
+     *
+     * @param retryPolicy the policy deciding whether failed batches are retried
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        settler.setRetryPolicy(retryPolicy);
+    }
+
+    /**
+     * Returns the dead letter sink of batches which failed for the last time.
+     *
+     * @return the sink taking over the messages of batches which failed for the last time, {@code null} if there is
+     *     none
+     */
+    public DeadLetterSink getDeadLetterSink() {
+        return settler.getDeadLetterSink();
+    }
+
+    /**
+     * Takes over the messages of batches which failed for the last time. Unless configured, they are discarded.
+     *
+     * @param deadLetterSink the sink taking over the messages, {@code null} to discard them
+     */
+    public void setDeadLetterSink(DeadLetterSink deadLetterSink) {
+        settler.setDeadLetterSink(deadLetterSink);
+    }
+
+    public void setBackpressurePolicy(BackpressurePolicy backpressurePolicy) {
+        Assert.notNull(backpressurePolicy, "Backpressure policy must not be null");
+        this.backpressurePolicy = backpressurePolicy;
+    }
+
+    /**
+     * Returns the message capacity of the queue.
+     *
+     * @return the maximum number of queued messages. Any non-positive value means unbounded
+     */
+    public int getQueueCapacity() {
+        return queue.getMessageCapacity();
+    }
+
+    /**
+     * Limits the number of queued messages. The {@link BackpressurePolicy} decides what happens to any batch exceeding
+     * the capacity. Any non-positive value leaves the queue unbounded.
+     *
+     * @param queueCapacity maximum number of queued messages
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        queue.setMessageCapacity(queueCapacity);
+    }
+
+    /**
+     * Returns the byte capacity of the queue.
+     *
+     * @return the maximum estimated size of all queued messages in bytes. Any non-positive value means unbounded
+     */
+    public long getQueueCapacityBytes() {
+        return queue.getByteCapacity();
+    }
+
+    /**
+     * Limits the estimated size of all queued messages. Messages of unknown size are written out once to be measured.
+     * Any non-positive value leaves the queue unbounded.
+     *
+     * @param queueCapacityBytes maximum size of all queued messages in bytes
+     */
+    public void setQueueCapacityBytes(long queueCapacityBytes) {
+        queue.setByteCapacity(queueCapacityBytes);
+    }
+
+    /**
+     * Returns the concurrency limit per recipient domain.
+     *
+     * @return the maximum number of batches of the same domain being dispatched at once. Any non-positive value means
+     *     unlimited
+     */
+    public int getMaxConcurrencyPerDomain() {
+        return queue.getMaxInFlightPerDomain();
+    }
+
+    /**
+     * Limits the number of batches of the same domain being dispatched at once, if batches are partitioned by domain.
+     * Any non-positive value leaves the concurrency unlimited.
+     *
+     * @param maxConcurrencyPerDomain maximum number of batches per domain being dispatched at once
+     */
+    public void setMaxConcurrencyPerDomain(int maxConcurrencyPerDomain) {
+        queue.setMaxInFlightPerDomain(maxConcurrencyPerDomain);
+    }
+
+    /**
+     * Returns the weight of the given priority class.
+     *
+     * @param priority the priority class whose weight is to be returned
+     * @return the share of dispatches the given class is granted while other classes hold due batches as well
+     */
+    public int getPriorityWeight(MailPriority priority) {
+        return queue.getWeight(priority);
+    }
+
+    /**
+     * Weights the given priority class against any other. A class of weight 4 is served four times as often as a class
+     * of weight 1, as long as both hold due batches. A class whose batches are due on their own is served right away,
+     * no matter its weight.
+     *
+     * @param priority the priority class to be weighted
+     * @param weight   the share of dispatches granted to the class
+     */
+    public void setPriorityWeight(MailPriority priority, int weight) {
+        Assert.notNull(priority, "Priority must not be null");
+        Assert.isTrue(weight > 0, "Weight must be a positive integer");
+        queue.setWeight(priority, weight);
+    }
+
+    /**
+     * Returns the number of queued batches.
+     *
+     * @return the number of batches waiting to be dispatched
+     */
+    public int getQueuedBatches() {
+        return queue.size();
+    }
+
+    /**
+     * Returns the number of queued messages.
+     *
+     * @return the number of messages waiting to be dispatched
+     */
+    public int getQueuedMessages() {
+        return queue.messageCount();
+    }
+
+    /**
+     * Sizes are only estimated while the queue is bounded by size, {@code 0} is returned otherwise.
+     *
+     * @return the estimated size of all messages waiting to be dispatched in bytes
+     */
+    public long getQueuedBytes() {
+        return queue.byteCount();
+    }
+
+    /**
+     * Keeps every batch in the given spool until it is dispatched, so that no accepted batch gets lost on restart or
+     * crash. Batches left over by a previous run are recovered and enqueued right away, regardless of the queue's
+     * capacity, since they were accepted before. Since only MIME messages can be spooled, any other messages are
+     * converted before they are enqueued. Batches the queue rejects are removed from the spool again. Recovered batches
+     * are partitioned by domain as {@link #setPartitionedByDomain(boolean) configured} before.
+     *
+     * @param spool the spool to keep the batches in
+     */
+    public void setSpool(FileMailSpool spool) {
+        Assert.notNull(spool, "Spool must not be null");
+        Assert.state(this.spooler == null, "Spool is already configured");
+        this.spooler = new BatchSpooler(spool, getDelegate()::createMimeMessage);
+        this.settler.setSpooler(spooler);
+
+        addListener(spooler);
+        Arrays.stream(spooler.recover(partitionedByDomain, this::rateLimiter)).forEach(queue::requeue);
+    }
+
+    /**
+     * Returns the spool of this sender.
+     *
+     * @return the spool batches are kept in until they are dispatched, {@code null} if there is none
+     */
+    public FileMailSpool getSpool() {
+        return spooler == null ? null : spooler.getSpool();
+    }
+
+    /**
+     * Shuts this sender down gracefully. From now on, any further messages are rejected, while lingering ones are
+     * queued right away. Batches due within the {@link #setDrainTimeoutMillis(long) drain timeout} are still
+     * dispatched before the workers are stopped. Their thread pool is only shut down if it was created for this sender,
+     * whereas a thread pool passed by the caller is left running. Batches left over are kept in the spool, if they were
+     * spooled, or handed over to the {@link UnsentMailSink} otherwise. Subsequent calls have no effect.
+     */
+    public void shutdown() {
+        List<LingeringBatch> lingered;
+        synchronized (lingering) {
+            if (shutdown) {
+                return;
+            }
+
+            shutdown = true;
+            lingered = new ArrayList<>(lingering.values());
+            lingered.forEach(batch -> batch.expiry.cancel(false));
+            lingering.clear();
+            if (lingerScheduler != null) {
+                lingerScheduler.shutdownNow();
+            }
+        }
+
+        for (LingeringBatch batch : lingered) {
+            try {
+                flush(batch);
+            } catch (MailException e) {
+                if (log.isErrorEnabled()) log.error("Could not enqueue {} lingering message(s)", batch.messages.size(),
+                    e);
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + drainTimeoutMillis;
+        try {
+            if (!queue.awaitDrained(drainTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                if (log.isWarnEnabled()) log.warn("Could not drain the queue within {}ms", drainTimeoutMillis);
+            }
+
+            stopWorkers();
+            long remaining = Math.max(deadline - System.currentTimeMillis(), 0);
+            if (!awaitWorkers(remaining)) {
+                if (log.isWarnEnabled()) log.warn("Workers are still dispatching, their batches may get lost");
+            }
+        } catch (InterruptedException e) {
+            stopWorkers();
+            Thread.currentThread().interrupt();
+        }
+        if (ownsThreadPool) {
+            threadPool.shutdown();
+        }
+
+        List<Batch> leftovers = queue.drainAll();
+        if (!leftovers.isEmpty() && log.isInfoEnabled()) log.info("{} batch(es) left over", leftovers.size());
+        leftovers.forEach(this::leave);
+    }
+
+    /**
+     * Hands the messages of the given batch, which was left over on shutdown, over to the {@link UnsentMailSink},
+     * unless the batch is kept in the spool to be recovered on startup.
+     */
+    private void leave(Batch batch) {
+        if (batch instanceof SpooledBatch) {
+            if (log.isInfoEnabled()) log.info("Keeping {} in the spool", batch);
+        } else if (unsentMailSink == null) {
+            if (log.isErrorEnabled()) log.error("Discarding {}", batch);
+        } else {
+            try {
+                unsentMailSink.accept(batch.getMessages());
+                if (log.isInfoEnabled()) log.info("Handed over {} to the unsent mail sink", batch);
+            } catch (Exception e) {
+                if (log.isErrorEnabled()) log.error("Could not hand over {}, discarding it", batch, e);
+            }
+        }
+
+        batch.getCompletion().completeExceptionally(new MailQueueException("Sender was shut down before dispatching "
+            + batch));
+    }
+
+    void addListener(BatchListener listener) {
+        listeners.add(listener);
+    }
+
+    private void startConsumers(ExecutorService threadPool, Supplier<? extends JavaMailSender> dispatchers) {
+        for (int i = 0; i < workers; i++) {
+            BatchConsumer consumer = new BatchConsumer(queue, dispatchers.get(), dispatchListener);
+            threadPool.execute(() -> runConsumer(consumer));
+        }
+    }
+
+    /**
+     * Runs the given consumer on the current thread, which is registered to be interrupted once the workers are
+     * stopped. Since the thread pool may be shared, it is the only way to stop the consumer.
+     */
+    private void runConsumer(BatchConsumer consumer) {
+        Thread thread = Thread.currentThread();
+        synchronized (workerThreads) {
+            if (workersStopped) {
+                return;
+            }
+            workerThreads.add(thread);
+        }
+
+        try {
+            consumer.run();
+        } finally {
+            synchronized (workerThreads) {
+                workerThreads.remove(thread);
+                workerThreads.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Interrupts every running worker, which then leaves the queue once its current batch is dispatched.
+     */
+    private void stopWorkers() {
+        synchronized (workerThreads) {
+            workersStopped = true;
+            workerThreads.forEach(Thread::interrupt);
+        }
+    }
+
+    /**
+     * Waits until every worker left the queue.
+     *
+     * @return {@code true} if every worker left in time
+     */
+    private boolean awaitWorkers(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (workerThreads) {
+            long remaining = timeoutMillis;
+            while (!workerThreads.isEmpty() && remaining > 0) {
+                workerThreads.wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+            return workerThreads.isEmpty();
+        }
     }
 
     @Override
@@ -69,7 +712,7 @@ public class ConcurrentJavaMailSender extends JavaMailSenderDecorator implements
 
     @Override
     public void send(MimeMessage... mimeMessages) throws MailException {
-        doSend(mimeMessages);
+        doSend(mimeMessages, null);
     }
 
     @Override
@@ -79,7 +722,7 @@ public class ConcurrentJavaMailSender extends JavaMailSenderDecorator implements
 
     @Override
     public void send(MimeMessagePreparator... mimeMessagePreparators) throws MailException {
-        doSend(mimeMessagePreparators);
+        doSend(mimeMessagePreparators, null);
     }
 
     @Override
@@ -89,40 +732,291 @@ public class ConcurrentJavaMailSender extends JavaMailSenderDecorator implements
 
     @Override
     public void send(SimpleMailMessage... simpleMessages) throws MailException {
-        doSend(simpleMessages);
+        doSend(simpleMessages, null);
+    }
+
+    /**
+     * Sends the given messages in the given priority class, regardless of their {@value MailPriority#HEADER} header.
+     *
+     * @param priority     the priority class of the messages
+     * @param mimeMessages the messages to be sent
+     * @throws MailException if the messages could not be queued
+     */
+    public void send(MailPriority priority, MimeMessage... mimeMessages) throws MailException {
+        doSend(mimeMessages, priority);
+    }
+
+    /**
+     * Sends the given messages in the given priority class.
+     *
+     * @param priority               the priority class of the messages
+     * @param mimeMessagePreparators the preparators of the messages to be sent
+     * @throws MailException if the messages could not be queued
+     */
+    public void send(MailPriority priority, MimeMessagePreparator... mimeMessagePreparators) throws MailException {
+        doSend(mimeMessagePreparators, priority);
+    }
+
+    /**
+     * Sends the given messages in the given priority class.
+     *
+     * @param priority       the priority class of the messages
+     * @param simpleMessages the messages to be sent
+     * @throws MailException if the messages could not be queued
+     */
+    public void send(MailPriority priority, SimpleMailMessage... simpleMessages) throws MailException {
+        doSend(simpleMessages, priority);
+    }
+
+    @Override
+    public CompletableFuture<Void> sendAsync(MimeMessage... mimeMessages) {
+        return doSendAsync(mimeMessages, null);
+    }
+
+    @Override
+    public CompletableFuture<Void> sendAsync(MimeMessagePreparator... mimeMessagePreparators) {
+        return doSendAsync(mimeMessagePreparators, null);
+    }
+
+    @Override
+    public CompletableFuture<Void> sendAsync(SimpleMailMessage... simpleMessages) {
+        return doSendAsync(simpleMessages, null);
+    }
+
+    /**
+     * Sends the given messages asynchronously in the given priority class, regardless of their
+     * {@value MailPriority#HEADER} header.
+     *
+     * @param priority     the priority class of the messages
+     * @param mimeMessages the messages to be sent
+     * @return a future completing once every message was dispatched
+     */
+    public CompletableFuture<Void> sendAsync(MailPriority priority, MimeMessage... mimeMessages) {
+        return doSendAsync(mimeMessages, priority);
     }
 
-    private void doSend(Object[] messages) throws MailException {
-        resetDelayIfQueueIsEmpty();
+    /**
+     * Sends the given messages asynchronously in the given priority class.
+     *
+     * @param priority               the priority class of the messages
+     * @param mimeMessagePreparators the preparators of the messages to be sent
+     * @return a future completing once every message was dispatched
+     */
+    public CompletableFuture<Void> sendAsync(MailPriority priority, MimeMessagePreparator... mimeMessagePreparators) {
+        return doSendAsync(mimeMessagePreparators, priority);
+    }
+
+    /**
+     * Sends the given messages asynchronously in the given priority class.
+     *
+     * @param priority       the priority class of the messages
+     * @param simpleMessages the messages to be sent
+     * @return a future completing once every message was dispatched
+     */
+    public CompletableFuture<Void> sendAsync(MailPriority priority, SimpleMailMessage... simpleMessages) {
+        return doSendAsync(simpleMessages, priority);
+    }
 
-        Batch[] batches = createBatches(messages);
-        enqueue(batches);
+    private CompletableFuture<Void> doSendAsync(Object[] messages, MailPriority priority) {
+        try {
+            return CompletableFuture.allOf(doSend(messages, priority));
+        } catch (MailException e) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
     }
 
-    private void resetDelayIfQueueIsEmpty() {
-        long time = System.currentTimeMillis();
-        int queueSize = queue.size();
-        long delay = this.delay.get();
+    /**
+     * Partitions the given messages into batches and enqueues them.
+     *
+     * @param priority the priority class of all messages, {@code null} to take it from every single message
+     * @return the futures completing once the respective batch was dispatched
+     */
+    private CompletableFuture<?>[] doSend(Object[] messages, MailPriority priority) throws MailException {
+        if (shutdown) {
+            throw new MailQueueException("Sender is shut down");
+        }
+        if (log.isTraceEnabled()) log.trace("Queue length is: {}", queue.size());
 
-        if (log.isTraceEnabled()) {
-            log.trace("Queue length is: {}", queueSize);
-            log.trace("Delay is at: {}", Instant.ofEpochMilli(delay).atZone(ZoneId.systemDefault()).toLocalDateTime());
-            log.trace("Cooldown expires in: {}", (delay + cooldownMillis - time));
+        List<Batch> batches = new ArrayList<>();
+        List<CompletableFuture<Void>> completions = new ArrayList<>();
+        for (Map.Entry<BatchKey, Object[]> group : group(messages, priority).entrySet()) {
+            if (lingerMillis > 0 && group.getValue().length < getBatchSize()) {
+                completions.add(coalesce(group.getKey(), group.getValue()));
+            } else {
+                createBatches(group.getKey(), group.getValue()).forEach(batches::add);
+            }
         }
 
-        if (queueSize == 0 && delay + cooldownMillis < time) {
-            if (log.isTraceEnabled()) log.trace("Resetting delay");
-            this.delay.set(time);
+        enqueue(batches.toArray(new Batch[0]));
+        batches.forEach(batch -> completions.add(batch.getCompletion()));
+        return completions.toArray(new CompletableFuture<?>[0]);
+    }
+
+    /**
+     * Groups the given messages by their key while preserving their order. Every group is an array of the same type as
+     * the given one.
+     */
+    private Map<BatchKey, Object[]> group(Object[] messages, MailPriority priority) {
+        Map<BatchKey, List<Object>> groups = new LinkedHashMap<>();
+        for (Object message : messages) {
+            BatchKey key = new BatchKey(messages.getClass(),
+                priority == null ? MailPriority.of(message) : priority,
+                partitionedByDomain ? RecipientDomains.of(message) : null);
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(message);
         }
+
+        Map<BatchKey, Object[]> typedGroups = new LinkedHashMap<>();
+        groups.forEach((key, group) -> typedGroups.put(key, group.toArray(Arrays.copyOf(messages, 0))));
+        return typedGroups;
     }
 
-    private Batch[] createBatches(Object[] original) {
-        return partition(original, batchSize)
+    private Stream<Batch> createBatches(BatchKey key, Object[] original) {
+        RateLimiter limiter = rateLimiter(key.getPriority(), key.getDomain());
+        return partition(original, getBatchSize())
             .map(messages -> {
-                long time = delay.getAndAdd(cooldownMillis);
-                return new Batch(time, messages);
-            })
-            .toArray(Batch[]::new);
+                long time = limiter.reserve(messages.length);
+                return createBatch(time, messages, key.getDomain(), key.getPriority());
+            });
+    }
+
+    /**
+     * Adds the given messages to the lingering batch of the same key, which is flushed right away once it reaches the
+     * batch size.
+     *
+     * @return the future completing once the lingering batch was dispatched
+     */
+    private CompletableFuture<Void> coalesce(BatchKey key, Object[] messages) throws MailException {
+        LingeringBatch full = null;
+        CompletableFuture<Void> completion;
+        synchronized (lingering) {
+            if (shutdown) {
+                throw new MailQueueException("Sender is shut down");
+            }
+
+            LingeringBatch batch = lingering.get(key);
+            if (batch == null) {
+                LingeringBatch created = new LingeringBatch(key, Arrays.copyOf(messages, 0));
+                created.expiry = lingerScheduler().schedule(() -> expire(created), lingerMillis, TimeUnit.MILLISECONDS);
+                lingering.put(key, created);
+                batch = created;
+            }
+
+            batch.messages.addAll(Arrays.asList(messages));
+            completion = batch.completion;
+            if (batch.messages.size() >= getBatchSize()) {
+                lingering.remove(key);
+                batch.expiry.cancel(false);
+                full = batch;
+            }
+        }
+
+        if (full != null) {
+            flush(full);
+        }
+        return completion;
+    }
+
+    private void expire(LingeringBatch batch) {
+        synchronized (lingering) {
+            if (!lingering.remove(batch.key, batch)) {
+                return;
+            }
+        }
+
+        try {
+            flush(batch);
+        } catch (MailException e) {
+            if (log.isErrorEnabled()) log.error("Could not enqueue {} lingering message(s)", batch.messages.size(), e);
+        }
+    }
+
+    private void flush(LingeringBatch lingeringBatch) throws MailException {
+        CompletableFuture<Void> completion = lingeringBatch.completion;
+        try {
+            Batch[] batches = createBatches(lingeringBatch.key, lingeringBatch.messages.toArray(lingeringBatch.type))
+                .toArray(Batch[]::new);
+            enqueue(batches);
+
+            CompletableFuture.allOf(Arrays.stream(batches).map(Batch::getCompletion).toArray(CompletableFuture[]::new))
+                .whenComplete((result, e) -> {
+                    if (e == null) {
+                        completion.complete(null);
+                    } else {
+                        completion.completeExceptionally(e);
+                    }
+                });
+        } catch (MailException e) {
+            completion.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private ScheduledExecutorService lingerScheduler() {
+        if (lingerScheduler == null) {
+            lingerScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "mail-linger");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return lingerScheduler;
+    }
+
+    /**
+     * Returns the rate limiter of the given priority class and domain, creating it if necessary.
+     *
+     * @return the rate limiter scheduling batches of the given priority class destined to the given domain
+     */
+    private RateLimiter rateLimiter(MailPriority priority, String domain) {
+        if (domain == null) {
+            return getRateLimiter(priority);
+        }
+
+        return domainRateLimiters.computeIfAbsent(priority, key -> new ConcurrentHashMap<>())
+            .computeIfAbsent(domain, key -> domainRateLimiterFactory == null
+                ? new CooldownRateLimiter(cooldownMillis)
+                : domainRateLimiterFactory.get());
+    }
+
+    private Batch createBatch(long time, Object[] messages, String domain, MailPriority priority)
+        throws MailException {
+        if (spooler == null) {
+            return new Batch(time, messages, domain, priority);
+        }
+
+        return spooler.spool(time, toMimeMessages(messages), domain, priority);
+    }
+
+    private MimeMessage[] toMimeMessages(Object[] messages) throws MailException {
+        if (messages instanceof MimeMessage[]) {
+            return (MimeMessage[]) messages;
+        }
+
+        MimeMessage[] mimeMessages = new MimeMessage[messages.length];
+        for (int i = 0; i < messages.length; i++) {
+            MimeMessage mimeMessage = createMimeMessage();
+            if (messages[i] instanceof SimpleMailMessage) {
+                ((SimpleMailMessage) messages[i]).copyTo(new MimeMailMessage(mimeMessage));
+            } else {
+                prepare((MimeMessagePreparator) messages[i], mimeMessage);
+            }
+            mimeMessages[i] = mimeMessage;
+        }
+        return mimeMessages;
+    }
+
+    private static void prepare(MimeMessagePreparator preparator, MimeMessage mimeMessage) throws MailException {
+        try {
+            preparator.prepare(mimeMessage);
+        } catch (MailException e) {
+            throw e;
+        } catch (MessagingException e) {
+            throw new MailParseException(e);
+        } catch (Exception e) {
+            throw new MailPreparationException(e);
+        }
     }
 
     private static <T> Stream<T[]> partition(T[] original, int batchSize) {
@@ -131,15 +1025,153 @@ public class ConcurrentJavaMailSender extends JavaMailSenderDecorator implements
             .mapToObj(i -> Arrays.copyOfRange(original, i, Math.min(i + batchSize, original.length)));
     }
 
+    /**
+     * Enqueues the given batches in order. Once a batch is rejected, the remaining ones are dropped as well, so that
+     * none of them is kept in the spool, while the caller is told that its messages were not accepted.
+     */
     private void enqueue(Batch[] batches) throws MailException {
-        for (Batch batch : batches) {
+        for (int i = 0; i < batches.length; i++) {
             try {
-                if (log.isDebugEnabled()) log.debug("Enqueueing {}", batch);
-                queue.put(batch);
+                if (log.isDebugEnabled()) log.debug("Enqueueing {}", batches[i]);
+                enqueue(batches[i]);
             } catch (InterruptedException e) {
-                if (log.isErrorEnabled()) log.error("An error occurred while waiting for {} to be enqueued.", batch);
+                if (log.isErrorEnabled()) log.error("An error occurred while waiting for {} to be enqueued.",
+                    batches[i]);
+                drop(batches, i);
+                Thread.currentThread().interrupt();
                 throw new MailQueueException("Could not enqueue email batch", e);
+            } catch (MailException e) {
+                drop(batches, i + 1);
+                throw e;
+            }
+        }
+    }
+
+    private void enqueue(Batch batch) throws InterruptedException, MailException {
+        switch (backpressurePolicy) {
+            case BLOCK:
+                if (blockTimeoutMillis <= 0) {
+                    queue.put(batch);
+                } else if (!queue.offer(batch, blockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    dispatchListener.onDropped(batch);
+                    throw new MailQueueException("Timed out waiting for the queue to accept " + batch);
+                }
+                break;
+            case FAIL:
+                if (!queue.offer(batch)) {
+                    dispatchListener.onDropped(batch);
+                    throw new MailQueueException("Queue is full, rejected " + batch);
+                }
+                break;
+            case DROP_OLDEST:
+                while (!queue.offer(batch)) {
+                    Batch evicted = queue.evict();
+                    if (log.isWarnEnabled()) log.warn("Queue is full, dropped {}", evicted);
+                    dispatchListener.onDropped(evicted);
+                }
+                break;
+            case CALLER_RUNS:
+                if (!queue.offer(batch)) {
+                    if (log.isDebugEnabled()) log.debug("Queue is full, dispatching {} on the calling thread", batch);
+                    dispatch(batch);
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unsupported backpressure policy " + backpressurePolicy);
+        }
+    }
+
+    private void drop(Batch[] batches, int from) {
+        for (int i = from; i < batches.length; i++) {
+            dispatchListener.onDropped(batches[i]);
+        }
+    }
+
+    /**
+     * Dispatches the given batch on the calling thread. The failure is only propagated if the batch isn't retried.
+     */
+    private void dispatch(Batch batch) throws MailException {
+        long start = System.nanoTime();
+        try {
+            batch.dispatch(callerDispatcher);
+        } catch (RuntimeException e) {
+            batch.setDispatchNanos(System.nanoTime() - start);
+            dispatchListener.onFailed(batch, e);
+            if (batch.getCompletion().isCompletedExceptionally()) {
+                throw e;
+            }
+            return;
+        }
+        batch.setDispatchNanos(System.nanoTime() - start);
+        dispatchListener.onDispatched(batch);
+    }
+
+
+    /**
+     * Messages of equal key may share a batch.
+     */
+    @Value
+    private static class BatchKey {
+
+        Class<?> type;
+        MailPriority priority;
+        String domain;
+    }
+
+
+    /**
+     * Messages waiting for further messages of the same key to be merged with.
+     */
+    private static final class LingeringBatch {
+
+        private final BatchKey key;
+        private final Object[] type;
+        private final List<Object> messages = new ArrayList<>();
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private ScheduledFuture<?> expiry;
+
+        private LingeringBatch(BatchKey key, Object[] type) {
+            this.key = key;
+            this.type = type;
+        }
+    }
+
+
+    /**
+     * Notifies every registered {@link BatchListener} and completes the batch afterwards. A dequeued batch is released
+     * from the queue only once it was settled, so that {@link #shutdown()} never misses a retry while draining.
+     */
+    private final class CompositeListener implements BatchListener {
+
+        @Override
+        public void onDispatched(Batch batch) {
+            try {
+                listeners.forEach(listener -> listener.onDispatched(batch));
+                batch.complete();
+            } finally {
+                queue.done(batch);
             }
         }
+
+        @Override
+        public void onFailed(Batch batch, RuntimeException exception) {
+            try {
+                listeners.forEach(listener -> listener.onFailed(batch, exception));
+                settler.settle(batch, exception);
+            } finally {
+                queue.done(batch);
+            }
+        }
+
+        @Override
+        public void onDropped(Batch batch) {
+            listeners.forEach(listener -> listener.onDropped(batch));
+            batch.getCompletion().completeExceptionally(new MailQueueException("Dropped " + batch));
+        }
+
+        @Override
+        public void onDeadLettered(Batch batch, RuntimeException exception) {
+            listeners.forEach(listener -> listener.onDeadLettered(batch, exception));
+        }
     }
 }
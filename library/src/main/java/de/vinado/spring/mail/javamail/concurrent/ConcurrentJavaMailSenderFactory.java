@@ -1,10 +1,15 @@
 package de.vinado.spring.mail.javamail.concurrent;
 
 import de.vinado.spring.mail.javamail.JavaMailSenderDecoratorFactory;
-import lombok.RequiredArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.util.Assert;
 
 import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 
 /**
  * Factory implementation for decorating any {@link JavaMailSender} with the {@link ConcurrentJavaMailSender}
@@ -12,13 +17,103 @@ import java.util.concurrent.ExecutorService;
  *
  * @author Vincent Nadoll
  */
-@RequiredArgsConstructor
+@Slf4j
 public class ConcurrentJavaMailSenderFactory implements JavaMailSenderDecoratorFactory {
 
+    /**
+     * The executor shared by every sender, {@code null} if every sender creates its own of the {@link #executor} kind.
+     */
     private final ExecutorService threadPool;
 
+    private final WorkerExecutor executor;
+    private final int workers;
+
+    /**
+     * Time in milliseconds each worker keeps its SMTP connection open without using it. Any non-positive value disables
+     * connection reuse, so that every batch is sent over a new connection.
+     */
+    @Getter
+    @Setter
+    private long connectionIdleTimeoutMillis;
+
+    /**
+     * Decorates the sender each worker dispatches its batches with. Any decoration, e.g. DKIM signing, is then applied
+     * on the worker right before transport rather than on the calling thread. If {@code null}, workers dispatch through
+     * the delegate itself.
+     */
+    @Getter
+    @Setter
+    private JavaMailSenderDecoratorFactory dispatchDecorator;
+
+    /**
+     * Creates a new factory whose senders are drained by a single worker.
+     *
+     * @param threadPool the executor to run the worker on
+     */
+    public ConcurrentJavaMailSenderFactory(ExecutorService threadPool) {
+        this(threadPool, 1);
+    }
+
+    /**
+     * Creates a new factory whose senders are drained by the given number of workers, all running on the given
+     * executor. The executor is shared by every sender and left running on their shutdown.
+     *
+     * @param threadPool the executor to run the workers on
+     * @param workers    the number of workers
+     */
+    public ConcurrentJavaMailSenderFactory(ExecutorService threadPool, int workers) {
+        Assert.notNull(threadPool, "Thread pool must not be null");
+        this.threadPool = threadPool;
+        this.executor = null;
+        this.workers = workers;
+    }
+
+    /**
+     * Creates a new factory whose senders are drained by the given number of workers, each running on a thread of the
+     * given kind. Every sender gets an executor of its own, which is shut down along with the sender.
+     *
+     * @param executor the kind of threads to run the workers on
+     * @param workers  the number of workers
+     */
+    public ConcurrentJavaMailSenderFactory(WorkerExecutor executor, int workers) {
+        Assert.notNull(executor, "Executor must not be null");
+        this.threadPool = null;
+        this.executor = executor;
+        this.workers = workers;
+    }
+
+    /**
+     * Decorates the given {@link JavaMailSender} with a new instance of {@link ConcurrentJavaMailSender}. The thread
+     * pool must be capable of running the configured amount of workers simultaneously.
+     *
+     * @param delegate the sender to be decorated
+     * @return a new {@link ConcurrentJavaMailSender} instance
+     */
     @Override
     public ConcurrentJavaMailSender decorate(JavaMailSender delegate) {
-        return new ConcurrentJavaMailSender(delegate, threadPool);
+        JavaMailSender callerDispatcher = dispatchDecorator == null ? delegate : dispatchDecorator.decorate(delegate);
+        boolean ownsThreadPool = threadPool == null;
+        return new ConcurrentJavaMailSender(delegate, ownsThreadPool ? executor.create(workers) : threadPool, workers,
+            decorated(dispatchers(delegate)), callerDispatcher, ownsThreadPool);
+    }
+
+    private Supplier<JavaMailSender> decorated(Supplier<JavaMailSender> dispatchers) {
+        if (dispatchDecorator == null) {
+            return dispatchers;
+        }
+        return () -> dispatchDecorator.decorate(dispatchers.get());
+    }
+
+    private Supplier<JavaMailSender> dispatchers(JavaMailSender delegate) {
+        if (connectionIdleTimeoutMillis <= 0) {
+            return () -> delegate;
+        }
+        if (!(delegate instanceof JavaMailSenderImpl)) {
+            if (log.isWarnEnabled()) log.warn("Connections can only be held for {}", JavaMailSenderImpl.class);
+            return () -> delegate;
+        }
+
+        JavaMailSenderImpl sender = (JavaMailSenderImpl) delegate;
+        return () -> new ConnectionHoldingJavaMailSender(sender, connectionIdleTimeoutMillis);
     }
 }
@@ -0,0 +1,148 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MeterBinder} instrumenting a {@link ConcurrentJavaMailSender}. The queue depth is sampled by gauges, while
+ * every batch passing through the sender is recorded on its outcome:
+ *
+ * <ul>
+ *     <li>{@code mail.queue.batches}, {@code mail.queue.messages} and {@code mail.queue.bytes} &ndash; queue depth</li>
+ *     <li>{@code mail.queue.wait} &ndash; time a batch waited in the queue until it was taken for dispatch</li>
+ *     <li>{@code mail.dispatch} &ndash; time the actual sender took to dispatch a batch, tagged by outcome</li>
+ *     <li>{@code mail.messages.sent}, {@code mail.messages.dropped} and {@code mail.messages.dead-lettered} &ndash;
+ *     message throughput and loss</li>
+ *     <li>{@code mail.dispatch.failures} &ndash; failed batches tagged by the type of the exception</li>
+ * </ul>
+ *
+ * <p>Batches dispatched on the calling thread were never enqueued, hence they don't count towards the wait time.
+ *
+ * @author Vincent Nadoll
+ */
+public class ConcurrentJavaMailSenderMetrics implements MeterBinder {
+
+    private final ConcurrentJavaMailSender sender;
+    private final Iterable<Tag> tags;
+
+    public ConcurrentJavaMailSenderMetrics(ConcurrentJavaMailSender sender) {
+        this(sender, Tags.empty());
+    }
+
+    public ConcurrentJavaMailSenderMetrics(ConcurrentJavaMailSender sender, Iterable<Tag> tags) {
+        Assert.notNull(sender, "Sender must not be null");
+        this.sender = sender;
+        this.tags = tags;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("mail.queue.batches", sender, ConcurrentJavaMailSender::getQueuedBatches)
+            .description("Number of batches waiting to be dispatched")
+            .tags(tags)
+            .register(registry);
+        Gauge.builder("mail.queue.messages", sender, ConcurrentJavaMailSender::getQueuedMessages)
+            .description("Number of messages waiting to be dispatched")
+            .tags(tags)
+            .register(registry);
+        Gauge.builder("mail.queue.bytes", sender, ConcurrentJavaMailSender::getQueuedBytes)
+            .description("Estimated size of all messages waiting to be dispatched, if the queue is bounded by size")
+            .tags(tags)
+            .baseUnit("bytes")
+            .register(registry);
+
+        sender.addListener(new Recorder(registry));
+    }
+
+
+    /**
+     * Records the outcome of every batch into the given registry.
+     */
+    private final class Recorder implements BatchListener {
+
+        private final MeterRegistry registry;
+        private final Timer waitTimer;
+        private final Timer successTimer;
+        private final Timer failureTimer;
+        private final Counter sentCounter;
+        private final Counter droppedCounter;
+        private final Counter deadLetteredCounter;
+
+        private Recorder(MeterRegistry registry) {
+            this.registry = registry;
+            this.waitTimer = Timer.builder("mail.queue.wait")
+                .description("Time batches waited in the queue until they were taken for dispatch")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry);
+            this.successTimer = dispatchTimer("success");
+            this.failureTimer = dispatchTimer("failure");
+            this.sentCounter = Counter.builder("mail.messages.sent")
+                .description("Number of messages handed over to the actual sender")
+                .tags(tags)
+                .baseUnit("messages")
+                .register(registry);
+            this.droppedCounter = Counter.builder("mail.messages.dropped")
+                .description("Number of messages rejected or evicted by the queue")
+                .tags(tags)
+                .baseUnit("messages")
+                .register(registry);
+            this.deadLetteredCounter = Counter.builder("mail.messages.dead-lettered")
+                .description("Number of messages handed over to the dead-letter sink")
+                .tags(tags)
+                .baseUnit("messages")
+                .register(registry);
+        }
+
+        private Timer dispatchTimer(String outcome) {
+            return Timer.builder("mail.dispatch")
+                .description("Time the actual sender took to dispatch a batch")
+                .tags(tags)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+        }
+
+        @Override
+        public void onDispatched(Batch batch) {
+            record(batch, successTimer);
+            sentCounter.increment(batch.getMessages().length);
+        }
+
+        @Override
+        public void onFailed(Batch batch, RuntimeException exception) {
+            record(batch, failureTimer);
+            Counter.builder("mail.dispatch.failures")
+                .description("Number of batches the actual sender failed to dispatch")
+                .tags(tags)
+                .tag("exception", exception.getClass().getSimpleName())
+                .register(registry)
+                .increment();
+        }
+
+        @Override
+        public void onDropped(Batch batch) {
+            droppedCounter.increment(batch.getMessages().length);
+        }
+
+        @Override
+        public void onDeadLettered(Batch batch, RuntimeException exception) {
+            deadLetteredCounter.increment(batch.getMessages().length);
+        }
+
+        private void record(Batch batch, Timer dispatchTimer) {
+            if (batch.getEnqueuedNanos() != 0) {
+                waitTimer.record(batch.getQueuedNanos(), TimeUnit.NANOSECONDS);
+            }
+            dispatchTimer.record(batch.getDispatchNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+}
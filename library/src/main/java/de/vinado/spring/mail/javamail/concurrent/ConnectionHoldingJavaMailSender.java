@@ -0,0 +1,247 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import de.vinado.spring.mail.javamail.JavaMailSenderDecorator;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMailMessage;
+import org.springframework.mail.javamail.MimeMessagePreparator;
+import org.springframework.util.Assert;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.mail.Address;
+import javax.mail.AuthenticationFailedException;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * {@link JavaMailSender} implementation that keeps its authenticated {@link Transport} open between dispatches instead
+ * of connecting, negotiating TLS and authenticating for every single batch. Before the held connection is reused, it is
+ * verified by {@link Transport#isConnected()}, which issues an SMTP NOOP command, and re-established if the server
+ * dropped it. A connection that was not used for the configured idle timeout is closed by {@link #closeIfIdle()}.
+ *
+ * <p>The connection settings are taken from the delegate. Since a {@link Transport} must not be shared between
+ * threads, every consumer thread is supposed to hold its own instance of this sender.
+ *
+ * @author Vincent Nadoll
+ */
+@Slf4j
+public class ConnectionHoldingJavaMailSender extends JavaMailSenderDecorator implements JavaMailSender, Closeable {
+
+    private static final String HEADER_MESSAGE_ID = "Message-ID";
+
+    private final JavaMailSenderImpl delegate;
+
+    @Getter
+    private final long idleTimeoutMillis;
+
+    private Transport transport;
+    private long lastUsed;
+
+    public ConnectionHoldingJavaMailSender(JavaMailSenderImpl delegate, long idleTimeoutMillis) {
+        super(delegate);
+        Assert.isTrue(idleTimeoutMillis > 0, "Idle timeout must be a positive number");
+
+        this.delegate = delegate;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    @Override
+    public void send(MimeMessage mimeMessage) throws MailException {
+        send(new MimeMessage[]{mimeMessage});
+    }
+
+    @Override
+    public void send(MimeMessage... mimeMessages) throws MailException {
+        doSend(mimeMessages, null);
+    }
+
+    @Override
+    public void send(MimeMessagePreparator mimeMessagePreparator) throws MailException {
+        send(new MimeMessagePreparator[]{mimeMessagePreparator});
+    }
+
+    @Override
+    public void send(MimeMessagePreparator... mimeMessagePreparators) throws MailException {
+        try {
+            List<MimeMessage> mimeMessages = new ArrayList<>(mimeMessagePreparators.length);
+            for (MimeMessagePreparator preparator : mimeMessagePreparators) {
+                MimeMessage mimeMessage = createMimeMessage();
+                preparator.prepare(mimeMessage);
+                mimeMessages.add(mimeMessage);
+            }
+
+            send(mimeMessages.toArray(new MimeMessage[0]));
+        } catch (MailException ex) {
+            throw ex;
+        } catch (MessagingException ex) {
+            throw new MailParseException(ex);
+        } catch (Exception ex) {
+            throw new MailPreparationException(ex);
+        }
+    }
+
+    @Override
+    public void send(SimpleMailMessage simpleMessage) throws MailException {
+        send(new SimpleMailMessage[]{simpleMessage});
+    }
+
+    @Override
+    public void send(SimpleMailMessage... simpleMessages) throws MailException {
+        List<MimeMessage> mimeMessages = new ArrayList<>(simpleMessages.length);
+        for (SimpleMailMessage simpleMessage : simpleMessages) {
+            MimeMailMessage message = new MimeMailMessage(createMimeMessage());
+            simpleMessage.copyTo(message);
+            mimeMessages.add(message.getMimeMessage());
+        }
+
+        doSend(mimeMessages.toArray(new MimeMessage[0]), simpleMessages);
+    }
+
+    /**
+     * Sends the given messages over the held connection. Same as {@link JavaMailSenderImpl}, failures are collected
+     * per message and keyed by the original message.
+     */
+    private void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) throws MailException {
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        boolean verify = true;
+
+        for (int i = 0; i < mimeMessages.length; i++) {
+            if (verify) {
+                ensureConnected(mimeMessages, originalMessages, i, failedMessages);
+                verify = false;
+            }
+
+            MimeMessage mimeMessage = mimeMessages[i];
+            try {
+                if (mimeMessage.getSentDate() == null) {
+                    mimeMessage.setSentDate(new Date());
+                }
+                String messageId = mimeMessage.getMessageID();
+                mimeMessage.saveChanges();
+                if (messageId != null) {
+                    mimeMessage.setHeader(HEADER_MESSAGE_ID, messageId);
+                }
+                Address[] addresses = mimeMessage.getAllRecipients();
+                transport.sendMessage(mimeMessage, (addresses != null ? addresses : new Address[0]));
+            } catch (Exception ex) {
+                Object original = (originalMessages != null ? originalMessages[i] : mimeMessage);
+                failedMessages.put(original, ex);
+                verify = true;
+            }
+        }
+
+        lastUsed = System.currentTimeMillis();
+
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    private void ensureConnected(MimeMessage[] mimeMessages,
+                                 Object[] originalMessages,
+                                 int offset,
+                                 Map<Object, Exception> failedMessages) throws MailException {
+        if (transport != null && transport.isConnected()) {
+            return;
+        }
+
+        close();
+        try {
+            transport = connectTransport();
+            if (log.isDebugEnabled()) log.debug("Connected {}", transport);
+        } catch (AuthenticationFailedException ex) {
+            if (offset == 0) {
+                throw new MailAuthenticationException(ex);
+            }
+            throw connectionFailed(mimeMessages, originalMessages, offset, failedMessages, ex);
+        } catch (Exception ex) {
+            throw connectionFailed(mimeMessages, originalMessages, offset, failedMessages, ex);
+        }
+    }
+
+    /**
+     * Attributes the given failure to every message from the offset on, while the failures collected before are kept.
+     * Hence, messages sent over the previous connection aren't reported and therefore never sent again.
+     */
+    private static MailSendException connectionFailed(MimeMessage[] mimeMessages,
+                                                      Object[] originalMessages,
+                                                      int offset,
+                                                      Map<Object, Exception> failedMessages,
+                                                      Exception ex) {
+        for (int j = offset; j < mimeMessages.length; j++) {
+            Object original = (originalMessages != null ? originalMessages[j] : mimeMessages[j]);
+            failedMessages.put(original, ex);
+        }
+        return new MailSendException("Mail server connection failed", ex, failedMessages);
+    }
+
+    /**
+     * Obtains and connects a new {@link Transport} using the delegate's connection settings.
+     *
+     * @return a connected {@link Transport}
+     * @throws MessagingException if the connection could not be established
+     */
+    protected Transport connectTransport() throws MessagingException {
+        String username = delegate.getUsername();
+        String password = delegate.getPassword();
+        if ("".equals(username)) {
+            username = null;
+            if ("".equals(password)) {
+                password = null;
+            }
+        }
+
+        Session session = delegate.getSession();
+        String protocol = delegate.getProtocol();
+        if (protocol == null) {
+            protocol = session.getProperty("mail.transport.protocol");
+        }
+
+        Transport transport = session.getTransport(protocol != null ? protocol : JavaMailSenderImpl.DEFAULT_PROTOCOL);
+        transport.connect(delegate.getHost(), delegate.getPort(), username, password);
+        return transport;
+    }
+
+    /**
+     * Closes the held connection if it was not used within the idle timeout.
+     */
+    void closeIfIdle() {
+        if (transport != null && System.currentTimeMillis() - lastUsed >= idleTimeoutMillis) {
+            if (log.isDebugEnabled()) log.debug("Closing idle {}", transport);
+            close();
+        }
+    }
+
+    /**
+     * Closes the held connection. The next dispatch establishes a new one.
+     */
+    @Override
+    public void close() {
+        if (transport == null) {
+            return;
+        }
+
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            if (log.isDebugEnabled()) log.debug("Could not close {}", transport, e);
+        } finally {
+            transport = null;
+        }
+    }
+}
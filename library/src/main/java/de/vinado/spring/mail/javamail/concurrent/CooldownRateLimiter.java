@@ -0,0 +1,49 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link RateLimiter} implementation scheduling every batch one cooldown after its predecessor regardless of its size.
+ * The schedule starts over as soon as the last reserved batch is more than a cooldown in the past.
+ *
+ * @author Vincent Nadoll
+ */
+@Slf4j
+public class CooldownRateLimiter implements RateLimiter {
+
+    @Getter
+    private final int cooldownMillis;
+
+    private final AtomicLong delay;
+
+    public CooldownRateLimiter(int cooldownMillis) {
+        this.cooldownMillis = cooldownMillis;
+        this.delay = new AtomicLong(System.currentTimeMillis());
+    }
+
+    @Override
+    public long reserve(int permits) {
+        long time = System.currentTimeMillis();
+        long next = delay.accumulateAndGet(time, this::advance);
+        return next - cooldownMillis;
+    }
+
+    private long advance(long next, long time) {
+        if (log.isTraceEnabled()) {
+            log.trace("Delay is at: {}", Instant.ofEpochMilli(next).atZone(ZoneId.systemDefault()).toLocalDateTime());
+            log.trace("Cooldown expires in: {}", (next + cooldownMillis - time));
+        }
+
+        if (next + cooldownMillis < time) {
+            if (log.isTraceEnabled()) log.trace("Resetting delay");
+            return time + cooldownMillis;
+        }
+
+        return next + cooldownMillis;
+    }
+}
@@ -0,0 +1,23 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+/**
+ * Destination of messages which can't be dispatched, since they failed permanently or ran out of retries, e.g. to be
+ * inspected or resent by hand.
+ *
+ * @author Vincent Nadoll
+ */
+@FunctionalInterface
+public interface DeadLetterSink {
+
+    /**
+     * Takes over the given messages. Implementations must be thread-safe since batches may fail on several workers at
+     * once. The messages are of the type they were sent with, i.e. {@link org.springframework.mail.SimpleMailMessage},
+     * {@link javax.mail.internet.MimeMessage} or {@link org.springframework.mail.javamail.MimeMessagePreparator}.
+     *
+     * @param messages  the messages which can't be dispatched
+     * @param exception the failure of the last attempt
+     * @throws Exception if the messages could not be taken over, in which case they are handled as if there was no
+     *                   sink at all
+     */
+    void accept(Object[] messages, RuntimeException exception) throws Exception;
+}
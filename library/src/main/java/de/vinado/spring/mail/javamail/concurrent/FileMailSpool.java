@@ -0,0 +1,667 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * Durable spool keeping queued batches on disk until they are dispatched. The spool is an append-only log of segment
+ * files, each holding a sequence of checksummed records. Batch records contain the messages in RFC 822 form along
+ * with their priority class, if given, whereas acknowledgement records mark a previously appended batch as done and
+ * attempt records count the attempts made to dispatch it. Segments whose batches are all acknowledged are deleted,
+ * oldest first.
+ *
+ * <p>Appending a batch returns as soon as the record is forced to disk. Concurrent appends are committed as a group,
+ * so that a single {@link FileChannel#force(boolean) fsync} covers every record written in the meantime.
+ * Acknowledgements and attempts are not forced, hence a crash may cause an already dispatched batch to be sent again,
+ * or to be attempted once more, but never a batch to be lost.
+ *
+ * <p>On startup, the spool reads all existing segments and keeps every unacknowledged batch for
+ * {@link #recover(Function) recovery}. A torn record at the end of a segment, as left behind by a crash, is skipped.
+ * New records are always appended to a new segment.
+ *
+ * <p>A mapped spool {@link #read(long, Function) reads} messages from memory-mapped segment regions. Parsed into a
+ * {@link MimeMessage}, only the headers of such a message are kept on the heap, whereas the content is streamed from
+ * the mapped region once it is written to the transport.
+ *
+ * @author Vincent Nadoll
+ */
+@Slf4j
+public class FileMailSpool implements Closeable {
+
+    public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+
+    private static final String SEGMENT_PREFIX = "spool-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final byte BATCH = 1;
+    private static final byte ACKNOWLEDGEMENT = 2;
+    private static final byte PRIORITIZED_BATCH = 3;
+    private static final byte ATTEMPT = 4;
+    private static final int HEADER_SIZE = 1 + 8 + 4 + 4;
+    private static final byte[] EMPTY = new byte[0];
+
+    @Getter
+    private final Path directory;
+
+    @Getter
+    private final long segmentSize;
+
+    @Getter
+    private final boolean mapped;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final Map<Long, Record> pending = new HashMap<>();
+    private List<Long> recoverable = new ArrayList<>();
+    private Segment active;
+    private long nextId;
+    private long written;
+
+    private final Object syncMonitor = new Object();
+    private boolean syncing;
+    private long synced;
+
+    private FileMailSpool(Path directory, long segmentSize, boolean mapped) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.mapped = mapped;
+    }
+
+    /**
+     * Opens the spool in the given directory, which is created if necessary. Unacknowledged batches of previous runs
+     * are kept for {@link #recover(Function) recovery}.
+     *
+     * @param directory the directory to keep the segments in
+     * @return the opened spool
+     * @throws IOException if the directory could not be read or the first segment not be created
+     */
+    public static FileMailSpool open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the spool in the given directory, which is created if necessary. Unacknowledged batches of previous runs
+     * are kept for {@link #recover(Function) recovery}.
+     *
+     * @param directory   the directory to keep the segments in
+     * @param segmentSize the size in bytes after which a new segment is started
+     * @return the opened spool
+     * @throws IOException if the directory could not be read or the first segment not be created
+     */
+    public static FileMailSpool open(Path directory, long segmentSize) throws IOException {
+        return open(directory, segmentSize, false);
+    }
+
+    /**
+     * Opens the spool in the given directory, which is created if necessary. Unacknowledged batches of previous runs
+     * are kept for {@link #recover(Function) recovery}.
+     *
+     * @param directory   the directory to keep the segments in
+     * @param segmentSize the size in bytes after which a new segment is started
+     * @param mapped      whether messages are read from memory-mapped segments instead of being copied to the heap
+     * @return the opened spool
+     * @throws IOException if the directory could not be read or the first segment not be created
+     */
+    public static FileMailSpool open(Path directory, long segmentSize, boolean mapped) throws IOException {
+        Assert.notNull(directory, "Spool directory must not be null");
+        Assert.isTrue(segmentSize > 0, "Segment size must be a positive number");
+
+        FileMailSpool spool = new FileMailSpool(directory, segmentSize, mapped);
+        spool.load();
+        return spool;
+    }
+
+    private void load() throws IOException {
+        Files.createDirectories(directory);
+        String glob = SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path path : stream) {
+                Segment segment = new Segment(sequenceOf(path), path);
+                segments.put(segment.sequence, segment);
+            }
+        }
+
+        Map<Long, Record> records = new LinkedHashMap<>();
+        for (Segment segment : segments.values()) {
+            scan(segment, records);
+        }
+        recoverable = new ArrayList<>(records.keySet());
+        for (Segment segment : segments.values()) {
+            if (segment.live > 0) {
+                segment.channel = FileChannel.open(segment.path, StandardOpenOption.READ);
+            }
+        }
+        purge();
+
+        long sequence = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+        active = createSegment(sequence);
+
+        if (log.isDebugEnabled()) log.debug("Opened spool in {} with {} pending batch(es)", directory, pending.size());
+    }
+
+    private void scan(Segment segment, Map<Long, Record> records) throws IOException {
+        long size = Files.size(segment.path);
+        long position = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment.path)))) {
+            while (size - position >= HEADER_SIZE) {
+                final byte type = in.readByte();
+                final long id = in.readLong();
+                final int length = in.readInt();
+                final int checksum = in.readInt();
+                position += HEADER_SIZE;
+                if (length < 0 || length > size - position) {
+                    if (log.isWarnEnabled()) log.warn("Skipping torn tail of {}", segment.path);
+                    return;
+                }
+
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                if (checksum != checksum(type, id, payload)) {
+                    if (log.isWarnEnabled()) log.warn("Skipping corrupt tail of {}", segment.path);
+                    return;
+                }
+
+                nextId = Math.max(nextId, id + 1);
+                apply(segment, type, id, position, payload, records);
+                position += length;
+            }
+        }
+    }
+
+    private void apply(Segment segment,
+                       byte type,
+                       long id,
+                       long position,
+                       byte[] payload,
+                       Map<Long, Record> records) throws IOException {
+        if (type == BATCH || type == PRIORITIZED_BATCH) {
+            Record record = Record.of(segment, position, payload, type == PRIORITIZED_BATCH);
+            pending.put(id, record);
+            records.put(id, record);
+            segment.live++;
+        } else if (type == ACKNOWLEDGEMENT) {
+            Record record = pending.remove(id);
+            if (record != null) {
+                record.segment.live--;
+            }
+            records.remove(id);
+        } else if (type == ATTEMPT) {
+            Record record = pending.get(id);
+            if (record != null) {
+                record.attempt = new DataInputStream(new ByteArrayInputStream(payload)).readInt();
+            }
+        }
+    }
+
+    /**
+     * Hands over all batches that were pending when the spool was opened. Each batch keeps its record id and has to be
+     * {@link #acknowledge(long) acknowledged} once it is done. Recovered batches are only returned once.
+     *
+     * @param parser creates a {@link MimeMessage} from its RFC 822 form
+     * @return unacknowledged batches in the order they were appended
+     * @throws IOException if a batch could not be read
+     */
+    public Map<Long, MimeMessage[]> recover(Function<InputStream, MimeMessage> parser) throws IOException {
+        List<Long> ids;
+        writeLock.lock();
+        try {
+            ids = recoverable;
+            recoverable = new ArrayList<>();
+        } finally {
+            writeLock.unlock();
+        }
+
+        Map<Long, MimeMessage[]> batches = new LinkedHashMap<>();
+        for (Long id : ids) {
+            MimeMessage[] mimeMessages = read(id, parser);
+            if (mimeMessages != null) {
+                batches.put(id, mimeMessages);
+            }
+        }
+        return batches;
+    }
+
+    /**
+     * Reads the messages of a pending batch. If this spool is {@link #isMapped() mapped}, the returned messages are
+     * backed by the mapped segment. The segment is pinned while it is read, so that it is not purged even if the batch
+     * is acknowledged meanwhile.
+     *
+     * @param id     the record id of the batch
+     * @param parser creates a {@link MimeMessage} from its RFC 822 form
+     * @return the messages or {@code null} if the batch is not pending
+     * @throws IOException if the batch could not be read
+     */
+    public MimeMessage[] read(long id, Function<InputStream, MimeMessage> parser) throws IOException {
+        Record record;
+        writeLock.lock();
+        try {
+            record = pending.get(id);
+            if (record == null) {
+                return null;
+            }
+            record.segment.readers++;
+        } finally {
+            writeLock.unlock();
+        }
+
+        try {
+            return read(record, parser);
+        } finally {
+            writeLock.lock();
+            try {
+                record.segment.readers--;
+                purge();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    private MimeMessage[] read(Record record, Function<InputStream, MimeMessage> parser) throws IOException {
+        MimeMessage[] mimeMessages = new MimeMessage[record.offsets.length];
+        if (mapped) {
+            ByteBuffer region = record.segment.channel.map(FileChannel.MapMode.READ_ONLY,
+                record.position, record.length);
+            for (int i = 0; i < mimeMessages.length; i++) {
+                ByteBuffer message = region.duplicate();
+                ((Buffer) message).limit(record.offsets[i] + record.lengths[i]).position(record.offsets[i]);
+                mimeMessages[i] = parser.apply(new BufferSharedInputStream(message));
+            }
+        } else {
+            for (int i = 0; i < mimeMessages.length; i++) {
+                ByteBuffer message = ByteBuffer.allocate(record.lengths[i]);
+                long offset = record.position + record.offsets[i];
+                while (message.hasRemaining()) {
+                    if (record.segment.channel.read(message, offset + message.position()) < 0) {
+                        throw new IOException("Unexpected end of " + record.segment.path);
+                    }
+                }
+                mimeMessages[i] = parser.apply(new ByteArrayInputStream(message.array()));
+            }
+        }
+        return mimeMessages;
+    }
+
+    /**
+     * Appends a batch of the given messages and waits until the record is durable.
+     *
+     * @param mimeMessages the messages to be spooled
+     * @return the id of the record, to be {@link #acknowledge(long) acknowledged} after dispatch
+     * @throws MessagingException if a message could not be written
+     * @throws IOException        if the record could not be written
+     */
+    public long append(MimeMessage... mimeMessages) throws MessagingException, IOException {
+        return append(null, mimeMessages);
+    }
+
+    /**
+     * Appends a batch of the given messages belonging to the given priority class and waits until the record is
+     * durable.
+     *
+     * @param priority     the priority class of the messages, {@code null} if it is taken from their header
+     * @param mimeMessages the messages to be spooled
+     * @return the id of the record, to be {@link #acknowledge(long) acknowledged} after dispatch
+     * @throws MessagingException if a message could not be written
+     * @throws IOException        if the record could not be written
+     */
+    public long append(MailPriority priority, MimeMessage... mimeMessages) throws MessagingException, IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(payload);
+        if (priority != null) {
+            out.writeUTF(priority.name());
+        }
+        out.writeInt(mimeMessages.length);
+        for (MimeMessage mimeMessage : mimeMessages) {
+            ByteArrayOutputStream message = new ByteArrayOutputStream();
+            mimeMessage.writeTo(message);
+            out.writeInt(message.size());
+            message.writeTo(out);
+        }
+        byte[] bytes = payload.toByteArray();
+        byte type = priority == null ? BATCH : PRIORITIZED_BATCH;
+
+        long id;
+        long position;
+        writeLock.lock();
+        try {
+            id = nextId++;
+            Segment segment = active;
+            Record record = Record.of(segment, segment.size + HEADER_SIZE, bytes, priority != null);
+            pending.put(id, record);
+            segment.live++;
+            try {
+                position = write(type, id, bytes);
+            } catch (IOException e) {
+                pending.remove(id);
+                segment.live--;
+                throw e;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+
+        sync(position);
+        return id;
+    }
+
+    /**
+     * Marks the batch with the given record id as done. Unknown ids are ignored.
+     *
+     * @param id the record id of the batch
+     * @throws IOException if the acknowledgement could not be written
+     */
+    public void acknowledge(long id) throws IOException {
+        writeLock.lock();
+        try {
+            Record record = pending.remove(id);
+            if (record == null) {
+                return;
+            }
+
+            write(ACKNOWLEDGEMENT, id, EMPTY);
+            record.segment.live--;
+            purge();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Records the number of attempts made to dispatch the batch with the given record id, so that retries continue
+     * where they left off once the batch is recovered. Unknown ids are ignored.
+     *
+     * @param id      the record id of the batch
+     * @param attempt the number of attempts including the upcoming one
+     * @throws IOException if the attempt could not be written
+     */
+    public void recordAttempt(long id, int attempt) throws IOException {
+        writeLock.lock();
+        try {
+            Record record = pending.get(id);
+            if (record == null) {
+                return;
+            }
+
+            write(ATTEMPT, id, ByteBuffer.allocate(4).putInt(attempt).array());
+            record.attempt = attempt;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the spooled priority class of the given batch.
+     *
+     * @param id the record id of a pending batch
+     * @return the priority class the batch was appended with, {@code null} if there is none or the batch is not
+     *     pending
+     */
+    public MailPriority getPriority(long id) {
+        writeLock.lock();
+        try {
+            Record record = pending.get(id);
+            return record == null ? null : record.priority;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the spooled attempt of the given batch.
+     *
+     * @param id the record id of a pending batch
+     * @return the {@link #recordAttempt(long, int) recorded} number of attempts, {@code 1} if none was recorded or the
+     *     batch is not pending
+     */
+    public int getAttempt(long id) {
+        writeLock.lock();
+        try {
+            Record record = pending.get(id);
+            return record == null ? 1 : record.attempt;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of pending batches.
+     *
+     * @return the number of unacknowledged batches
+     */
+    public int size() {
+        writeLock.lock();
+        try {
+            return pending.size();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private long write(byte type, long id, byte[] payload) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length)
+            .put(type)
+            .putLong(id)
+            .putInt(payload.length)
+            .putInt(checksum(type, id, payload))
+            .put(payload);
+        ((Buffer) buffer).flip();
+        while (buffer.hasRemaining()) {
+            active.channel.write(buffer, active.size + buffer.position());
+        }
+
+        active.size += buffer.limit();
+        written += buffer.limit();
+        if (active.size >= segmentSize) {
+            roll();
+        }
+        return written;
+    }
+
+    private static int checksum(byte type, long id, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(9).put(type).putLong(id).array());
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Forces the active segment and starts a new one. The previous segment stays open for reading until it is purged.
+     */
+    private void roll() throws IOException {
+        active.channel.force(false);
+        synchronized (syncMonitor) {
+            synced = Math.max(synced, written);
+            syncMonitor.notifyAll();
+        }
+
+        active = createSegment(active.sequence + 1);
+        purge();
+    }
+
+    /**
+     * Waits until everything up to the given position is forced to disk. The first waiting thread forces the channel
+     * on behalf of all threads that have written in the meantime.
+     */
+    private void sync(long position) throws IOException {
+        synchronized (syncMonitor) {
+            while (synced < position && syncing) {
+                try {
+                    syncMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the spool to be forced");
+                }
+            }
+            if (synced >= position) {
+                return;
+            }
+            syncing = true;
+        }
+
+        try {
+            FileChannel channel;
+            long target;
+            writeLock.lock();
+            try {
+                channel = active.channel;
+                target = written;
+            } finally {
+                writeLock.unlock();
+            }
+
+            channel.force(false);
+
+            synchronized (syncMonitor) {
+                synced = Math.max(synced, target);
+            }
+        } finally {
+            synchronized (syncMonitor) {
+                syncing = false;
+                syncMonitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Deletes the oldest segments as long as all of their batches are acknowledged and none of them is being read.
+     * Deleting in order ensures that no acknowledgement is lost while the batch it refers to is still on disk.
+     */
+    private void purge() throws IOException {
+        while (!segments.isEmpty()) {
+            Segment oldest = segments.firstEntry().getValue();
+            if (oldest == active || oldest.live > 0 || oldest.readers > 0) {
+                return;
+            }
+
+            segments.remove(oldest.sequence);
+            if (oldest.channel != null) {
+                oldest.channel.close();
+            }
+            Files.deleteIfExists(oldest.path);
+            if (log.isDebugEnabled()) log.debug("Deleted spool segment {}", oldest.path);
+        }
+    }
+
+    private Segment createSegment(long sequence) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+        Segment segment = new Segment(sequence, path);
+        segment.channel = FileChannel.open(path,
+            StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segments.put(sequence, segment);
+        return segment;
+    }
+
+    private static long sequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Forces the active segment and closes all segments. Pending batches remain on disk.
+     */
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            if (active.channel.isOpen()) {
+                active.channel.force(false);
+            }
+            for (Segment segment : segments.values()) {
+                if (segment.channel != null) {
+                    segment.channel.close();
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+
+    private static final class Segment {
+
+        private final long sequence;
+        private final Path path;
+        private FileChannel channel;
+        private long size;
+        private int live;
+        private int readers;
+
+        private Segment(long sequence, Path path) {
+            this.sequence = sequence;
+            this.path = path;
+        }
+    }
+
+
+    /**
+     * Location of a batch record's payload and of each message within it, along with the batch's priority class and
+     * attempts.
+     */
+    private static final class Record {
+
+        private final Segment segment;
+        private final long position;
+        private final int length;
+        private final int[] offsets;
+        private final int[] lengths;
+        private final MailPriority priority;
+        private int attempt = 1;
+
+        private Record(Segment segment, long position, int length, int[] offsets, int[] lengths,
+                       MailPriority priority) {
+            this.segment = segment;
+            this.position = position;
+            this.length = length;
+            this.offsets = offsets;
+            this.lengths = lengths;
+            this.priority = priority;
+        }
+
+        private static Record of(Segment segment, long position, byte[] payload, boolean prioritized)
+            throws IOException {
+            ByteArrayInputStream bytes = new ByteArrayInputStream(payload);
+            DataInputStream in = new DataInputStream(bytes);
+            MailPriority priority = prioritized ? MailPriority.valueOf(in.readUTF()) : null;
+            int offset = payload.length - bytes.available();
+            int count = in.readInt();
+            int[] offsets = new int[count];
+            int[] lengths = new int[count];
+            offset += 4;
+            for (int i = 0; i < count; i++) {
+                lengths[i] = in.readInt();
+                offsets[i] = offset + 4;
+                offset += 4 + lengths[i];
+                in.skipBytes(lengths[i]);
+            }
+            return new Record(segment, position, payload.length, offsets, lengths, priority);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.Locale;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * Priority classes of the {@link ConcurrentJavaMailSender}. Every class is scheduled on its own, so that mail of one
+ * class doesn't wait for the schedule of another. Workers share their capacity between classes holding due batches
+ * according to their weight.
+ *
+ * <p>The priority is either passed along with the messages or taken from the {@value #HEADER} header of a
+ * {@link MimeMessage}, whose value is the name of the class, e.g. {@code bulk}. The header is sent along with the
+ * message. Messages without priority are {@link #TRANSACTIONAL transactional}.
+ *
+ * @author Vincent Nadoll
+ */
+@Slf4j
+@Getter
+@RequiredArgsConstructor
+public enum MailPriority {
+
+    /**
+     * Mail triggered by a single user interaction, e.g. password resets, which is expected to arrive without delay.
+     */
+    TRANSACTIONAL(4),
+
+    /**
+     * Mail sent to many recipients at once, e.g. newsletters, which may be delayed in favor of transactional mail.
+     */
+    BULK(1),
+    ;
+
+    public static final String HEADER = "X-Mail-Priority";
+
+    /**
+     * The share of dispatches this class is granted by default while other classes hold due batches as well.
+     */
+    private final int defaultWeight;
+
+    /**
+     * Determines the priority class of the given message.
+     *
+     * @param message the message whose priority is to be determined
+     * @return the priority named by the {@value #HEADER} header of a {@link MimeMessage}, {@link #TRANSACTIONAL} if
+     *     the header is missing or unknown
+     */
+    static MailPriority of(Object message) {
+        if (!(message instanceof MimeMessage)) {
+            return TRANSACTIONAL;
+        }
+
+        try {
+            String value = ((MimeMessage) message).getHeader(HEADER, null);
+            return value == null ? TRANSACTIONAL : Arrays.stream(values())
+                .filter(priority -> priority.name().equals(value.trim().toUpperCase(Locale.ROOT)))
+                .findFirst()
+                .orElse(TRANSACTIONAL);
+        } catch (MessagingException e) {
+            if (log.isDebugEnabled()) log.debug("Could not read priority of {}", message, e);
+            return TRANSACTIONAL;
+        }
+    }
+}
@@ -9,6 +9,10 @@ import org.springframework.mail.MailException;
  */
 public class MailQueueException extends MailException {
 
+    public MailQueueException(String msg) {
+        super(msg);
+    }
+
     public MailQueueException(String msg, Throwable cause) {
         super(msg, cause);
     }
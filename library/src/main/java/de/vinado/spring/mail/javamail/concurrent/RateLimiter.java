@@ -0,0 +1,20 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+/**
+ * Strategy deciding when a batch of messages may be dispatched without exceeding the limits of the SMTP server or
+ * provider.
+ *
+ * @author Vincent Nadoll
+ */
+@FunctionalInterface
+public interface RateLimiter {
+
+    /**
+     * Reserves the given amount of permits. Implementations must be thread-safe since batches may be reserved by
+     * several producers at once.
+     *
+     * @param permits the number of messages to be dispatched at once
+     * @return the time in epoch milliseconds at which the batch may be dispatched
+     */
+    long reserve(int permits);
+}
@@ -0,0 +1,85 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Objects;
+import javax.mail.Address;
+import javax.mail.MessagingException;
+import javax.mail.internet.AddressException;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * Determines the domain messages are destined to, which is the domain of their first recipient. A message addressed to
+ * several domains is dispatched in a single SMTP transaction anyway, hence it's attributed to one domain only.
+ *
+ * @author Vincent Nadoll
+ */
+@Slf4j
+final class RecipientDomains {
+
+    private RecipientDomains() {
+    }
+
+    /**
+     * Determines the recipient domain of the given message.
+     *
+     * @param message the message whose domain is to be determined
+     * @return the lower-cased domain of the first recipient, {@code null} if the recipients are unknown before the
+     *     message is prepared
+     */
+    static String of(Object message) {
+        if (message instanceof MimeMessage) {
+            return of((MimeMessage) message);
+        }
+        if (message instanceof SimpleMailMessage) {
+            return of((SimpleMailMessage) message);
+        }
+        return null;
+    }
+
+    private static String of(MimeMessage message) {
+        try {
+            Address[] recipients = message.getAllRecipients();
+            if (recipients == null) {
+                return null;
+            }
+            return Arrays.stream(recipients)
+                .filter(InternetAddress.class::isInstance)
+                .map(recipient -> domainOf(((InternetAddress) recipient).getAddress()))
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+        } catch (MessagingException e) {
+            if (log.isDebugEnabled()) log.debug("Could not determine recipients of {}", message, e);
+            return null;
+        }
+    }
+
+    private static String of(SimpleMailMessage message) {
+        for (String[] recipients : new String[][]{message.getTo(), message.getCc(), message.getBcc()}) {
+            if (recipients == null) {
+                continue;
+            }
+            for (String recipient : recipients) {
+                try {
+                    String domain = domainOf(new InternetAddress(recipient).getAddress());
+                    if (domain != null) {
+                        return domain;
+                    }
+                } catch (AddressException e) {
+                    if (log.isDebugEnabled()) log.debug("Could not parse recipient {}", recipient, e);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String domainOf(String address) {
+        int at = address == null ? -1 : address.lastIndexOf('@');
+        return at < 0 ? null : address.substring(at + 1).toLowerCase(Locale.ROOT);
+    }
+}
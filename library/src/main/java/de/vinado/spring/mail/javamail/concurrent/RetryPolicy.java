@@ -0,0 +1,102 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import lombok.Getter;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether a failed batch is attempted once more and how long it is backed off. Only transient failures are
+ * retried, i.e. transient negative replies ({@code 4xx}) of the mail server and I/O failures like refused or reset
+ * connections. Permanent negative replies ({@code 5xx}) and failures to prepare a message are never retried.
+ *
+ * <p>The backoff grows exponentially with every failed attempt until it reaches its maximum. A random share of the
+ * backoff given by the jitter is subtracted, so that batches failing at once aren't retried at once as well.
+ *
+ * @author Vincent Nadoll
+ */
+@Getter
+public class RetryPolicy {
+
+    /**
+     * Number of attempts in total, including the first one.
+     */
+    private final int maxAttempts;
+
+    private final long initialBackoffMillis;
+
+    private final long maxBackoffMillis;
+
+    /**
+     * Factor the backoff grows by with every failed attempt.
+     */
+    private double multiplier = 2;
+
+    /**
+     * Share of the backoff which is randomized, between {@code 0} and {@code 1}.
+     */
+    private double jitter = 0.5;
+
+    public RetryPolicy(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis) {
+        Assert.isTrue(maxAttempts > 0, "Maximum attempts must be a positive integer");
+        Assert.isTrue(initialBackoffMillis >= 0, "Initial backoff must not be negative");
+        Assert.isTrue(maxBackoffMillis >= initialBackoffMillis, "Maximum backoff must not be less than the initial");
+
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /**
+     * Creates a policy which never retries.
+     *
+     * @return a policy attempting every batch only once
+     */
+    public static RetryPolicy none() {
+        return new RetryPolicy(1, 0, 0);
+    }
+
+    public void setMultiplier(double multiplier) {
+        Assert.isTrue(multiplier >= 1, "Multiplier must not be less than 1");
+        this.multiplier = multiplier;
+    }
+
+    public void setJitter(double jitter) {
+        Assert.isTrue(jitter >= 0 && jitter <= 1, "Jitter must be between 0 and 1");
+        this.jitter = jitter;
+    }
+
+    /**
+     * Decides whether a failed batch or message is attempted once more.
+     *
+     * @param attempts  the number of attempts made so far
+     * @param exception the failure of the last attempt, either of the whole batch or of a single message
+     * @return {@code true} if the batch or message is to be attempted once more
+     */
+    boolean shouldRetry(int attempts, Throwable exception) {
+        return attempts < maxAttempts
+            && !SmtpReplies.isPermanent(exception)
+            && (SmtpReplies.isTransient(exception) || causedByIo(exception));
+    }
+
+    /**
+     * Computes the exponential backoff of the next attempt, including jitter.
+     *
+     * @param attempts the number of attempts made so far
+     * @return the milliseconds to wait until the next attempt
+     */
+    long backoffMillis(int attempts) {
+        double backoff = Math.min(initialBackoffMillis * Math.pow(multiplier, attempts - 1), maxBackoffMillis);
+        return (long) (backoff * (1 - jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    private static boolean causedByIo(Throwable exception) {
+        for (Throwable current = exception; current != null; current = current.getCause()) {
+            if (current instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
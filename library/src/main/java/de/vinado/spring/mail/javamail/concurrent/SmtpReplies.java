@@ -0,0 +1,109 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+import com.sun.mail.smtp.SMTPSenderFailedException;
+import org.springframework.mail.MailSendException;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.mail.MessagingException;
+
+/**
+ * Extracts SMTP reply codes from the exceptions thrown by a {@link org.springframework.mail.javamail.JavaMailSender}.
+ * JavaMail reports negative replies by {@link SMTPSendFailedException}, {@link SMTPSenderFailedException} and
+ * {@link SMTPAddressFailedException}, which are nested in causes, chained exceptions or failed messages. Any other
+ * exception is only considered a reply if its message starts with the server's reply, e.g. {@code 421 4.7.0 Try again
+ * later}.
+ *
+ * @author Vincent Nadoll
+ */
+final class SmtpReplies {
+
+    private static final Pattern REPLY = Pattern.compile("^([2-5]\\d\\d)(?:[ -]|$)");
+
+    private SmtpReplies() {
+    }
+
+    /**
+     * Checks whether the given exception was caused by a transient SMTP failure.
+     *
+     * @param exception the exception to be inspected
+     * @return {@code true} if any nested exception reports a transient negative reply ({@code 4xx}), e.g. a throttling
+     *     or greylisting server
+     */
+    static boolean isTransient(Throwable exception) {
+        return hasReplyClass(exception, 4);
+    }
+
+    /**
+     * Checks whether the given exception was caused by a permanent SMTP failure.
+     *
+     * @param exception the exception to be inspected
+     * @return {@code true} if any nested exception reports a permanent negative reply ({@code 5xx}), e.g. an unknown
+     *     recipient
+     */
+    static boolean isPermanent(Throwable exception) {
+        return hasReplyClass(exception, 5);
+    }
+
+    private static boolean hasReplyClass(Throwable exception, int replyClass) {
+        Set<Throwable> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Throwable> pending = new ArrayDeque<>();
+        pending.push(exception);
+
+        while (!pending.isEmpty()) {
+            Throwable current = pending.pop();
+            if (!visited.add(current)) {
+                continue;
+            }
+
+            if (replyCode(current) / 100 == replyClass) {
+                return true;
+            }
+
+            push(pending, current.getCause());
+            if (current instanceof MessagingException) {
+                push(pending, ((MessagingException) current).getNextException());
+            }
+            if (current instanceof MailSendException) {
+                ((MailSendException) current).getFailedMessages().values().forEach(e -> push(pending, e));
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Extracts the SMTP reply code of the given exception.
+     *
+     * @return the reply code reported by the given exception, or {@code -1} if it doesn't report any
+     */
+    private static int replyCode(Throwable exception) {
+        int replyCode = -1;
+        if (exception instanceof SMTPSendFailedException) {
+            replyCode = ((SMTPSendFailedException) exception).getReturnCode();
+        } else if (exception instanceof SMTPSenderFailedException) {
+            replyCode = ((SMTPSenderFailedException) exception).getReturnCode();
+        } else if (exception instanceof SMTPAddressFailedException) {
+            replyCode = ((SMTPAddressFailedException) exception).getReturnCode();
+        }
+        if (replyCode > 0) {
+            return replyCode;
+        }
+
+        String message = exception.getMessage();
+        Matcher matcher = message == null ? null : REPLY.matcher(message.trim());
+        return matcher != null && matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+
+    private static void push(Deque<Throwable> pending, Throwable exception) {
+        if (exception != null) {
+            pending.push(exception);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import javax.mail.internet.MimeMessage;
+
+/**
+ * {@link Batch} whose messages are additionally kept in a {@link FileMailSpool} until they are dispatched.
+ *
+ * @author Vincent Nadoll
+ */
+class SpooledBatch extends Batch {
+
+    @Getter(AccessLevel.PACKAGE)
+    private final long recordId;
+
+    SpooledBatch(long time, MimeMessage[] messages, long recordId) {
+        this(time, messages, recordId, null, MailPriority.TRANSACTIONAL);
+    }
+
+    SpooledBatch(long time, MimeMessage[] messages, long recordId, String domain, MailPriority priority) {
+        this(time, messages, recordId, domain, priority, 1);
+    }
+
+    SpooledBatch(long time, MimeMessage[] messages, long recordId, String domain, MailPriority priority,
+                 int attempt) {
+        super(time, messages, domain, priority, attempt);
+        this.recordId = recordId;
+    }
+
+    private SpooledBatch(SpooledBatch batch, long time, Object[] messages, int attempt) {
+        super(batch, time, messages, attempt);
+        this.recordId = batch.recordId;
+    }
+
+    /**
+     * Retries and narrowed batches are still kept in the spool under the same record, which is recovered as a whole.
+     */
+    @Override
+    protected SpooledBatch copy(long time, Object[] messages, int attempt) {
+        return new SpooledBatch(this, time, messages, attempt);
+    }
+}
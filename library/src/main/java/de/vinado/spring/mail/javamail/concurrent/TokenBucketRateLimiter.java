@@ -0,0 +1,57 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import lombok.Getter;
+import org.springframework.util.Assert;
+
+/**
+ * {@link RateLimiter} implementation of the token bucket algorithm. The bucket holds up to the burst capacity and is
+ * refilled continuously at the configured rate. Batches are dispatched immediately as long as the bucket holds enough
+ * tokens. Otherwise the bucket goes into debt and the batch is delayed until the debt is paid off, which also delays
+ * every subsequent batch.
+ *
+ * @author Vincent Nadoll
+ */
+public class TokenBucketRateLimiter implements RateLimiter {
+
+    @Getter
+    private final double permitsPerSecond;
+
+    @Getter
+    private final int burstCapacity;
+
+    private final double permitsPerMilli;
+
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucketRateLimiter(double permitsPerSecond, int burstCapacity) {
+        Assert.isTrue(permitsPerSecond > 0, "Permits per second must be a positive number");
+        Assert.isTrue(burstCapacity > 0, "Burst capacity must be a positive integer");
+
+        this.permitsPerSecond = permitsPerSecond;
+        this.burstCapacity = burstCapacity;
+        this.permitsPerMilli = permitsPerSecond / 1000;
+        this.tokens = burstCapacity;
+        this.lastRefill = System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized long reserve(int permits) {
+        long time = System.currentTimeMillis();
+        refill(time);
+
+        tokens -= permits;
+        if (tokens >= 0) {
+            return time;
+        }
+
+        return time + (long) Math.ceil(-tokens / permitsPerMilli);
+    }
+
+    private void refill(long time) {
+        if (time > lastRefill) {
+            tokens = Math.min(burstCapacity, tokens + (time - lastRefill) * permitsPerMilli);
+            lastRefill = time;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+/**
+ * Destination of messages which are still queued when the {@link ConcurrentJavaMailSender} shuts down, e.g. to persist
+ * them until they are sent by the next instance.
+ *
+ * @author Vincent Nadoll
+ */
+@FunctionalInterface
+public interface UnsentMailSink {
+
+    /**
+     * Takes over the given messages. Batches kept in a {@link FileMailSpool} are recovered from there and never handed
+     * over. The messages are of the type they were sent with, i.e. {@link org.springframework.mail.SimpleMailMessage},
+     * {@link javax.mail.internet.MimeMessage} or {@link org.springframework.mail.javamail.MimeMessagePreparator}.
+     *
+     * @param messages the messages which were not sent
+     * @throws Exception if the messages could not be taken over, in which case they are lost
+     */
+    void accept(Object[] messages) throws Exception;
+}
@@ -0,0 +1,80 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import org.springframework.util.Assert;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Kinds of threads the workers of the {@link ConcurrentJavaMailSender} run on. Since every worker blocks on its SMTP
+ * conversation most of the time, it doesn't need a platform thread of its own. Either way, every worker dispatches
+ * one batch at a time, so the number of workers bounds the number of concurrent SMTP sessions.
+ *
+ * @author Vincent Nadoll
+ */
+public enum WorkerExecutor {
+
+    /**
+     * Runs every worker on a thread of a fixed-size platform thread pool.
+     */
+    PLATFORM {
+        @Override
+        public ExecutorService create(int workers) {
+            return Executors.newFixedThreadPool(workers);
+        }
+    },
+
+    /**
+     * Runs every worker on a virtual thread of its own, which is unmounted from its carrier thread while waiting for
+     * the mail server. Batches aren't dispatched on additional threads, so concurrency is still capped at the number
+     * of workers, but raising it doesn't cost a platform thread per worker. Requires Java 21 or later.
+     */
+    VIRTUAL {
+        @Override
+        public ExecutorService create(int workers) {
+            Assert.state(isSupported(), "Virtual threads require Java 21 or later");
+            try {
+                return (ExecutorService) virtualThreadPerTaskExecutor().invoke(null);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Could not create virtual thread executor", e);
+            }
+        }
+
+        @Override
+        public boolean isSupported() {
+            try {
+                virtualThreadPerTaskExecutor();
+                return true;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    };
+
+    /**
+     * Creates an executor capable of running the given number of workers simultaneously.
+     *
+     * @param workers the number of workers
+     * @return a new executor
+     * @throws IllegalStateException if this kind of thread is not supported by the running JVM
+     */
+    public abstract ExecutorService create(int workers);
+
+    /**
+     * Checks whether this kind of worker thread is available.
+     *
+     * @return {@code true} if the running JVM supports this kind of thread
+     */
+    public boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * Looks up {@code Executors#newVirtualThreadPerTaskExecutor()} reflectively, so that this class still runs on
+     * earlier Java versions.
+     */
+    private static Method virtualThreadPerTaskExecutor() throws NoSuchMethodException {
+        return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+    }
+}
@@ -0,0 +1,109 @@
+package de.vinado.spring.mail.javamail.dkim;
+
+import net.markenwerk.utils.mail.dkim.Canonicalization;
+
+import java.io.OutputStream;
+import java.security.MessageDigest;
+
+/**
+ * {@link OutputStream} canonicalizing a message body according to RFC 6376, section 3.4.3 and 3.4.4, while it is
+ * written. Instead of being buffered, the canonical body is fed into a {@link MessageDigest} right away, so that the
+ * memory required doesn't depend on the size of the body. Only trailing
+ * line breaks and whitespace are held back until it is known whether further content follows. Bare CR and LF are
+ * treated as line breaks, just like the SMTP transport converts them.
+ *
+ * @author Vincent Nadoll
+ */
+class BodyCanonicalizer extends OutputStream {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final MessageDigest digest;
+    private final boolean relaxed;
+
+    private long length;
+    private int pendingLineBreaks;
+    private boolean pendingWhitespace;
+    private boolean carriageReturn;
+
+    BodyCanonicalizer(MessageDigest digest, Canonicalization canonicalization) {
+        this.digest = digest;
+        this.relaxed = Canonicalization.RELAXED == canonicalization;
+    }
+
+    @Override
+    public void write(int b) {
+        if (b == '\n' && carriageReturn) {
+            carriageReturn = false;
+            return;
+        }
+
+        carriageReturn = b == '\r';
+        if (b == '\r' || b == '\n') {
+            pendingLineBreaks++;
+            pendingWhitespace = false;
+        } else if (relaxed && (b == ' ' || b == '\t')) {
+            pendingWhitespace = true;
+        } else {
+            flushPending();
+            digest.update((byte) b);
+            length++;
+        }
+    }
+
+    /**
+     * Feeds runs of ordinary content into the digest at once, only line breaks and whitespace are processed byte by
+     * byte.
+     */
+    @Override
+    public void write(byte[] b, int off, int len) {
+        int end = off + len;
+        int i = off;
+        while (i < end) {
+            int run = i;
+            while (run < end && isContent(b[run])) {
+                run++;
+            }
+
+            if (run > i) {
+                flushPending();
+                digest.update(b, i, run - i);
+                length += run - i;
+                carriageReturn = false;
+                i = run;
+            } else {
+                write(b[i++]);
+            }
+        }
+    }
+
+    private boolean isContent(byte b) {
+        return b != '\r' && b != '\n' && !(relaxed && (b == ' ' || b == '\t'));
+    }
+
+    private void flushPending() {
+        for (; pendingLineBreaks > 0; pendingLineBreaks--) {
+            digest.update(CRLF);
+            length += CRLF.length;
+        }
+        if (pendingWhitespace) {
+            digest.update((byte) ' ');
+            length++;
+            pendingWhitespace = false;
+        }
+    }
+
+    /**
+     * Terminates the canonical body with a single line break, dropping any trailing empty lines. An empty body
+     * consists of a single line break if canonicalized simply, and remains empty otherwise.
+     *
+     * @return the hash and length of the canonical body
+     */
+    BodyHash finish() {
+        if (length > 0 || !relaxed) {
+            digest.update(CRLF);
+            length += CRLF.length;
+        }
+        return new BodyHash(digest.digest(), length);
+    }
+}
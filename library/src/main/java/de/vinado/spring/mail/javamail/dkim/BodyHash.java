@@ -0,0 +1,24 @@
+package de.vinado.spring.mail.javamail.dkim;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Base64;
+
+/**
+ * The hash and length of a canonical message body, which make up the {@code bh=} and {@code l=} tag of a DKIM
+ * signature.
+ *
+ * @author Vincent Nadoll
+ */
+@Getter
+@RequiredArgsConstructor
+class BodyHash {
+
+    private final byte[] hash;
+    private final long length;
+
+    String encode() {
+        return Base64.getEncoder().encodeToString(hash);
+    }
+}
@@ -0,0 +1,108 @@
+package de.vinado.spring.mail.javamail.dkim;
+
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import net.markenwerk.utils.mail.dkim.Canonicalization;
+import org.springframework.util.Assert;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of canonical body hashes. Bulk mailings usually send the very same body to every recipient, whose
+ * copies only differ in their headers. Since canonicalizing and hashing the body is independent of the headers, the
+ * {@code bh=} value is computed once per distinct body and reused for every other copy. Only the header signature is
+ * computed per message.
+ *
+ * <p>Bodies are identified by a digest of their encoded content, the canonicalization and the hash algorithm. Note
+ * that multipart bodies only match if they share their boundary, i.e. if the same multipart is sent repeatedly. The
+ * least recently used hash is evicted once the maximum size is reached.
+ *
+ * @author Vincent Nadoll
+ */
+public class BodyHashCache {
+
+    private final Map<Key, BodyHash> hashes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maximumSize the maximum number of body hashes to be cached
+     */
+    public BodyHashCache(int maximumSize) {
+        Assert.isTrue(maximumSize > 0, "Maximum size must be a positive integer");
+        this.hashes = new LinkedHashMap<Key, BodyHash>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, BodyHash> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached hash of the body identified by the given digest, or computes and caches it if absent. The
+     * computation happens outside of any lock, so that distinct bodies are hashed concurrently.
+     */
+    BodyHash get(byte[] contentDigest, Canonicalization canonicalization, String hashAlgorithm,
+                 Supplier<BodyHash> hasher) {
+        Key key = new Key(contentDigest, canonicalization, hashAlgorithm);
+        BodyHash bodyHash;
+        synchronized (hashes) {
+            bodyHash = hashes.get(key);
+        }
+        if (bodyHash != null) {
+            hits.incrementAndGet();
+            return bodyHash;
+        }
+
+        misses.incrementAndGet();
+        bodyHash = hasher.get();
+        synchronized (hashes) {
+            hashes.put(key, bodyHash);
+        }
+        return bodyHash;
+    }
+
+    /**
+     * Returns the number of cached entries.
+     *
+     * @return the number of cached body hashes
+     */
+    public int size() {
+        synchronized (hashes) {
+            return hashes.size();
+        }
+    }
+
+    /**
+     * Returns the number of cache hits.
+     *
+     * @return the number of bodies whose hash was taken from the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of cache misses.
+     *
+     * @return the number of bodies which had to be hashed
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class Key {
+
+        private final byte[] contentDigest;
+        private final Canonicalization canonicalization;
+        private final String hashAlgorithm;
+    }
+}
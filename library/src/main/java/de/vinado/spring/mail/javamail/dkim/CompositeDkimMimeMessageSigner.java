@@ -0,0 +1,48 @@
+package de.vinado.spring.mail.javamail.dkim;
+
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * {@link MimeMessageSigner} implementation adding the signature of every given {@link DkimMimeMessageSigner} to each
+ * message, e.g. an RSA and an Ed25519 one according to RFC 8463. Verifiers unaware of one of the algorithms ignore its
+ * signature and verify the other one.
+ *
+ * <p>The body is hashed only once if the signers share canonicalization and hash algorithm.
+ *
+ * @author Vincent Nadoll
+ */
+public class CompositeDkimMimeMessageSigner implements MimeMessageSigner {
+
+    private final List<DkimMimeMessageSigner> signers;
+
+    public CompositeDkimMimeMessageSigner(DkimMimeMessageSigner... signers) {
+        this(Arrays.asList(signers));
+    }
+
+    public CompositeDkimMimeMessageSigner(List<DkimMimeMessageSigner> signers) {
+        Assert.notEmpty(signers, "Signers must not be empty");
+        Assert.noNullElements(signers.toArray(), "Signers must not contain null elements");
+        this.signers = Collections.unmodifiableList(new ArrayList<>(signers));
+    }
+
+    /**
+     * Returns the signers of this composite.
+     *
+     * @return the signers in the order their signatures are prepended
+     */
+    public List<DkimMimeMessageSigner> getSigners() {
+        return signers;
+    }
+
+    @Override
+    public DkimSignedMimeMessage sign(MimeMessage message) throws MessagingException {
+        return new DkimSignedMimeMessage(message, signers);
+    }
+}
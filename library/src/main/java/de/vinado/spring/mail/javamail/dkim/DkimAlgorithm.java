@@ -0,0 +1,104 @@
+package de.vinado.spring.mail.javamail.dkim;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import net.markenwerk.utils.mail.dkim.SigningAlgorithm;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+
+/**
+ * Signing algorithms supported by the {@link DkimMimeMessageSigner}.
+ *
+ * <p>According to RFC 8463, {@link #ED25519_SHA256} signs the SHA-256 hash of the header data rather than the data
+ * itself. Ed25519 signatures are computed by the JDK, which supports them since Java 15.
+ *
+ * @author Vincent Nadoll
+ */
+@RequiredArgsConstructor
+public enum DkimAlgorithm {
+
+    RSA_SHA256("rsa-sha256", "RSA", "SHA256withRSA", "SHA-256", false),
+    RSA_SHA1("rsa-sha1", "RSA", "SHA1withRSA", "SHA-1", false),
+    ED25519_SHA256("ed25519-sha256", "Ed25519", "Ed25519", "SHA-256", true);
+
+    /**
+     * The value of the signature's {@code a=} tag.
+     */
+    @Getter
+    private final String tag;
+
+    /**
+     * The algorithm of the private key, as understood by {@link KeyFactory#getInstance(String)}.
+     */
+    @Getter
+    private final String keyAlgorithm;
+
+    private final String signatureAlgorithm;
+
+    @Getter
+    private final String hashAlgorithm;
+
+    /**
+     * Whether the hash of the header data is signed instead of the data itself.
+     */
+    private final boolean prehashed;
+
+    /**
+     * Checks whether this algorithm is available.
+     *
+     * @return {@code true} if the running JDK is capable of computing signatures of this algorithm
+     */
+    public boolean isSupported() {
+        try {
+            Signature.getInstance(signatureAlgorithm);
+            return true;
+        } catch (NoSuchAlgorithmException e) {
+            return false;
+        }
+    }
+
+    MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(hashAlgorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Hash algorithm " + hashAlgorithm + " is not supported", e);
+        }
+    }
+
+    byte[] sign(PrivateKey privateKey, byte[] data) throws GeneralSecurityException {
+        Signature signature = Signature.getInstance(signatureAlgorithm);
+        signature.initSign(privateKey);
+        signature.update(prehashed ? newDigest().digest(data) : data);
+        return signature.sign();
+    }
+
+    boolean verify(PublicKey publicKey, byte[] data, byte[] signature) throws GeneralSecurityException {
+        Signature verifier = Signature.getInstance(signatureAlgorithm);
+        verifier.initVerify(publicKey);
+        verifier.update(prehashed ? newDigest().digest(data) : data);
+        return verifier.verify(signature);
+    }
+
+    /**
+     * Maps the given algorithm of the {@link net.markenwerk.utils.mail.dkim.DkimSigner}.
+     *
+     * @param algorithm the algorithm to be mapped
+     * @return the corresponding algorithm
+     */
+    public static DkimAlgorithm of(SigningAlgorithm algorithm) {
+        switch (algorithm) {
+            case SHA256_WITH_RSA:
+                return RSA_SHA256;
+            case SHA1_WITH_RSA:
+                return RSA_SHA1;
+            default:
+                throw new IllegalArgumentException("Unsupported signing algorithm " + algorithm);
+        }
+    }
+}
@@ -1,37 +1,86 @@
 package de.vinado.spring.mail.javamail.dkim;
 
+import de.vinado.spring.mail.javamail.AsyncJavaMailSender;
 import de.vinado.spring.mail.javamail.JavaMailSenderDecorator;
+import lombok.Getter;
+import lombok.Setter;
 import net.markenwerk.utils.mail.dkim.DkimMessage;
 import net.markenwerk.utils.mail.dkim.DkimSigner;
+import org.springframework.core.NestedExceptionUtils;
 import org.springframework.mail.MailException;
 import org.springframework.mail.MailParseException;
 import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMailMessage;
 import org.springframework.mail.javamail.MimeMessagePreparator;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
 import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
 
 /**
  * Extended {@link org.springframework.mail.javamail.JavaMailSenderImpl} which signs off {@link MimeMessage MIME
- * messages} before shipment.
+ * messages} before shipment. Messages sent asynchronously are signed on the calling thread and handed over to the
+ * delegate, which dispatches them asynchronously if it is an {@link AsyncJavaMailSender} itself.
+ *
+ * <p>Large amounts of messages can be signed across multiple cores by configuring a dedicated {@link ForkJoinPool}. Any
+ * array exceeding the configured threshold is then split up and signed in parallel, while the signed messages are
+ * still handed over to the delegate in their original order. If signing fails, the failure of the first affected
+ * message is propagated.
+ *
+ * <p>If the delegate reports which messages failed to be sent, the failures are keyed by the messages passed in rather
+ * than their signed copies.
  *
  * @author Vincent Nadoll
  */
-public class DkimJavaMailSender extends JavaMailSenderDecorator implements JavaMailSender {
+public class DkimJavaMailSender extends JavaMailSenderDecorator implements AsyncJavaMailSender {
 
-    private final DkimSigner signer;
+    private final MimeMessageSigner signer;
+
+    /**
+     * The pool to sign large amounts of messages in parallel with. If {@code null}, messages are signed on the calling
+     * thread.
+     */
+    @Getter
+    @Setter
+    private ForkJoinPool signingPool;
+
+    @Getter
+    private int parallelSigningThreshold = 64;
+
+    /**
+     * The listener notified about the time it took to sign off every single message, {@code null} if there is none.
+     */
+    @Getter
+    @Setter
+    private SigningListener signingListener;
 
     DkimJavaMailSender(JavaMailSender delegate, DkimSigner signer) {
+        this(delegate, MimeMessageSigner.of(signer));
+    }
+
+    DkimJavaMailSender(JavaMailSender delegate, MimeMessageSigner signer) {
         super(delegate);
         this.signer = signer;
     }
 
+    public void setParallelSigningThreshold(int parallelSigningThreshold) {
+        Assert.isTrue(parallelSigningThreshold > 0, "Parallel signing threshold must be a positive integer");
+        this.parallelSigningThreshold = parallelSigningThreshold;
+    }
+
     @Override
     public void send(MimeMessage mimeMessage) throws MailException {
         send(new MimeMessage[]{mimeMessage});
@@ -39,11 +88,7 @@ public class DkimJavaMailSender extends JavaMailSenderDecorator implements JavaM
 
     @Override
     public void send(MimeMessage... mimeMessages) throws MailException {
-        MimeMessage[] signedMessages = Arrays.stream(mimeMessages)
-            .map(this::createSignedMimeMessage)
-            .toArray(MimeMessage[]::new);
-
-        super.send(signedMessages);
+        sendSigned(mimeMessages, sign(mimeMessages));
     }
 
     @Override
@@ -53,15 +98,152 @@ public class DkimJavaMailSender extends JavaMailSenderDecorator implements JavaM
 
     @Override
     public void send(MimeMessagePreparator... mimeMessagePreparators) throws MailException {
+        sendSigned(mimeMessagePreparators, sign(mimeMessagePreparators));
+    }
+
+    @Override
+    public void send(SimpleMailMessage simpleMessage) throws MailException {
+        send(new SimpleMailMessage[]{simpleMessage});
+    }
+
+    @Override
+    public void send(SimpleMailMessage... simpleMessages) throws MailException {
+        sendSigned(simpleMessages, sign(simpleMessages));
+    }
+
+    @Override
+    public CompletableFuture<Void> sendAsync(MimeMessage... mimeMessages) {
+        return dispatchAsync(mimeMessages, () -> sign(mimeMessages));
+    }
+
+    @Override
+    public CompletableFuture<Void> sendAsync(MimeMessagePreparator... mimeMessagePreparators) {
+        return dispatchAsync(mimeMessagePreparators, () -> sign(mimeMessagePreparators));
+    }
+
+    @Override
+    public CompletableFuture<Void> sendAsync(SimpleMailMessage... simpleMessages) {
+        return dispatchAsync(simpleMessages, () -> sign(simpleMessages));
+    }
+
+    /**
+     * Hands the signed messages over to the delegate. Failures the delegate reports per message are keyed by the
+     * original messages instead of their signed copies, so that the caller is able to tell which of its messages
+     * failed.
+     */
+    private void sendSigned(Object[] originalMessages, MimeMessage[] signedMessages) throws MailException {
+        try {
+            super.send(signedMessages);
+        } catch (MailSendException e) {
+            throw rekey(originalMessages, signedMessages, e);
+        }
+    }
+
+    /**
+     * Signs the messages on the calling thread and hands them over to the delegate. A delegate that is not capable of
+     * sending asynchronously is called synchronously. Either way, failures are keyed by the original messages.
+     */
+    private CompletableFuture<Void> dispatchAsync(Object[] originalMessages, Supplier<MimeMessage[]> signedMessages) {
         try {
-            List<MimeMessage> mimeMessages = new ArrayList<>(mimeMessagePreparators.length);
-            for (MimeMessagePreparator preparator : mimeMessagePreparators) {
-                MimeMessage mimeMessage = createMimeMessage();
-                preparator.prepare(mimeMessage);
-                mimeMessages.add(createSignedMimeMessage(mimeMessage));
+            MimeMessage[] mimeMessages = signedMessages.get();
+            JavaMailSender delegate = getDelegate();
+            if (!(delegate instanceof AsyncJavaMailSender)) {
+                sendSigned(originalMessages, mimeMessages);
+                return CompletableFuture.completedFuture(null);
             }
 
-            super.send(mimeMessages.toArray(new MimeMessage[0]));
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            ((AsyncJavaMailSender) delegate).sendAsync(mimeMessages).whenComplete((result, e) -> {
+                if (e == null) {
+                    future.complete(null);
+                } else {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    future.completeExceptionally(cause instanceof MailSendException
+                        ? rekey(originalMessages, mimeMessages, (MailSendException) cause)
+                        : cause);
+                }
+            });
+            return future;
+        } catch (MailException e) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * Maps the failed messages of the given exception back to the messages passed by the caller.
+     *
+     * @return an exception reporting the failed messages of the given one by their originals, or the given one if it
+     *     doesn't report any message
+     */
+    private static MailSendException rekey(Object[] originalMessages,
+                                           MimeMessage[] signedMessages,
+                                           MailSendException exception) {
+        if (exception.getFailedMessages().isEmpty()) {
+            return exception;
+        }
+
+        Map<Object, Object> originals = new IdentityHashMap<>();
+        for (int i = 0; i < signedMessages.length; i++) {
+            originals.put(signedMessages[i], originalMessages[i]);
+        }
+
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        exception.getFailedMessages().forEach((message, failure) ->
+            failedMessages.put(originals.getOrDefault(message, message), failure));
+        return new MailSendException(detailMessage(exception), exception.getCause(), failedMessages);
+    }
+
+    /**
+     * Extracts the message text of the given exception. Its failed messages and cause are left out, since the
+     * exception rekeying it reports them on its own.
+     *
+     * @return the message the given exception was created with, {@code null} if there is none
+     */
+    private static String detailMessage(MailSendException exception) {
+        String message = exception.getMessage();
+        message = removeSuffix(message, new MailSendException(exception.getFailedMessages()).getMessage(), ". ");
+        message = removeSuffix(message, NestedExceptionUtils.buildMessage(null, exception.getCause()), "; ");
+        return StringUtils.hasLength(message) ? message : null;
+    }
+
+    private static String removeSuffix(String message, String suffix, String separator) {
+        if (message == null || suffix == null || !message.endsWith(suffix)) {
+            return message;
+        }
+
+        String remainder = message.substring(0, message.length() - suffix.length());
+        return remainder.endsWith(separator)
+            ? remainder.substring(0, remainder.length() - separator.length())
+            : remainder;
+    }
+
+    private MimeMessage[] sign(MimeMessage[] mimeMessages) throws MailException {
+        if (signingPool == null || mimeMessages.length < parallelSigningThreshold) {
+            return Arrays.stream(mimeMessages)
+                .map(this::createSignedMimeMessage)
+                .toArray(MimeMessage[]::new);
+        }
+
+        SigningTask task = new SigningTask(mimeMessages, 0, mimeMessages.length,
+            Math.max(1, mimeMessages.length / (signingPool.getParallelism() * 4)));
+        signingPool.invoke(task);
+        return task.getSignedMessages();
+    }
+
+    /**
+     * Messages are prepared on the calling thread, since the preparators are not expected to be thread-safe.
+     */
+    private MimeMessage[] sign(MimeMessagePreparator[] mimeMessagePreparators) throws MailException {
+        try {
+            MimeMessage[] mimeMessages = new MimeMessage[mimeMessagePreparators.length];
+            for (int i = 0; i < mimeMessagePreparators.length; i++) {
+                mimeMessages[i] = createMimeMessage();
+                mimeMessagePreparators[i].prepare(mimeMessages[i]);
+            }
+
+            return sign(mimeMessages);
         } catch (MailException ex) {
             throw ex;
         } catch (MessagingException ex) {
@@ -71,36 +253,95 @@ public class DkimJavaMailSender extends JavaMailSenderDecorator implements JavaM
         }
     }
 
-    @Override
-    public void send(SimpleMailMessage simpleMessage) throws MailException {
-        send(new SimpleMailMessage[]{simpleMessage});
-    }
-
-    @Override
-    public void send(SimpleMailMessage... simpleMessages) throws MailException {
-        List<MimeMessage> mimeMessages = new ArrayList<>(simpleMessages.length);
-        for (SimpleMailMessage simpleMessage : simpleMessages) {
+    private MimeMessage[] sign(SimpleMailMessage[] simpleMessages) throws MailException {
+        MimeMessage[] mimeMessages = new MimeMessage[simpleMessages.length];
+        for (int i = 0; i < simpleMessages.length; i++) {
             MimeMailMessage message = new MimeMailMessage(createMimeMessage());
-            simpleMessage.copyTo(message);
-            mimeMessages.add(createSignedMimeMessage(message.getMimeMessage()));
+            simpleMessages[i].copyTo(message);
+            mimeMessages[i] = message.getMimeMessage();
         }
 
-        super.send(mimeMessages.toArray(new MimeMessage[0]));
+        return sign(mimeMessages);
     }
 
     /**
-     * This implementation creates a {@link DkimMessage} which is signed off with the configured private key before
-     * shipment.
+     * This implementation creates a copy of the given message using the configured {@link MimeMessageSigner}, which is
+     * signed off before shipment. Unless configured otherwise, this is a {@link DkimMessage} signed off with the
+     * configured private key.
      *
      * @param message must not be {@code null}
-     * @return new {@link DkimMessage}
+     * @return the signable copy of the message
      * @throws MailException in case copying raw data from the original to the signable message fails
      */
     public MimeMessage createSignedMimeMessage(MimeMessage message) throws MailException {
         try {
-            return new DkimMessage(message, signer);
+            long start = System.nanoTime();
+            MimeMessage signedMessage = signer.sign(message);
+            if (signedMessage instanceof DkimSignedMimeMessage) {
+                ((DkimSignedMimeMessage) signedMessage).setSigningListener(signingListener);
+            } else if (signingListener != null) {
+                signingListener.onSigned(System.nanoTime() - start);
+            }
+            return signedMessage;
         } catch (MessagingException e) {
             throw new MailParseException("Could not parse raw MIME content", e);
         }
     }
+
+
+    /**
+     * Signs a range of messages by splitting it up until it doesn't exceed the chunk size. The signed messages are
+     * stored at their original index, so that their order is preserved.
+     */
+    private final class SigningTask extends RecursiveAction {
+
+        private final MimeMessage[] messages;
+        private final MimeMessage[] signedMessages;
+        private final RuntimeException[] failures;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        private SigningTask(MimeMessage[] messages, int from, int to, int chunkSize) {
+            this(messages, new MimeMessage[messages.length], new RuntimeException[messages.length], from, to,
+                chunkSize);
+        }
+
+        private SigningTask(MimeMessage[] messages, MimeMessage[] signedMessages, RuntimeException[] failures,
+                            int from, int to, int chunkSize) {
+            this.messages = messages;
+            this.signedMessages = signedMessages;
+            this.failures = failures;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                for (int i = from; i < to; i++) {
+                    try {
+                        signedMessages[i] = createSignedMimeMessage(messages[i]);
+                    } catch (RuntimeException e) {
+                        failures[i] = e;
+                    }
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new SigningTask(messages, signedMessages, failures, from, middle, chunkSize),
+                new SigningTask(messages, signedMessages, failures, middle, to, chunkSize));
+        }
+
+        private MimeMessage[] getSignedMessages() throws MailException {
+            for (RuntimeException failure : failures) {
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+            return signedMessages;
+        }
+    }
 }
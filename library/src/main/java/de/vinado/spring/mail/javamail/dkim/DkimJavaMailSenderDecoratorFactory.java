@@ -1,19 +1,51 @@
 package de.vinado.spring.mail.javamail.dkim;
 
 import de.vinado.spring.mail.javamail.JavaMailSenderDecoratorFactory;
-import lombok.RequiredArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
 import net.markenwerk.utils.mail.dkim.DkimSigner;
 import org.springframework.mail.javamail.JavaMailSender;
 
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * Factory implementation for decorating any {@link JavaMailSender}.
  *
  * @author Vincent Nadoll
  */
-@RequiredArgsConstructor
 public class DkimJavaMailSenderDecoratorFactory implements JavaMailSenderDecoratorFactory {
 
-    private final DkimSigner signer;
+    private final MimeMessageSigner signer;
+
+    /**
+     * The pool to sign large amounts of messages in parallel with. If {@code null}, messages are signed on the calling
+     * thread.
+     */
+    @Getter
+    @Setter
+    private ForkJoinPool signingPool;
+
+    /**
+     * Minimum number of messages sent at once to be signed in parallel.
+     */
+    @Getter
+    @Setter
+    private int parallelSigningThreshold = 64;
+
+    /**
+     * The listener notified about the time it took to sign off every single message, {@code null} if there is none.
+     */
+    @Getter
+    @Setter
+    private SigningListener signingListener;
+
+    public DkimJavaMailSenderDecoratorFactory(DkimSigner signer) {
+        this(MimeMessageSigner.of(signer));
+    }
+
+    public DkimJavaMailSenderDecoratorFactory(MimeMessageSigner signer) {
+        this.signer = signer;
+    }
 
     /**
      * Decorates the given {@link JavaMailSender} with a new instance of {@link DkimJavaMailSender}.
@@ -23,6 +55,10 @@ public class DkimJavaMailSenderDecoratorFactory implements JavaMailSenderDecorat
      */
     @Override
     public DkimJavaMailSender decorate(JavaMailSender delegate) {
-        return new DkimJavaMailSender(delegate, signer);
+        DkimJavaMailSender sender = new DkimJavaMailSender(delegate, signer);
+        sender.setSigningPool(signingPool);
+        sender.setParallelSigningThreshold(parallelSigningThreshold);
+        sender.setSigningListener(signingListener);
+        return sender;
     }
 }
@@ -0,0 +1,377 @@
+package de.vinado.spring.mail.javamail.dkim;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import net.markenwerk.utils.mail.dkim.Canonicalization;
+import org.springframework.util.Assert;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * {@link MimeMessageSigner} implementation computing DKIM signatures according to RFC 6376 on its own. Contrary to the
+ * {@link net.markenwerk.utils.mail.dkim.DkimSigner}, the body hash may be taken from a {@link BodyHashCache}, so that
+ * only the header signature is computed for every copy of the same body.
+ *
+ * @author Vincent Nadoll
+ */
+public class DkimMimeMessageSigner implements MimeMessageSigner {
+
+    static final String SIGNATURE_HEADER = "DKIM-Signature";
+
+    private static final List<String> DEFAULT_SIGNED_HEADERS = Collections.unmodifiableList(Arrays.asList(
+        "From", "Sender", "Reply-To", "Subject", "Date", "Message-ID", "To", "Cc", "MIME-Version", "Content-Type",
+        "Content-Transfer-Encoding", "Content-ID", "Content-Description", "In-Reply-To", "References", "List-Id",
+        "List-Help", "List-Unsubscribe", "List-Subscribe", "List-Post", "List-Owner", "List-Archive"));
+
+    private static final Pattern LINE_BREAK = Pattern.compile("\r\n|\r|\n");
+    private static final Pattern WHITESPACE = Pattern.compile("[ \t]+");
+
+    @Getter
+    private final String signingDomain;
+
+    @Getter
+    private final String selector;
+
+    private final PrivateKeyProvider privateKeyProvider;
+
+    /**
+     * The agent or user identifier on behalf of which the message is signed, or {@code null} to omit the {@code i=}
+     * tag.
+     */
+    @Getter
+    @Setter
+    private String identity;
+
+    @Getter
+    private Canonicalization headerCanonicalization = Canonicalization.SIMPLE;
+
+    @Getter
+    private Canonicalization bodyCanonicalization = Canonicalization.RELAXED;
+
+    @Getter
+    private DkimAlgorithm algorithm = DkimAlgorithm.RSA_SHA256;
+
+    /**
+     * Whether the length of the canonical body is added as {@code l=} tag.
+     */
+    @Getter
+    @Setter
+    private boolean lengthParam = true;
+
+    /**
+     * Whether the public key published in the DNS is checked against the private key before the first message is
+     * signed with it.
+     */
+    @Getter
+    @Setter
+    private boolean checkDomainKey = false;
+
+    /**
+     * Whether the signed headers are copied into the {@code z=} tag, which helps diagnosing verification failures.
+     */
+    @Getter
+    @Setter
+    private boolean copyHeaderFields = false;
+
+    @Getter
+    private List<String> signedHeaders = DEFAULT_SIGNED_HEADERS;
+
+    /**
+     * The cache to take body hashes from. If {@code null}, every body is hashed.
+     */
+    @Getter
+    @Setter
+    private BodyHashCache bodyHashCache;
+
+    @Setter(AccessLevel.PACKAGE)
+    private DomainKey.Resolver domainKeyResolver = DomainKey::lookup;
+
+    /**
+     * The private key which has been checked against the domain key last, {@code null} if none has been checked.
+     */
+    private volatile PrivateKey checkedPrivateKey;
+
+    /**
+     * Creates a new signer.
+     *
+     * @param signingDomain the domain whose DNS record holds the public key
+     * @param selector      the selector of the DNS record
+     * @param privateKey    the key to sign the messages with
+     */
+    public DkimMimeMessageSigner(String signingDomain, String selector, PrivateKey privateKey) {
+        this(signingDomain, selector, PrivateKeyProvider.of(privateKey));
+    }
+
+    /**
+     * Creates a new signer whose key is obtained from the given provider for every signature, e.g. to rotate the key
+     * without replacing the signer.
+     *
+     * @param signingDomain      the domain whose DNS record holds the public key
+     * @param selector           the selector of the DNS record
+     * @param privateKeyProvider the provider of the key to sign the messages with
+     */
+    public DkimMimeMessageSigner(String signingDomain, String selector, PrivateKeyProvider privateKeyProvider) {
+        Assert.hasText(signingDomain, "Signing domain must not be empty");
+        Assert.hasText(selector, "Selector must not be empty");
+        Assert.notNull(privateKeyProvider, "Private key provider must not be null");
+
+        this.signingDomain = signingDomain;
+        this.selector = selector;
+        this.privateKeyProvider = privateKeyProvider;
+    }
+
+    public void setHeaderCanonicalization(Canonicalization headerCanonicalization) {
+        Assert.notNull(headerCanonicalization, "Header canonicalization must not be null");
+        this.headerCanonicalization = headerCanonicalization;
+    }
+
+    public void setBodyCanonicalization(Canonicalization bodyCanonicalization) {
+        Assert.notNull(bodyCanonicalization, "Body canonicalization must not be null");
+        this.bodyCanonicalization = bodyCanonicalization;
+    }
+
+    public void setAlgorithm(DkimAlgorithm algorithm) {
+        Assert.notNull(algorithm, "Algorithm must not be null");
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Replaces the names of the headers to be signed. Every instance of a named header present in the message is
+     * signed, headers missing in the message are skipped.
+     *
+     * @param signedHeaders the names of the headers to be signed
+     */
+    public void setSignedHeaders(List<String> signedHeaders) {
+        Assert.notEmpty(signedHeaders, "Signed headers must not be empty");
+        this.signedHeaders = Collections.unmodifiableList(new ArrayList<>(signedHeaders));
+    }
+
+    @Override
+    public DkimSignedMimeMessage sign(MimeMessage message) throws MessagingException {
+        return new DkimSignedMimeMessage(message, Collections.singletonList(this));
+    }
+
+    /**
+     * Creates the {@code DKIM-Signature} header of the given message by signing its headers.
+     *
+     * @param message    the message to be signed
+     * @param ignoreList the headers not written to the transport
+     * @param bodyHash   the hash of the message body as computed by {@link #hashBody(DkimSignedMimeMessage, String[])}
+     * @return the complete header line without trailing line break
+     * @throws MessagingException if the message could not be signed
+     * @throws IOException        if the header data could not be buffered
+     */
+    String createSignature(DkimSignedMimeMessage message, String[] ignoreList, BodyHash bodyHash)
+        throws MessagingException, IOException {
+        PrivateKey privateKey = privateKeyProvider.getPrivateKey();
+        if (checkDomainKey) {
+            checkDomainKey(privateKey);
+        }
+
+        List<String> headerNames = new ArrayList<>();
+        List<String> headerLines = new ArrayList<>();
+        List<String> ignored = ignoreList == null ? Collections.emptyList() : Arrays.asList(ignoreList);
+        for (String name : signedHeaders) {
+            if (ignored.stream().anyMatch(name::equalsIgnoreCase)) {
+                continue;
+            }
+
+            List<String> lines = Collections.list(message.getMatchingHeaderLines(new String[]{name}));
+            for (int i = lines.size() - 1; i >= 0; i--) {
+                headerNames.add(name);
+                headerLines.add(lines.get(i));
+            }
+        }
+
+        String header = SIGNATURE_HEADER + ": v=1; a=" + algorithm.getTag()
+            + "; c=" + tagValue(headerCanonicalization) + "/" + tagValue(bodyCanonicalization)
+            + "; d=" + signingDomain + "; s=" + selector
+            + (identity == null ? "" : "; i=" + identity)
+            + "; t=" + System.currentTimeMillis() / 1000
+            + (lengthParam ? "; l=" + bodyHash.getLength() : "")
+            + ";\r\n\th=" + String.join(":", headerNames)
+            + (copyHeaderFields ? ";\r\n\tz=" + copyHeaderFields(headerLines) : "")
+            + ";\r\n\tbh=" + bodyHash.encode()
+            + ";\r\n\tb=";
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        for (String line : headerLines) {
+            data.write((canonicalizeHeader(headerCanonicalization, line) + "\r\n").getBytes(UTF_8));
+        }
+        data.write(canonicalizeHeader(headerCanonicalization, header).getBytes(US_ASCII));
+
+        try {
+            byte[] signature = algorithm.sign(privateKey, data.toByteArray());
+            return header + Base64.getEncoder().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new MessagingException("Could not sign message", e);
+        }
+    }
+
+    /**
+     * Checks the given key against the domain key unless it has already been checked, so that the DNS is only queried
+     * once per key.
+     */
+    private void checkDomainKey(PrivateKey privateKey) throws MessagingException {
+        if (privateKey == checkedPrivateKey) {
+            return;
+        }
+
+        String name = DomainKey.recordName(signingDomain, selector);
+        DomainKey.parse(name, domainKeyResolver.resolve(name)).check(algorithm, identity, signingDomain, privateKey);
+        checkedPrivateKey = privateKey;
+    }
+
+    /**
+     * Encodes the given header lines as value of the {@code z=} tag according to RFC 6376, section 3.5. The lines are
+     * unfolded and their values encoded as DKIM-Quoted-Printable, which is folded at 72 characters.
+     */
+    private static String copyHeaderFields(List<String> headerLines) {
+        List<String> fields = new ArrayList<>(headerLines.size());
+        for (String line : headerLines) {
+            int colon = line.indexOf(':');
+            String value = LINE_BREAK.matcher(line.substring(colon + 1)).replaceAll("").trim();
+            StringBuilder field = new StringBuilder(line.substring(0, colon).trim()).append(':');
+            int folded = 0;
+            for (byte b : value.getBytes(UTF_8)) {
+                if (field.length() - folded >= 72) {
+                    field.append("\r\n\t");
+                    folded = field.length();
+                }
+
+                int octet = b & 0xFF;
+                if (octet > 0x20 && octet < 0x7F && octet != ';' && octet != '=' && octet != '|') {
+                    field.append((char) octet);
+                } else {
+                    field.append('=').append(String.format("%02X", octet));
+                }
+            }
+            fields.add(field.toString());
+        }
+        return String.join("|\r\n\t", fields);
+    }
+
+    /**
+     * Checks whether the given signer may share the body hash cache of this one.
+     *
+     * @param other the signer to compare with
+     * @return {@code true} if both signers compute the same body hash of any message
+     */
+    boolean hashesBodyLike(DkimMimeMessageSigner other) {
+        return bodyCanonicalization == other.bodyCanonicalization
+            && algorithm.getHashAlgorithm().equals(other.algorithm.getHashAlgorithm());
+    }
+
+    /**
+     * Streams the body through the canonicalizer. If a cache is configured, the body is streamed through a digest
+     * first, and only canonicalized if its hash is not cached yet.
+     */
+    BodyHash hashBody(DkimSignedMimeMessage message, String[] ignoreList)
+        throws MessagingException, IOException {
+        if (bodyHashCache == null) {
+            return canonicalizeBody(message, ignoreList);
+        }
+
+        MessageDigest digest = algorithm.newDigest();
+        message.writeBodyTo(new DigestOutputStream(digest), ignoreList);
+        try {
+            return bodyHashCache.get(digest.digest(), bodyCanonicalization, algorithm.getHashAlgorithm(), () -> {
+                try {
+                    return canonicalizeBody(message, ignoreList);
+                } catch (MessagingException | IOException e) {
+                    throw new BodyHashException(e);
+                }
+            });
+        } catch (BodyHashException e) {
+            throw e.unwrap();
+        }
+    }
+
+    private BodyHash canonicalizeBody(DkimSignedMimeMessage message, String[] ignoreList)
+        throws MessagingException, IOException {
+        BodyCanonicalizer canonicalizer = new BodyCanonicalizer(algorithm.newDigest(), bodyCanonicalization);
+        message.writeBodyTo(canonicalizer, ignoreList);
+        return canonicalizer.finish();
+    }
+
+    /**
+     * Canonicalizes a raw header line according to RFC 6376, section 3.4.1 and 3.4.2.
+     *
+     * @param canonicalization the canonicalization to be applied
+     * @param line             the raw header line including any folding but without trailing line break
+     * @return the canonical header line without trailing line break
+     */
+    static String canonicalizeHeader(Canonicalization canonicalization, String line) {
+        if (Canonicalization.RELAXED != canonicalization) {
+            return line;
+        }
+
+        int colon = line.indexOf(':');
+        String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+        String value = LINE_BREAK.matcher(line.substring(colon + 1)).replaceAll("");
+        return name + ":" + WHITESPACE.matcher(value).replaceAll(" ").trim();
+    }
+
+    private static String tagValue(Canonicalization canonicalization) {
+        return canonicalization.name().toLowerCase(Locale.ROOT);
+    }
+
+
+    /**
+     * Feeds every byte written into a {@link MessageDigest}.
+     */
+    private static final class DigestOutputStream extends OutputStream {
+
+        private final MessageDigest digest;
+
+        private DigestOutputStream(MessageDigest digest) {
+            this.digest = digest;
+        }
+
+        @Override
+        public void write(int b) {
+            digest.update((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            digest.update(b, off, len);
+        }
+    }
+
+
+    /**
+     * Tunnels checked exceptions through the computation of a cached body hash.
+     */
+    private static final class BodyHashException extends RuntimeException {
+
+        private BodyHashException(Exception cause) {
+            super(cause);
+        }
+
+        private MessagingException unwrap() throws IOException {
+            if (getCause() instanceof IOException) {
+                throw (IOException) getCause();
+            }
+            return (MessagingException) getCause();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package de.vinado.spring.mail.javamail.dkim;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.List;
+import javax.mail.MessagingException;
+import javax.mail.internet.InternetHeaders;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * View of a {@link MimeMessage} which is signed off by the {@link DkimMimeMessageSigner} every time it is written. The
+ * signature is computed over exactly the bytes handed over to the transport and prepended as {@code DKIM-Signature}
+ * header. If signed by several signers, e.g. RSA and Ed25519 ones, each signature is prepended in order and the body
+ * hash is shared by signers using the same canonicalization and hash algorithm.
+ *
+ * <p>Only the headers of the original message are copied, its content is shared. Since the signature has to precede
+ * the body it covers, the message is written twice. The first pass only streams the body through the canonicalizer
+ * and hash function, the second one writes the message to the transport. Hence, no matter how large the attachments
+ * are, the message is never buffered.
+ *
+ * @author Vincent Nadoll
+ */
+public class DkimSignedMimeMessage extends MimeMessage {
+
+    private final List<DkimMimeMessageSigner> signers;
+
+    /**
+     * The listener notified every time this message is signed off, {@code null} if there is none.
+     */
+    private SigningListener signingListener;
+
+    DkimSignedMimeMessage(MimeMessage message, List<DkimMimeMessageSigner> signers) throws MessagingException {
+        super(message.getSession());
+        this.signers = signers;
+
+        this.headers = new InternetHeaders();
+        Enumeration<String> headerLines = message.getAllHeaderLines();
+        while (headerLines.hasMoreElements()) {
+            headers.addHeaderLine(headerLines.nextElement());
+        }
+        this.dh = message.getDataHandler();
+    }
+
+    void setSigningListener(SigningListener signingListener) {
+        this.signingListener = signingListener;
+    }
+
+    @Override
+    public void writeTo(OutputStream os, String[] ignoreList) throws IOException, MessagingException {
+        long start = System.nanoTime();
+        StringBuilder signatures = new StringBuilder();
+        DkimMimeMessageSigner hashedBy = null;
+        BodyHash bodyHash = null;
+        for (DkimMimeMessageSigner signer : signers) {
+            if (hashedBy == null || !signer.hashesBodyLike(hashedBy)) {
+                bodyHash = signer.hashBody(this, ignoreList);
+                hashedBy = signer;
+            }
+
+            signatures.append(signer.createSignature(this, ignoreList, bodyHash)).append("\r\n");
+        }
+        if (signingListener != null) {
+            signingListener.onSigned(System.nanoTime() - start);
+        }
+
+        os.write(signatures.toString().getBytes(StandardCharsets.US_ASCII));
+        super.writeTo(os, ignoreList);
+    }
+
+    /**
+     * Writes the body of this message without any signature.
+     *
+     * @param os         the stream to write the body to
+     * @param ignoreList the headers not written to the transport
+     */
+    void writeBodyTo(OutputStream os, String[] ignoreList) throws IOException, MessagingException {
+        super.writeTo(new BodyOutputStream(os), ignoreList);
+    }
+
+
+    /**
+     * Drops everything up to and including the empty line separating the header from the body.
+     */
+    private static final class BodyOutputStream extends OutputStream {
+
+        private final OutputStream body;
+        private int separator;
+
+        private BodyOutputStream(OutputStream body) {
+            this.body = body;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (separator == 4) {
+                body.write(b);
+            } else if (b == (separator % 2 == 0 ? '\r' : '\n')) {
+                separator++;
+            } else {
+                separator = b == '\r' ? 1 : 0;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            int i = off;
+            while (separator < 4 && i < off + len) {
+                write(b[i++]);
+            }
+            if (i < off + len) {
+                body.write(b, i, off + len - i);
+            }
+        }
+    }
+}
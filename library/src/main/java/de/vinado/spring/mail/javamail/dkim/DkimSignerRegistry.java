@@ -0,0 +1,120 @@
+package de.vinado.spring.mail.javamail.dkim;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import net.markenwerk.utils.mail.dkim.DkimSigner;
+import org.springframework.util.Assert;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.mail.Address;
+import javax.mail.MessagingException;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * {@link MimeMessageSigner} implementation picking the signer per message by the domain of its sender. Hence, a single
+ * sender is able to sign messages of any number of domains, e.g. one per tenant.
+ *
+ * <p>The signer is looked up by the domain of the {@code From} address first, and by the domain of the {@code Sender}
+ * address otherwise. If there is no signer registered for a subdomain, its parent domains are looked up as well.
+ * Messages of any other domain are signed by the default signer, or not signed at all if there is none.
+ *
+ * @author Vincent Nadoll
+ */
+@Slf4j
+public class DkimSignerRegistry implements MimeMessageSigner {
+
+    private final Map<String, MimeMessageSigner> signers = new ConcurrentHashMap<>();
+
+    /**
+     * The signer of messages whose domain is not registered. If {@code null}, those messages are not signed.
+     */
+    @Getter
+    @Setter
+    private MimeMessageSigner defaultSigner;
+
+    /**
+     * Registers the signer of the given domain, replacing any signer registered before.
+     *
+     * @param domain the domain of the messages to be signed
+     * @param signer the signer to sign the messages with
+     */
+    public void register(String domain, MimeMessageSigner signer) {
+        Assert.hasText(domain, "Domain must not be empty");
+        Assert.notNull(signer, "Signer must not be null");
+        signers.put(normalize(domain), signer);
+    }
+
+    /**
+     * Registers the signer of the given domain, replacing any signer registered before.
+     *
+     * @param domain the domain of the messages to be signed
+     * @param signer the signer to sign the messages with
+     */
+    public void register(String domain, DkimSigner signer) {
+        register(domain, MimeMessageSigner.of(signer));
+    }
+
+    /**
+     * Returns the signer of the given domain.
+     *
+     * @param domain the domain to look up
+     * @return the signer registered for exactly the given domain, {@code null} if there is none
+     */
+    public MimeMessageSigner getSigner(String domain) {
+        return signers.get(normalize(domain));
+    }
+
+    @Override
+    public MimeMessage sign(MimeMessage message) throws MessagingException {
+        MimeMessageSigner signer = lookup(message.getFrom());
+        if (signer == null) {
+            signer = lookup(message.getSender());
+        }
+        if (signer == null) {
+            signer = defaultSigner;
+        }
+
+        if (signer == null) {
+            if (log.isDebugEnabled()) log.debug("No signer registered for {}, message is not signed", message);
+            return message;
+        }
+        return signer.sign(message);
+    }
+
+    private MimeMessageSigner lookup(Address... addresses) {
+        if (addresses == null) {
+            return null;
+        }
+
+        for (Address address : addresses) {
+            if (!(address instanceof InternetAddress)) {
+                continue;
+            }
+
+            String email = ((InternetAddress) address).getAddress();
+            int at = email == null ? -1 : email.lastIndexOf('@');
+            for (String domain = at < 0 ? null : normalize(email.substring(at + 1));
+                 domain != null;
+                 domain = parent(domain)) {
+                MimeMessageSigner signer = signers.get(domain);
+                if (signer != null) {
+                    return signer;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String parent(String domain) {
+        int dot = domain.indexOf('.');
+        return dot < 0 || domain.indexOf('.', dot + 1) < 0 ? null : domain.substring(dot + 1);
+    }
+
+    private static String normalize(String domain) {
+        return domain.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,47 @@
+package de.vinado.spring.mail.javamail.dkim;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SigningListener} recording the time it took to sign off every single message as {@code mail.dkim.signing}
+ * timer into every registry it is bound to.
+ *
+ * @author Vincent Nadoll
+ */
+public class DkimSigningMetrics implements SigningListener, MeterBinder {
+
+    private final Iterable<Tag> tags;
+    private final List<Timer> timers = new CopyOnWriteArrayList<>();
+
+    public DkimSigningMetrics() {
+        this(Tags.empty());
+    }
+
+    public DkimSigningMetrics(Iterable<Tag> tags) {
+        this.tags = tags;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        timers.add(Timer.builder("mail.dkim.signing")
+            .description("Time it took to sign off a single message")
+            .tags(tags)
+            .publishPercentileHistogram()
+            .register(registry));
+    }
+
+    @Override
+    public void onSigned(long nanos) {
+        for (Timer timer : timers) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
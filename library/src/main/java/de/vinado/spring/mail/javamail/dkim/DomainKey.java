@@ -0,0 +1,190 @@
+package de.vinado.spring.mail.javamail.dkim;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import javax.mail.MessagingException;
+import javax.naming.Context;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.InitialDirContext;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Public key record published in the DNS according to RFC 6376, section 3.6.1, which is checked against the private
+ * key before messages are signed with it. Any message signed with a key not matching its record would fail
+ * verification at the receiving side.
+ *
+ * @author Vincent Nadoll
+ */
+final class DomainKey {
+
+    /**
+     * DER prefix of an X.509 encoded Ed25519 public key, which RFC 8463 publishes as raw 32 bytes.
+     */
+    private static final byte[] ED25519_X509_PREFIX = {
+        0x30, 0x2a, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x70, 0x03, 0x21, 0x00};
+
+    private static final byte[] PROBE = "DKIM domain key check".getBytes(US_ASCII);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final String name;
+    private final Map<String, String> tags;
+
+    private DomainKey(String name, Map<String, String> tags) {
+        this.name = name;
+        this.tags = tags;
+    }
+
+    /**
+     * Composes the name of the DNS record holding the public key of the given selector.
+     *
+     * @param signingDomain the domain whose DNS record holds the public key
+     * @param selector      the selector of the DNS record
+     * @return the name of the DNS record holding the public key
+     */
+    static String recordName(String signingDomain, String selector) {
+        return selector + "._domainkey." + signingDomain;
+    }
+
+    /**
+     * Parses the given record.
+     *
+     * @param name   the name of the DNS record, used in error messages only
+     * @param record the text of the DNS record
+     * @return a new {@link DomainKey}
+     */
+    static DomainKey parse(String name, String record) {
+        Map<String, String> tags = new LinkedHashMap<>();
+        for (String tag : record.split(";")) {
+            int separator = tag.indexOf('=');
+            if (separator > 0) {
+                tags.put(tag.substring(0, separator).trim(), tag.substring(separator + 1).trim());
+            }
+        }
+        return new DomainKey(name, tags);
+    }
+
+    /**
+     * Looks up the {@code TXT} record of the given name.
+     *
+     * @param name the name of the DNS record
+     * @return the text of the record, joined if split into several strings
+     * @throws MessagingException if the record does not exist or the lookup fails
+     */
+    static String lookup(String name) throws MessagingException {
+        Hashtable<String, String> environment = new Hashtable<>();
+        environment.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.dns.DnsContextFactory");
+        try {
+            DirContext context = new InitialDirContext(environment);
+            try {
+                Attribute txt = context.getAttributes(name, new String[]{"TXT"}).get("TXT");
+                if (txt == null || txt.size() == 0) {
+                    throw new MessagingException("No domain key found at " + name);
+                }
+                return String.valueOf(txt.get(0)).replaceAll("\"\\s*\"", "").replace("\"", "");
+            } finally {
+                context.close();
+            }
+        } catch (NamingException e) {
+            throw new MessagingException("Could not look up domain key at " + name, e);
+        }
+    }
+
+    /**
+     * Checks whether this record permits signing messages with the given algorithm and identity, and whether its
+     * public key matches the given private key.
+     *
+     * @param algorithm     the algorithm messages are signed with
+     * @param identity      the agent or user identifier on behalf of which messages are signed, may be {@code null}
+     * @param signingDomain the domain messages are signed for
+     * @param privateKey    the key messages are signed with
+     * @throws MessagingException if messages signed this way would not be verifiable with this record
+     */
+    void check(DkimAlgorithm algorithm, String identity, String signingDomain, PrivateKey privateKey)
+        throws MessagingException {
+        String version = tags.get("v");
+        if (version != null && !"DKIM1".equals(version)) {
+            throw failure("has unsupported version " + version);
+        }
+
+        String keyType = tags.getOrDefault("k", "rsa");
+        if (!algorithm.getKeyAlgorithm().equalsIgnoreCase(keyType)) {
+            throw failure("has key type " + keyType + ", but " + algorithm.getTag() + " is used");
+        }
+
+        String hashTag = algorithm.getTag().substring(algorithm.getTag().indexOf('-') + 1);
+        if (tags.containsKey("h") && !contains(tags.get("h"), hashTag)) {
+            throw failure("does not permit hash algorithm " + hashTag);
+        }
+
+        if (tags.containsKey("s") && !contains(tags.get("s"), "*") && !contains(tags.get("s"), "email")) {
+            throw failure("is not intended for email");
+        }
+
+        if (identity != null && contains(tags.getOrDefault("t", ""), "s")
+            && !signingDomain.equalsIgnoreCase(identity.substring(identity.lastIndexOf('@') + 1))) {
+            throw failure("does not permit identity " + identity + " of a subdomain");
+        }
+
+        String publicKey = WHITESPACE.matcher(tags.getOrDefault("p", "")).replaceAll("");
+        if (publicKey.isEmpty()) {
+            throw failure("has been revoked");
+        }
+
+        try {
+            PublicKey key = decode(algorithm, Base64.getDecoder().decode(publicKey));
+            if (!algorithm.verify(key, PROBE, algorithm.sign(privateKey, PROBE))) {
+                throw failure("does not match the private key");
+            }
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            MessagingException exception = failure("has an invalid public key");
+            exception.initCause(e);
+            throw exception;
+        }
+    }
+
+    private MessagingException failure(String reason) {
+        return new MessagingException("Domain key at " + name + " " + reason);
+    }
+
+    private static boolean contains(String list, String value) {
+        return Arrays.stream(list.split(":")).map(String::trim).anyMatch(value::equalsIgnoreCase);
+    }
+
+    private static PublicKey decode(DkimAlgorithm algorithm, byte[] publicKey) throws GeneralSecurityException {
+        byte[] encoded = publicKey;
+        if (DkimAlgorithm.ED25519_SHA256 == algorithm) {
+            encoded = Arrays.copyOf(ED25519_X509_PREFIX, ED25519_X509_PREFIX.length + publicKey.length);
+            System.arraycopy(publicKey, 0, encoded, ED25519_X509_PREFIX.length, publicKey.length);
+        }
+        return KeyFactory.getInstance(algorithm.getKeyAlgorithm()).generatePublic(new X509EncodedKeySpec(encoded));
+    }
+
+
+    /**
+     * Strategy looking up the text of a DNS record.
+     */
+    @FunctionalInterface
+    interface Resolver {
+
+        /**
+         * Resolves the text of the given DNS record.
+         *
+         * @param name the name of the DNS record
+         * @return the text of the record
+         * @throws MessagingException if the record does not exist or the lookup fails
+         */
+        String resolve(String name) throws MessagingException;
+    }
+}
@@ -0,0 +1,37 @@
+package de.vinado.spring.mail.javamail.dkim;
+
+import net.markenwerk.utils.mail.dkim.DkimMessage;
+import net.markenwerk.utils.mail.dkim.DkimSigner;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * Strategy creating the signed counterpart of a {@link MimeMessage}, which is signed off when it is written to the
+ * transport.
+ *
+ * @author Vincent Nadoll
+ */
+@FunctionalInterface
+public interface MimeMessageSigner {
+
+    /**
+     * Creates a signable copy of the given message. Implementations must be thread-safe since messages may be signed
+     * in parallel.
+     *
+     * @param message the message to be signed
+     * @return the signable copy
+     * @throws MessagingException if the message could not be copied
+     */
+    MimeMessage sign(MimeMessage message) throws MessagingException;
+
+    /**
+     * Adapts the given {@link DkimSigner}, whose {@link DkimMessage} computes the entire signature on its own.
+     *
+     * @param signer the signer to be adapted
+     * @return a new {@link MimeMessageSigner}
+     */
+    static MimeMessageSigner of(DkimSigner signer) {
+        return message -> new DkimMessage(message, signer);
+    }
+}
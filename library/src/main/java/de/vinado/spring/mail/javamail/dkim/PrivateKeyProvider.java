@@ -0,0 +1,33 @@
+package de.vinado.spring.mail.javamail.dkim;
+
+import org.springframework.util.Assert;
+
+import java.security.PrivateKey;
+
+/**
+ * Strategy providing the private key messages are signed with. The key is obtained once per signature, so that a
+ * provider may replace its key at any time without affecting signatures being computed.
+ *
+ * @author Vincent Nadoll
+ */
+@FunctionalInterface
+public interface PrivateKeyProvider {
+
+    /**
+     * Returns the private key messages are signed with.
+     *
+     * @return the current private key, never {@code null}
+     */
+    PrivateKey getPrivateKey();
+
+    /**
+     * Creates a provider that always provides the given key.
+     *
+     * @param privateKey the key to be provided
+     * @return a new {@link PrivateKeyProvider}
+     */
+    static PrivateKeyProvider of(PrivateKey privateKey) {
+        Assert.notNull(privateKey, "Private key must not be null");
+        return () -> privateKey;
+    }
+}
@@ -0,0 +1,103 @@
+package de.vinado.spring.mail.javamail.dkim;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link PrivateKeyProvider} implementation reading a PKCS#8 DER encoded key from a {@link Resource}, which is read
+ * again by {@link #reload()} once it was modified. The key is swapped atomically, so that signatures being computed
+ * keep using the previous key while any subsequent signature uses the new one. If the modified resource can't be read,
+ * the previous key is kept and reading is retried by the next call, e.g. once the resource is written completely.
+ *
+ * <p>This provider doesn't watch the resource itself. Instead, {@link #reload()} is supposed to be called
+ * periodically, e.g. by a {@link java.util.concurrent.ScheduledExecutorService}. Polling works for any resource
+ * exposing its modification time, including files replaced through symbolic links.
+ *
+ * @author Vincent Nadoll
+ */
+@Slf4j
+public class ReloadingPrivateKeyProvider implements PrivateKeyProvider {
+
+    @Getter
+    private final Resource resource;
+
+    @Getter
+    private final String keyAlgorithm;
+
+    private final AtomicReference<PrivateKey> privateKey = new AtomicReference<>();
+    private volatile long lastModified;
+
+    /**
+     * Creates a new provider and reads the key right away.
+     *
+     * @param resource     the resource to read the key from
+     * @param keyAlgorithm the algorithm of the key, e.g. {@code RSA} or {@code Ed25519}
+     * @throws IOException              if the resource could not be read
+     * @throws GeneralSecurityException if the resource does not contain a key of the given algorithm
+     */
+    public ReloadingPrivateKeyProvider(Resource resource, String keyAlgorithm)
+        throws IOException, GeneralSecurityException {
+        Assert.notNull(resource, "Resource must not be null");
+        Assert.hasText(keyAlgorithm, "Key algorithm must not be empty");
+
+        this.resource = resource;
+        this.keyAlgorithm = keyAlgorithm;
+        this.lastModified = lastModified();
+        this.privateKey.set(read());
+    }
+
+    @Override
+    public PrivateKey getPrivateKey() {
+        return privateKey.get();
+    }
+
+    /**
+     * Reads the key again if the resource was modified since it was read last.
+     *
+     * @return {@code true} if the key was replaced
+     */
+    public boolean reload() {
+        long modified = lastModified();
+        if (modified == lastModified) {
+            return false;
+        }
+
+        try {
+            privateKey.set(read());
+            lastModified = modified;
+            if (log.isInfoEnabled()) log.info("Reloaded private key from {}", resource);
+            return true;
+        } catch (IOException | GeneralSecurityException e) {
+            if (log.isErrorEnabled()) log.error("Could not reload private key from {}, keeping previous key",
+                resource, e);
+            return false;
+        }
+    }
+
+    private long lastModified() {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            if (log.isDebugEnabled()) log.debug("Could not determine modification time of {}", resource, e);
+            return lastModified;
+        }
+    }
+
+    private PrivateKey read() throws IOException, GeneralSecurityException {
+        try (InputStream inputStream = resource.getInputStream()) {
+            byte[] encodedKey = StreamUtils.copyToByteArray(inputStream);
+            return KeyFactory.getInstance(keyAlgorithm).generatePrivate(new PKCS8EncodedKeySpec(encodedKey));
+        }
+    }
+}
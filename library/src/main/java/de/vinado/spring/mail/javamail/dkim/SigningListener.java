@@ -0,0 +1,19 @@
+package de.vinado.spring.mail.javamail.dkim;
+
+/**
+ * Callback notified about the time it took to sign off a single message.
+ *
+ * @author Vincent Nadoll
+ */
+@FunctionalInterface
+public interface SigningListener {
+
+    /**
+     * Invoked after a message was signed off. Messages signed by the {@link DkimMimeMessageSigner} are signed off every
+     * time they are written, e.g. to the transport or to estimate their size, hence this method may be invoked several
+     * times for the same message. For any other signer, the time to create the signable copy is reported.
+     *
+     * @param nanos the nanoseconds it took to compute the signature
+     */
+    void onSigned(long nanos);
+}
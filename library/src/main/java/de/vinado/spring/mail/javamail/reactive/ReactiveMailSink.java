@@ -0,0 +1,103 @@
+package de.vinado.spring.mail.javamail.reactive;
+
+import de.vinado.spring.mail.javamail.AsyncJavaMailSender;
+import de.vinado.spring.mail.javamail.concurrent.ConcurrentJavaMailSender;
+import lombok.Getter;
+import org.reactivestreams.Publisher;
+import org.springframework.mail.MailSendException;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * Reactive adapter sending every message of a {@link Publisher} through an {@link AsyncJavaMailSender}. Messages are
+ * requested in batches and only as many batches are in flight as the sender is able to dispatch concurrently. Since a
+ * batch is only considered done once it was dispatched, the upstream is not requested faster than the sender's workers
+ * and rate limit allow, and the sender's queue doesn't grow beyond the number of batches in flight.
+ *
+ * <p>The result of every message is emitted downstream in the order the messages were published. A failing batch does
+ * not terminate the sequence. If the failure can be attributed to individual messages, only those are reported as
+ * failed, every other message of the batch is reported as sent.
+ *
+ * @author Vincent Nadoll
+ */
+public class ReactiveMailSink {
+
+    private final AsyncJavaMailSender sender;
+
+    @Getter
+    private final int batchSize;
+
+    @Getter
+    private final int concurrency;
+
+    /**
+     * Creates a new sink taking batch size and number of workers from the given sender.
+     *
+     * @param sender the sender to dispatch the messages with
+     */
+    public ReactiveMailSink(ConcurrentJavaMailSender sender) {
+        this(sender, sender.getBatchSize(), sender.getWorkers());
+    }
+
+    /**
+     * Creates a new sink.
+     *
+     * @param sender      the sender to dispatch the messages with
+     * @param batchSize   the number of messages sent at once
+     * @param concurrency the maximum number of batches in flight
+     */
+    public ReactiveMailSink(AsyncJavaMailSender sender, int batchSize, int concurrency) {
+        Assert.notNull(sender, "Sender must not be null");
+        Assert.isTrue(batchSize > 0, "Batch size must be a positive integer");
+        Assert.isTrue(concurrency > 0, "Concurrency must be a positive integer");
+
+        this.sender = sender;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Subscribes to the given publisher once the returned {@link Flux} is subscribed to and sends every published
+     * message. The returned sequence emits one {@link SendResult} per message and completes after the last one.
+     *
+     * @param messages the messages to be sent
+     * @return the result of every message
+     */
+    public Flux<SendResult> send(Publisher<? extends MimeMessage> messages) {
+        return Flux.<MimeMessage>from(messages)
+            .buffer(batchSize)
+            .flatMapSequential(this::dispatch, concurrency, 1);
+    }
+
+    private Flux<SendResult> dispatch(List<MimeMessage> batch) {
+        return Mono.defer(() -> Mono.fromFuture(sender.sendAsync(batch.toArray(new MimeMessage[0]))))
+            .thenMany(Flux.fromIterable(batch).map(SendResult::sent))
+            .onErrorResume(exception -> failed(batch, unwrap(exception)));
+    }
+
+    private static Flux<SendResult> failed(List<MimeMessage> batch, Throwable exception) {
+        Map<Object, Exception> failedMessages = exception instanceof MailSendException
+            ? ((MailSendException) exception).getFailedMessages()
+            : Collections.emptyMap();
+        if (batch.stream().noneMatch(failedMessages::containsKey)) {
+            return Flux.fromIterable(batch).map(message -> SendResult.failed(message, exception));
+        }
+
+        return Flux.fromIterable(batch).map(message -> failedMessages.containsKey(message)
+            ? SendResult.failed(message, failedMessages.get(message))
+            : SendResult.sent(message));
+    }
+
+    private static Throwable unwrap(Throwable exception) {
+        return exception instanceof CompletionException && exception.getCause() != null
+            ? exception.getCause()
+            : exception;
+    }
+}
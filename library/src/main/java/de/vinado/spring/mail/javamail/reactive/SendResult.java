@@ -0,0 +1,43 @@
+package de.vinado.spring.mail.javamail.reactive;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import javax.mail.internet.MimeMessage;
+
+/**
+ * The outcome of sending a single message through the {@link ReactiveMailSink}.
+ *
+ * @author Vincent Nadoll
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class SendResult {
+
+    private final MimeMessage message;
+
+    /**
+     * The reason why the message could not be sent, {@code null} if it was handed to the mail server.
+     */
+    private final Throwable exception;
+
+    /**
+     * Checks whether the message was sent.
+     *
+     * @return {@code true} if the message was handed to the mail server
+     */
+    public boolean isSent() {
+        return exception == null;
+    }
+
+    static SendResult sent(MimeMessage message) {
+        return new SendResult(message, null);
+    }
+
+    static SendResult failed(MimeMessage message, Throwable exception) {
+        return new SendResult(message, exception);
+    }
+}
@@ -12,6 +12,7 @@ import javax.mail.Message;
 import javax.mail.internet.MimeMessage;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
@@ -45,6 +46,16 @@ class JavaMailSenderDecoratorTest {
         assertEquals(delegate, sender.getDelegate());
     }
 
+    @Test
+    void findingDecoratedSender_shouldReturnFirstSenderOfType() {
+        JavaMailSenderDecorator outer = new JavaMailSenderDecorator(sender) {
+        };
+
+        assertEquals(sender, JavaMailSenderDecorator.find(outer, sender.getClass()));
+        assertEquals(delegate, JavaMailSenderDecorator.find(outer, MockJavaMailSender.class));
+        assertNull(JavaMailSenderDecorator.find(delegate, JavaMailSenderDecorator.class));
+    }
+
     @Test
     void creatingMimeMessage_shouldDelegate() {
         sender.createMimeMessage();
@@ -0,0 +1,122 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.util.Collections;
+import javax.mail.MessagingException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class AdaptiveRateControllerTest {
+
+    private static final long TOLERANCE_MILLIS = 50;
+
+    private AdaptiveRateController controller;
+
+    @BeforeEach
+    void setUp() {
+        controller = new AdaptiveRateController(2, 10, 100, 1000);
+    }
+
+    @Test
+    void creating_shouldStartWithMaximumBounds() {
+        assertEquals(10, controller.getBatchSize());
+        assertEquals(1000, controller.getCooldownMillis());
+    }
+
+    @Test
+    void dispatchingInTime_shouldShrinkCooldownDownToMinimum() {
+        controller.onFailed(batch(1000), throttled());
+        int backedOff = controller.getBatchSize();
+
+        controller.onDispatched(batch(1000));
+
+        assertEquals(backedOff + 1, controller.getBatchSize());
+        assertEquals(910, controller.getCooldownMillis());
+
+        for (int i = 0; i < 20; i++) {
+            controller.onDispatched(batch(1000));
+        }
+
+        assertEquals(10, controller.getBatchSize());
+        assertEquals(100, controller.getCooldownMillis());
+    }
+
+    @Test
+    void dispatchingSlowly_shouldHoldValues() {
+        controller.onFailed(batch(1000), throttled());
+        controller.onDispatched(batch(1000));
+        int batchSize = controller.getBatchSize();
+        long cooldownMillis = controller.getCooldownMillis();
+
+        controller.onDispatched(batch(10_000));
+
+        assertEquals(batchSize, controller.getBatchSize());
+        assertEquals(cooldownMillis, controller.getCooldownMillis());
+    }
+
+    @Test
+    void failingTransiently_shouldHalveBatchSizeAndDoubleCooldown() {
+        for (int i = 0; i < 5; i++) {
+            controller.onDispatched(batch(1000));
+        }
+
+        controller.onFailed(batch(1000), throttled());
+
+        assertEquals(5, controller.getBatchSize());
+        assertEquals(1000, controller.getCooldownMillis());
+
+        controller.onFailed(batch(1000), throttled());
+        controller.onFailed(batch(1000), throttled());
+
+        assertEquals(2, controller.getBatchSize());
+    }
+
+    @Test
+    void failingPermanently_shouldKeepValues() {
+        MessagingException rejected = new MessagingException("550 5.1.1 User unknown");
+
+        controller.onFailed(batch(1000), new MailSendException(Collections.singletonMap(new Object(), rejected)));
+
+        assertEquals(10, controller.getBatchSize());
+        assertEquals(1000, controller.getCooldownMillis());
+    }
+
+    @Test
+    void reserving_shouldScheduleOneCooldownApart() {
+        long time = System.currentTimeMillis();
+        long first = controller.reserve(1);
+        long second = controller.reserve(1);
+
+        assertTrue(first - time <= TOLERANCE_MILLIS);
+        assertTrue(second - first >= 1000);
+    }
+
+    @Test
+    void creatingWithInvertedBounds_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveRateController(10, 2, 100, 1000));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveRateController(2, 10, 1000, 100));
+    }
+
+    private static MailSendException throttled() {
+        MessagingException reply = new MessagingException("Could not send",
+            new MessagingException("421 4.7.0 Try again later"));
+        return new MailSendException("Failed messages", reply);
+    }
+
+    private static Batch batch(long dispatchNanosPerMessage) {
+        SimpleMailMessage simpleMessage = new SimpleMailMessage();
+        simpleMessage.setTo("john.doe@example.com");
+        Batch batch = new Batch(0, new SimpleMailMessage[]{simpleMessage});
+        batch.setDispatchNanos(dispatchNanosPerMessage);
+        return batch;
+    }
+}
@@ -0,0 +1,253 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class BatchQueueTest {
+
+    private BatchQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        queue = new BatchQueue();
+    }
+
+    @Test
+    void offeringWithinCapacity_shouldAccept() {
+        queue.setMessageCapacity(3);
+
+        assertTrue(queue.offer(batch(0, 2)));
+        assertTrue(queue.offer(batch(0, 1)));
+        assertEquals(2, queue.size());
+        assertEquals(3, queue.messageCount());
+        assertEquals(0, queue.remainingCapacity());
+    }
+
+    @Test
+    void offeringBeyondCapacity_shouldReject() {
+        queue.setMessageCapacity(2);
+
+        assertTrue(queue.offer(batch(0, 2)));
+        assertFalse(queue.offer(batch(0, 1)));
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    void offeringOversizedToEmptyQueue_shouldAccept() {
+        queue.setMessageCapacity(1);
+
+        assertTrue(queue.offer(batch(0, 3)));
+    }
+
+    @Test
+    void offeringBeyondByteCapacity_shouldReject() {
+        Batch batch = batch(0, 1);
+        queue.setByteCapacity(batch.estimateSize());
+
+        assertTrue(queue.offer(batch));
+        assertFalse(queue.offer(batch(0, 1)));
+        assertEquals(batch.estimateSize(), queue.byteCount());
+    }
+
+    @Test
+    void takingBatchQueuedWhileUnbounded_shouldReleaseAccountedBytesOnly() throws InterruptedException {
+        Batch batch = batch(0, 1);
+        batch.estimateSize();
+        queue.offer(batch);
+        queue.setByteCapacity(1024);
+
+        queue.take();
+
+        assertEquals(0, queue.byteCount());
+    }
+
+    @Test
+    void offeringWithTimeout_shouldWaitForSpace() throws InterruptedException {
+        queue.setMessageCapacity(1);
+        queue.offer(batch(0, 1));
+
+        new Thread(() -> {
+            try {
+                queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }).start();
+
+        assertTrue(queue.offer(batch(0, 1), 1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void pollingUnexpired_shouldReturnNull() {
+        queue.offer(batch(System.currentTimeMillis() + 60 * 1000, 1));
+
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void takingExpired_shouldReturnEarliestBatchAndRelease() throws InterruptedException {
+        Batch late = batch(1, 1);
+        Batch early = batch(0, 2);
+        queue.offer(late);
+        queue.offer(early);
+
+        assertSame(early, queue.take());
+        assertEquals(1, queue.messageCount());
+        assertSame(late, queue.take());
+        assertEquals(0, queue.messageCount());
+    }
+
+    @Test
+    void evicting_shouldRemoveHeadRegardlessOfDelay() {
+        Batch batch = batch(System.currentTimeMillis() + 60 * 1000, 1);
+        queue.offer(batch);
+
+        assertSame(batch, queue.evict());
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.messageCount());
+    }
+
+    @Test
+    void takingFromSeveralDomains_shouldServeLanesInTurns() throws InterruptedException {
+        Batch first = batch(0, "example.com");
+        Batch second = batch(1, "example.com");
+        Batch third = batch(2, "example.com");
+        Batch other = batch(3, "example.org");
+        queue.offer(first);
+        queue.offer(second);
+        queue.offer(third);
+        queue.offer(other);
+
+        assertSame(first, queue.take());
+        assertSame(other, queue.take());
+        assertSame(second, queue.take());
+        assertSame(third, queue.take());
+    }
+
+    @Test
+    void cappingConcurrencyPerDomain_shouldSkipLaneUntilDone() {
+        queue.setMaxInFlightPerDomain(1);
+        Batch first = batch(0, "example.com");
+        Batch second = batch(1, "example.com");
+        Batch other = batch(2, "example.org");
+        queue.offer(first);
+        queue.offer(second);
+        queue.offer(other);
+
+        assertSame(first, queue.poll());
+        assertSame(other, queue.poll());
+        assertNull(queue.poll());
+
+        queue.done(first);
+
+        assertSame(second, queue.poll());
+    }
+
+    @Test
+    void takingFromSeveralPriorities_shouldServeClassesByWeight() throws InterruptedException {
+        queue.setWeight(MailPriority.TRANSACTIONAL, 2);
+        queue.setWeight(MailPriority.BULK, 1);
+        Batch bulk1 = batch(0, MailPriority.BULK);
+        Batch bulk2 = batch(1, MailPriority.BULK);
+        Batch bulk3 = batch(2, MailPriority.BULK);
+        Batch transactional1 = batch(3, MailPriority.TRANSACTIONAL);
+        Batch transactional2 = batch(4, MailPriority.TRANSACTIONAL);
+        Batch transactional3 = batch(5, MailPriority.TRANSACTIONAL);
+        queue.offer(bulk1);
+        queue.offer(bulk2);
+        queue.offer(bulk3);
+        queue.offer(transactional1);
+        queue.offer(transactional2);
+        queue.offer(transactional3);
+
+        assertSame(transactional1, queue.take());
+        assertSame(bulk1, queue.take());
+        assertSame(transactional2, queue.take());
+        assertSame(transactional3, queue.take());
+        assertSame(bulk2, queue.take());
+        assertSame(bulk3, queue.take());
+    }
+
+    @Test
+    void evictingSeveralPriorities_shouldRemoveLowestPriorityFirst() {
+        Batch transactional = batch(0, MailPriority.TRANSACTIONAL);
+        Batch bulk = batch(System.currentTimeMillis() + 60 * 1000, MailPriority.BULK);
+        queue.offer(transactional);
+        queue.offer(bulk);
+
+        assertSame(bulk, queue.evict());
+        assertSame(transactional, queue.evict());
+    }
+
+    @Test
+    void awaitingDrainedWithBatchDueLater_shouldReturnImmediately() throws InterruptedException {
+        queue.offer(batch(System.currentTimeMillis() + 60 * 1000, 1));
+
+        assertTrue(queue.awaitDrained(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void awaitingDrainedWithBatchInFlight_shouldWaitUntilDone() throws InterruptedException {
+        queue.offer(batch(0, 1));
+        Batch batch = queue.take();
+
+        assertFalse(queue.awaitDrained(10, TimeUnit.MILLISECONDS));
+
+        queue.done(batch);
+
+        assertTrue(queue.awaitDrained(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void drainingAll_shouldRemoveUnexpiredBatches() {
+        Batch due = batch(0, 1);
+        Batch late = batch(System.currentTimeMillis() + 60 * 1000, 2);
+        queue.offer(due);
+        queue.offer(late);
+
+        List<Batch> batches = queue.drainAll();
+
+        assertEquals(2, batches.size());
+        assertTrue(batches.contains(due));
+        assertTrue(batches.contains(late));
+        assertEquals(0, queue.size());
+        assertEquals(0, queue.messageCount());
+    }
+
+    private static Batch batch(long time, String domain) {
+        SimpleMailMessage simpleMessage = new SimpleMailMessage();
+        simpleMessage.setTo("john.doe@" + domain);
+        simpleMessage.setSubject("Ping");
+        return new Batch(time, new SimpleMailMessage[]{simpleMessage}, domain);
+    }
+
+    private static Batch batch(long time, MailPriority priority) {
+        SimpleMailMessage simpleMessage = new SimpleMailMessage();
+        simpleMessage.setTo("john.doe@example.com");
+        simpleMessage.setSubject("Ping");
+        return new Batch(time, new SimpleMailMessage[]{simpleMessage}, null, priority);
+    }
+
+    private static Batch batch(long time, int size) {
+        SimpleMailMessage[] simpleMessages = new SimpleMailMessage[size];
+        for (int i = 0; i < size; i++) {
+            simpleMessages[i] = new SimpleMailMessage();
+            simpleMessages[i].setTo("john.doe@example.com");
+            simpleMessages[i].setSubject("Ping");
+        }
+        return Batches.create(time, Action.noop(), simpleMessages);
+    }
+}
@@ -0,0 +1,80 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.mail.MessagingException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class BatchSettlerTest {
+
+    private BatchQueue queue;
+    private List<Batch> deadLettered;
+    private BatchSettler settler;
+
+    @BeforeEach
+    void setUp() {
+        queue = new BatchQueue();
+        deadLettered = new ArrayList<>();
+        RateLimiter rateLimiter = new CooldownRateLimiter(-1);
+        settler = new BatchSettler(queue, (priority, domain) -> rateLimiter, new BatchListener() {
+            @Override
+            public void onDeadLettered(Batch batch, RuntimeException exception) {
+                deadLettered.add(batch);
+            }
+        });
+        settler.setRetryPolicy(new RetryPolicy(3, 0, 0));
+    }
+
+    @Test
+    void settlingTransientFailure_shouldRequeueRetry() {
+        Batch batch = Batches.create(new SimpleMailMessage());
+
+        settler.settle(batch, new MailSendException("Failed messages",
+            new MessagingException("421 4.7.0 Try again later")));
+
+        assertEquals(1, queue.size());
+        assertFalse(batch.getCompletion().isDone());
+        assertTrue(deadLettered.isEmpty());
+    }
+
+    @Test
+    void settlingPermanentFailure_shouldHandOverToDeadLetterSink() {
+        SimpleMailMessage simpleMessage = new SimpleMailMessage();
+        Batch batch = Batches.create(simpleMessage);
+        List<Object> deadLetters = new ArrayList<>();
+        settler.setDeadLetterSink((messages, exception) -> deadLetters.addAll(Arrays.asList(messages)));
+
+        settler.settle(batch, new MailSendException(Collections.singletonMap(simpleMessage,
+            new MessagingException("550 5.1.1 User unknown"))));
+
+        assertEquals(0, queue.size());
+        assertEquals(Collections.singletonList(simpleMessage), deadLetters);
+        assertEquals(1, deadLettered.size());
+        assertTrue(batch.getCompletion().isCompletedExceptionally());
+    }
+
+    @Test
+    void settlingPermanentFailureWithoutDeadLetterSink_shouldOnlyFailBatch() {
+        SimpleMailMessage simpleMessage = new SimpleMailMessage();
+        Batch batch = Batches.create(simpleMessage);
+
+        settler.settle(batch, new MailSendException(Collections.singletonMap(simpleMessage,
+            new MessagingException("550 5.1.1 User unknown"))));
+
+        assertTrue(deadLettered.isEmpty());
+        assertTrue(batch.getCompletion().isCompletedExceptionally());
+    }
+}
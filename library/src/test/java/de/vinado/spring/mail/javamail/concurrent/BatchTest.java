@@ -1,13 +1,20 @@
 package de.vinado.spring.mail.javamail.concurrent;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.MimeMessagePreparator;
 
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import javax.mail.MessagingException;
 import javax.mail.Session;
 import javax.mail.internet.MimeMessage;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -72,4 +79,61 @@ class BatchTest {
 
         assertEquals(2, messages.length);
     }
+
+    @Test
+    void attributingReportedFailures_shouldLeaveSentMessagesOut() {
+        SimpleMailMessage sent = new SimpleMailMessage();
+        SimpleMailMessage failed = new SimpleMailMessage();
+        Batch batch = Batches.create(sent, failed);
+        MessagingException failure = new MessagingException("550 5.1.1 User unknown");
+
+        Exception[] failures = batch.failures(new MailSendException(Collections.singletonMap(failed, failure)));
+
+        assertNull(failures[0]);
+        assertSame(failure, failures[1]);
+    }
+
+    @Test
+    void attributingUnreportedFailure_shouldAttributeEveryMessage() {
+        Batch batch = Batches.create(new SimpleMailMessage(), new SimpleMailMessage());
+        MailSendException exception = new MailSendException(Collections.singletonMap(new Object(),
+            new MessagingException("550 5.1.1 User unknown")));
+
+        Exception[] failures = batch.failures(exception);
+
+        assertSame(exception, failures[0]);
+        assertSame(exception, failures[1]);
+    }
+
+    @Test
+    void retryingSubset_shouldKeepTypeAndCountAttempt() {
+        SimpleMailMessage failed = new SimpleMailMessage();
+        Batch batch = Batches.create(new SimpleMailMessage(), failed);
+
+        Batch retry = batch.retry(0, batch.subset(Collections.singletonList(failed)));
+
+        assertTrue(retry.getMessages() instanceof SimpleMailMessage[]);
+        assertEquals(1, retry.getMessages().length);
+        assertEquals(2, retry.getAttempt());
+        assertSame(batch.getCompletion(), retry.getCompletion());
+    }
+
+    @Test
+    void completingRetryAfterRejection_shouldCompleteExceptionally() {
+        SimpleMailMessage rejected = new SimpleMailMessage();
+        SimpleMailMessage throttled = new SimpleMailMessage();
+        Batch batch = Batches.create(rejected, throttled);
+        MessagingException rejection = new MessagingException("550 5.1.1 User unknown");
+
+        batch.reject(Collections.singletonMap(rejected, rejection));
+        Batch retry = batch.retry(0, batch.subset(Collections.singletonList(throttled)));
+
+        assertFalse(batch.getCompletion().isDone());
+
+        retry.complete();
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> batch.getCompletion().get());
+        MailSendException cause = (MailSendException) exception.getCause();
+        assertEquals(Collections.singletonMap(rejected, rejection), cause.getFailedMessages());
+    }
 }
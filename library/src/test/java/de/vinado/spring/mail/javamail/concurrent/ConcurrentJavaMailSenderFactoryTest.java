@@ -1,11 +1,18 @@
 package de.vinado.spring.mail.javamail.concurrent;
 
+import de.vinado.spring.mail.javamail.JavaMailSenderDecorator;
+import lombok.SneakyThrows;
 import org.junit.jupiter.api.Test;
+import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.Mockito.mock;
 
@@ -26,4 +33,49 @@ class ConcurrentJavaMailSenderFactoryTest {
 
         threadPool.shutdownNow();
     }
+
+    @Test
+    void decoratingDelegateWithMultipleWorkers_shouldCreateNewDecorator() {
+        ExecutorService threadPool = Executors.newFixedThreadPool(2);
+        JavaMailSender delegate = mock(JavaMailSender.class);
+        ConcurrentJavaMailSenderFactory factory = new ConcurrentJavaMailSenderFactory(threadPool, 2);
+
+        ConcurrentJavaMailSender sender = factory.decorate(delegate);
+
+        assertEquals(2, sender.getWorkers());
+
+        threadPool.shutdownNow();
+    }
+
+    @Test
+    @SneakyThrows
+    void shuttingDownSenderOfWorkerExecutor_shouldKeepOtherSendersDispatching() {
+        JavaMailSender delegate = mock(JavaMailSender.class);
+        ConcurrentJavaMailSenderFactory factory = new ConcurrentJavaMailSenderFactory(WorkerExecutor.PLATFORM, 1);
+        ConcurrentJavaMailSender first = factory.decorate(delegate);
+        ConcurrentJavaMailSender second = factory.decorate(delegate);
+
+        first.shutdown();
+
+        assertDoesNotThrow(() -> second.sendAsync(new SimpleMailMessage()).get(1, TimeUnit.SECONDS));
+
+        second.shutdown();
+    }
+
+    @Test
+    void decoratingWithDispatchDecorator_shouldDecorateEveryWorkersSender() {
+        ExecutorService threadPool = mock(ExecutorService.class);
+        JavaMailSender delegate = mock(JavaMailSender.class);
+        AtomicInteger decorations = new AtomicInteger();
+        ConcurrentJavaMailSenderFactory factory = new ConcurrentJavaMailSenderFactory(threadPool, 2);
+        factory.setDispatchDecorator(sender -> {
+            decorations.incrementAndGet();
+            return new JavaMailSenderDecorator(sender) {
+            };
+        });
+
+        factory.decorate(delegate);
+
+        assertEquals(3, decorations.get());
+    }
 }
@@ -0,0 +1,88 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author Vincent Nadoll
+ */
+class ConcurrentJavaMailSenderMetricsTest {
+
+    private static final long EXECUTION_TIMEOUT_MILLIS = 1000;
+
+    private ExecutorService executor;
+    private JavaMailSender delegate;
+    private ConcurrentJavaMailSender sender;
+    private MeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+        delegate = mock(JavaMailSender.class);
+        sender = new ConcurrentJavaMailSender(delegate, executor);
+        registry = new SimpleMeterRegistry();
+
+        new ConcurrentJavaMailSenderMetrics(sender).bindTo(registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void binding_shouldRegisterQueueGauges() {
+        assertEquals(0, registry.get("mail.queue.batches").gauge().value());
+        assertEquals(0, registry.get("mail.queue.messages").gauge().value());
+        assertEquals(0, registry.get("mail.queue.bytes").gauge().value());
+    }
+
+    @Test
+    @SneakyThrows
+    void dispatching_shouldRecordWaitTimeDispatchTimeAndMessages() {
+        sender.sendAsync(simpleMessage(), simpleMessage()).get(EXECUTION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        assertEquals(1, registry.get("mail.queue.wait").timer().count());
+        assertEquals(1, registry.get("mail.dispatch").tag("outcome", "success").timer().count());
+        assertEquals(2, registry.get("mail.messages.sent").counter().count());
+    }
+
+    @Test
+    void failing_shouldCountFailuresByExceptionType() {
+        doThrow(new MailSendException("Failed messages")).when(delegate).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+
+        assertThrows(ExecutionException.class, () -> sender.sendAsync(simpleMessage())
+            .get(EXECUTION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        assertEquals(1, registry.get("mail.dispatch").tag("outcome", "failure").timer().count());
+        assertEquals(1, registry.get("mail.dispatch.failures").tag("exception", "MailSendException").counter().count());
+        assertEquals(0, registry.get("mail.messages.sent").counter().count());
+    }
+
+    private static SimpleMailMessage simpleMessage() {
+        SimpleMailMessage simpleMessage = new SimpleMailMessage();
+        simpleMessage.setFrom("test@example.com");
+        simpleMessage.setTo("john.doe@example.com");
+        simpleMessage.setSubject("Ping");
+        simpleMessage.setText("Lorem Ipsum");
+        return simpleMessage;
+    }
+}
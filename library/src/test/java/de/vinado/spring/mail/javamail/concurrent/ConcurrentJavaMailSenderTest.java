@@ -5,24 +5,41 @@ import lombok.SneakyThrows;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.ArgumentMatchers;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.MimeMessagePreparator;
 
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import javax.mail.Message;
+import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -383,6 +400,553 @@ class ConcurrentJavaMailSenderTest {
         verify(delegate, times(1)).send(ArgumentMatchers.<SimpleMailMessage[]>any());
     }
 
+    @Test
+    @SneakyThrows
+    void sendingOversizedWithMultipleWorkers_shouldDispatchEveryBatch() {
+        ExecutorService threadPool = Executors.newFixedThreadPool(2);
+        ConcurrentJavaMailSender pooledSender = new ConcurrentJavaMailSender(delegate, threadPool, 2);
+        pooledSender.setBatchSize(1);
+        pooledSender.setCooldownMillis(-1);
+
+        SimpleMailMessage simpleMessage_1 = new SimpleMailMessage();
+        simpleMessage_1.setFrom("test@example.com");
+        simpleMessage_1.setTo("john.doe@example.com");
+        simpleMessage_1.setSubject("Ping");
+        simpleMessage_1.setText("Lorem Ipsum");
+
+        SimpleMailMessage simpleMessage_2 = new SimpleMailMessage();
+        simpleMessage_2.setFrom("test@example.com");
+        simpleMessage_2.setTo("jane.doe@example.com");
+        simpleMessage_2.setSubject("Ping");
+        simpleMessage_2.setText("Lorem Ipsum");
+
+        pooledSender.send(simpleMessage_1, simpleMessage_2);
+
+        threadPool.shutdown();
+        threadPool.awaitTermination(EXECUTION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        verify(delegate, times(2)).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+
+        threadPool.shutdownNow();
+    }
+
+    @Test
+    @SneakyThrows
+    void sendingOversizedWithinBurstCapacity_shouldDispatchEveryBatchImmediately() {
+        sender.setRateLimiter(new TokenBucketRateLimiter(1, 4));
+
+        SimpleMailMessage simpleMessage_1 = new SimpleMailMessage();
+        simpleMessage_1.setFrom("test@example.com");
+        simpleMessage_1.setTo("john.doe@example.com");
+        simpleMessage_1.setSubject("Ping");
+        simpleMessage_1.setText("Lorem Ipsum");
+
+        SimpleMailMessage simpleMessage_2 = new SimpleMailMessage();
+        simpleMessage_2.setFrom("test@example.com");
+        simpleMessage_2.setTo("jane.doe@example.com");
+        simpleMessage_2.setSubject("Ping");
+        simpleMessage_2.setText("Lorem Ipsum");
+
+        SimpleMailMessage simpleMessage_3 = new SimpleMailMessage();
+        simpleMessage_3.setFrom("test@example.com");
+        simpleMessage_3.setTo("max.mustermann@example.com");
+        simpleMessage_3.setSubject("Ping");
+        simpleMessage_3.setText("Lorem Ipsum");
+
+        sender.send(simpleMessage_1, simpleMessage_2, simpleMessage_3);
+
+        executor.shutdown();
+        executor.awaitTermination(EXECUTION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        verify(delegate, times(2)).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+    }
+
+    @Test
+    void exceedingQueueCapacityWithFailPolicy_shouldThrowException() {
+        ConcurrentJavaMailSender idleSender = new ConcurrentJavaMailSender(delegate, mock(ExecutorService.class));
+        idleSender.setQueueCapacity(2);
+        idleSender.setBackpressurePolicy(BackpressurePolicy.FAIL);
+
+        idleSender.send(simpleMessage("john.doe@example.com"));
+        idleSender.send(simpleMessage("jane.doe@example.com"));
+
+        assertThrows(MailQueueException.class, () -> idleSender.send(simpleMessage("max.mustermann@example.com")));
+        assertEquals(2, idleSender.getQueuedBatches());
+        assertEquals(2, idleSender.getQueuedMessages());
+    }
+
+    @Test
+    void exceedingQueueCapacityWithBlockPolicy_shouldThrowExceptionAfterTimeout() {
+        ConcurrentJavaMailSender idleSender = new ConcurrentJavaMailSender(delegate, mock(ExecutorService.class));
+        idleSender.setQueueCapacity(1);
+        idleSender.setBlockTimeoutMillis(EXECUTION_TIMEOUT_MILLIS);
+
+        idleSender.send(simpleMessage("john.doe@example.com"));
+
+        assertThrows(MailQueueException.class, () -> idleSender.send(simpleMessage("jane.doe@example.com")));
+        assertEquals(1, idleSender.getQueuedMessages());
+    }
+
+    @Test
+    void exceedingQueueCapacityWithDropOldestPolicy_shouldEvictHead() {
+        ConcurrentJavaMailSender idleSender = new ConcurrentJavaMailSender(delegate, mock(ExecutorService.class));
+        idleSender.setQueueCapacity(2);
+        idleSender.setBackpressurePolicy(BackpressurePolicy.DROP_OLDEST);
+
+        idleSender.send(simpleMessage("john.doe@example.com"));
+        idleSender.send(simpleMessage("jane.doe@example.com"));
+        idleSender.send(simpleMessage("max.mustermann@example.com"));
+
+        assertEquals(2, idleSender.getQueuedBatches());
+        assertEquals(2, idleSender.getQueuedMessages());
+    }
+
+    @Test
+    void exceedingQueueCapacityWithCallerRunsPolicy_shouldDispatchOnCallingThread() {
+        ConcurrentJavaMailSender idleSender = new ConcurrentJavaMailSender(delegate, mock(ExecutorService.class));
+        idleSender.setQueueCapacity(1);
+        idleSender.setBackpressurePolicy(BackpressurePolicy.CALLER_RUNS);
+
+        idleSender.send(simpleMessage("john.doe@example.com"));
+        idleSender.send(simpleMessage("jane.doe@example.com"));
+
+        verify(delegate, times(1)).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+        assertEquals(1, idleSender.getQueuedMessages());
+    }
+
+    @Test
+    void exceedingQueueCapacityBytes_shouldApplyPolicy() {
+        ConcurrentJavaMailSender idleSender = new ConcurrentJavaMailSender(delegate, mock(ExecutorService.class));
+        idleSender.setQueueCapacityBytes(1);
+        idleSender.setBackpressurePolicy(BackpressurePolicy.FAIL);
+
+        idleSender.send(simpleMessage("john.doe@example.com"));
+
+        assertThrows(MailQueueException.class, () -> idleSender.send(simpleMessage("jane.doe@example.com")));
+        assertTrue(idleSender.getQueuedBytes() > 0);
+    }
+
+    @Test
+    @SneakyThrows
+    void exceedingQueueCapacityWithSpool_shouldRemoveRejectedBatchesFromSpool(@TempDir Path directory) {
+        ConcurrentJavaMailSender idleSender = new ConcurrentJavaMailSender(delegate, mock(ExecutorService.class));
+        idleSender.setBatchSize(1);
+        idleSender.setQueueCapacity(1);
+        idleSender.setBackpressurePolicy(BackpressurePolicy.FAIL);
+        try (FileMailSpool spool = FileMailSpool.open(directory)) {
+            idleSender.setSpool(spool);
+            idleSender.send(simpleMessage("john.doe@example.com"));
+
+            assertThrows(MailQueueException.class, () -> idleSender.send(simpleMessage("jane.doe@example.com"),
+                simpleMessage("max.mustermann@example.com")));
+            assertEquals(1, spool.size());
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void restartingWithSpool_shouldDispatchRecoveredBatches(@TempDir Path directory) {
+        ConcurrentJavaMailSender idleSender = new ConcurrentJavaMailSender(delegate, mock(ExecutorService.class));
+        try (FileMailSpool spool = FileMailSpool.open(directory)) {
+            idleSender.setSpool(spool);
+            idleSender.send(simpleMessage("john.doe@example.com"));
+        }
+
+        try (FileMailSpool spool = FileMailSpool.open(directory)) {
+            sender.setSpool(spool);
+
+            executor.shutdown();
+            executor.awaitTermination(EXECUTION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+            verify(delegate, times(1)).send(ArgumentMatchers.<MimeMessage[]>any());
+            assertEquals(0, spool.size());
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void restartingWithSpool_shouldRecoverExplicitPriority(@TempDir Path directory) {
+        ConcurrentJavaMailSender idleSender = new ConcurrentJavaMailSender(delegate, mock(ExecutorService.class));
+        try (FileMailSpool spool = FileMailSpool.open(directory)) {
+            idleSender.setSpool(spool);
+            idleSender.send(MailPriority.BULK, simpleMessage("john.doe@example.com"));
+        }
+
+        RateLimiter bulkRateLimiter = mock(RateLimiter.class);
+        ConcurrentJavaMailSender restartedSender = new ConcurrentJavaMailSender(delegate, mock(ExecutorService.class));
+        restartedSender.setRateLimiter(MailPriority.BULK, bulkRateLimiter);
+        try (FileMailSpool spool = FileMailSpool.open(directory)) {
+            restartedSender.setSpool(spool);
+
+            verify(bulkRateLimiter, times(1)).reserve(1);
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void partitioningByDomainWithSpool_shouldFail(@TempDir Path directory) {
+        ConcurrentJavaMailSender idleSender = new ConcurrentJavaMailSender(delegate, mock(ExecutorService.class));
+        try (FileMailSpool spool = FileMailSpool.open(directory)) {
+            idleSender.setSpool(spool);
+
+            assertThrows(IllegalStateException.class, () -> idleSender.setPartitionedByDomain(true));
+            assertDoesNotThrow(() -> idleSender.setPartitionedByDomain(false));
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void sendingAsync_shouldCompleteAfterDispatch() {
+        CompletableFuture<Void> future = sender.sendAsync(simpleMessage("john.doe@example.com"));
+
+        future.get(1, TimeUnit.SECONDS);
+
+        verify(delegate, times(1)).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+    }
+
+    @Test
+    @SneakyThrows
+    void sendingAsyncFailingMessage_shouldCompleteExceptionally() {
+        MimeMessage mimeMessage = sender.createMimeMessage();
+        mimeMessage.setFrom("test@example.com");
+        mimeMessage.setRecipients(Message.RecipientType.TO, "john.doe@example.com");
+        mimeMessage.setSubject("fail");
+        mimeMessage.setText("Lorem Ipsum");
+
+        CompletableFuture<Void> future = sender.sendAsync(mimeMessage);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof MailSendException);
+    }
+
+    @Test
+    @SneakyThrows
+    void sendingAfterFailedBatch_shouldKeepDispatching() {
+        MimeMessage mimeMessage = sender.createMimeMessage();
+        mimeMessage.setFrom("test@example.com");
+        mimeMessage.setRecipients(Message.RecipientType.TO, "john.doe@example.com");
+        mimeMessage.setSubject("fail");
+        mimeMessage.setText("Lorem Ipsum");
+        sender.setCooldownMillis(0);
+
+        CompletableFuture<Void> failed = sender.sendAsync(mimeMessage);
+        assertThrows(ExecutionException.class, () -> failed.get(1, TimeUnit.SECONDS));
+
+        CompletableFuture<Void> future = sender.sendAsync(simpleMessage("jane.doe@example.com"));
+        future.get(1, TimeUnit.SECONDS);
+
+        verify(delegate, times(1)).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+    }
+
+    @Test
+    @SneakyThrows
+    void failingTransiently_shouldRetryBatch() {
+        MailSendException throttled = new MailSendException("Failed messages",
+            new MessagingException("421 4.7.0 Try again later"));
+        doThrow(throttled).doCallRealMethod().when(delegate).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+        sender.setRetryPolicy(new RetryPolicy(3, 0, 0));
+
+        CompletableFuture<Void> future = sender.sendAsync(simpleMessage("john.doe@example.com"));
+
+        future.get(COOLED_DOWN_EXECUTION_TIMEOUT_MILLIS * 2, TimeUnit.MILLISECONDS);
+        verify(delegate, times(2)).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+        assertEquals(1, delegate.getSentMessages().size());
+    }
+
+    @Test
+    @SneakyThrows
+    void replacingRateControllerByRateLimiter_shouldDetachRateController() {
+        MailSendException throttled = new MailSendException("Failed messages",
+            new MessagingException("421 4.7.0 Try again later"));
+        doThrow(throttled).when(delegate).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+        AdaptiveRateController rateController = new AdaptiveRateController(1, 2, 0, COOLDOWN_MILLIS);
+        sender.setRateController(rateController);
+        sender.setRateLimiter(new CooldownRateLimiter(-1));
+
+        CompletableFuture<Void> future = sender.sendAsync(simpleMessage("john.doe@example.com"));
+
+        assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+        assertNull(sender.getRateController());
+        assertEquals(2, rateController.getBatchSize());
+    }
+
+    @Test
+    @SneakyThrows
+    void failingPermanently_shouldHandOverToDeadLetterSink() {
+        MailSendException rejected = new MailSendException(Collections.singletonMap(new Object(),
+            new MessagingException("550 5.1.1 User unknown")));
+        doThrow(rejected).when(delegate).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+        List<Object> deadLetters = new CopyOnWriteArrayList<>();
+        sender.setRetryPolicy(new RetryPolicy(3, 0, 0));
+        sender.setDeadLetterSink((messages, exception) -> deadLetters.addAll(Arrays.asList(messages)));
+
+        SimpleMailMessage simpleMessage = simpleMessage("john.doe@example.com");
+        CompletableFuture<Void> future = sender.sendAsync(simpleMessage);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+        assertEquals(rejected, exception.getCause());
+        verify(delegate, times(1)).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+        assertEquals(Collections.singletonList(simpleMessage), deadLetters);
+    }
+
+    @Test
+    @SneakyThrows
+    void failingPartially_shouldRetryFailedMessagesOnly() {
+        SimpleMailMessage sent = simpleMessage("john.doe@example.com");
+        SimpleMailMessage throttled = simpleMessage("jane.doe@example.com");
+        MailSendException exception = new MailSendException(Collections.singletonMap(throttled,
+            new MessagingException("421 4.7.0 Try again later")));
+        doThrow(exception).doCallRealMethod().when(delegate).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+        sender.setRetryPolicy(new RetryPolicy(3, 0, 0));
+
+        CompletableFuture<Void> future = sender.sendAsync(sent, throttled);
+
+        future.get(COOLED_DOWN_EXECUTION_TIMEOUT_MILLIS * 2, TimeUnit.MILLISECONDS);
+        verify(delegate, times(2)).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+        assertEquals(1, delegate.getSentMessages().size());
+        assertEquals("jane.doe@example.com", delegate.getSentMessage(0).getAllRecipients()[0].toString());
+    }
+
+    @Test
+    @SneakyThrows
+    void failingPartiallyPermanently_shouldDeadLetterRejectedMessagesOnly() {
+        SimpleMailMessage throttled = simpleMessage("jane.doe@example.com");
+        SimpleMailMessage rejected = simpleMessage("max.mustermann@example.com");
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        failedMessages.put(throttled, new MessagingException("421 4.7.0 Try again later"));
+        failedMessages.put(rejected, new MessagingException("550 5.1.1 User unknown"));
+        doThrow(new MailSendException(failedMessages)).doCallRealMethod()
+            .when(delegate).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+        List<Object> deadLetters = new CopyOnWriteArrayList<>();
+        sender.setBatchSize(3);
+        sender.setRetryPolicy(new RetryPolicy(3, 0, 0));
+        sender.setDeadLetterSink((messages, exception) -> deadLetters.addAll(Arrays.asList(messages)));
+
+        CompletableFuture<Void> future = sender.sendAsync(simpleMessage("john.doe@example.com"), throttled, rejected);
+
+        assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList(rejected), deadLetters);
+
+        Thread.sleep(COOLED_DOWN_EXECUTION_TIMEOUT_MILLIS * 2);
+        verify(delegate, times(2)).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+        assertEquals(1, delegate.getSentMessages().size());
+    }
+
+    @Test
+    @SneakyThrows
+    void failingPartiallyPermanently_shouldCompleteOnceRetrySettled() {
+        SimpleMailMessage throttled = simpleMessage("jane.doe@example.com");
+        SimpleMailMessage rejected = simpleMessage("max.mustermann@example.com");
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        failedMessages.put(throttled, new MessagingException("421 4.7.0 Try again later"));
+        failedMessages.put(rejected, new MessagingException("550 5.1.1 User unknown"));
+        doThrow(new MailSendException(failedMessages)).doCallRealMethod()
+            .when(delegate).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+        sender.setRetryPolicy(new RetryPolicy(3, 0, 0));
+
+        CompletableFuture<Void> future = sender.sendAsync(throttled, rejected);
+
+        ExecutionException exception = assertThrows(ExecutionException.class,
+            () -> future.get(COOLED_DOWN_EXECUTION_TIMEOUT_MILLIS * 2, TimeUnit.MILLISECONDS));
+        verify(delegate, times(2)).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+        assertEquals(1, delegate.getSentMessages().size());
+        assertEquals(Collections.singleton(rejected),
+            ((MailSendException) exception.getCause()).getFailedMessages().keySet());
+    }
+
+    @Test
+    void sendingAsyncBeyondQueueCapacity_shouldCompleteExceptionally() {
+        ConcurrentJavaMailSender idleSender = new ConcurrentJavaMailSender(delegate, mock(ExecutorService.class));
+        idleSender.setQueueCapacity(1);
+        idleSender.setBackpressurePolicy(BackpressurePolicy.FAIL);
+
+        idleSender.sendAsync(simpleMessage("john.doe@example.com"));
+        CompletableFuture<Void> future = idleSender.sendAsync(simpleMessage("jane.doe@example.com"));
+
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    @Test
+    @SneakyThrows
+    void sendingToSeveralDomainsPartitioned_shouldDispatchEveryDomainImmediately() {
+        sender.setPartitionedByDomain(true);
+
+        sender.send(simpleMessage("john.doe@example.com"), simpleMessage("jane.doe@example.org"),
+            simpleMessage("max.mustermann@example.com"));
+
+        executor.shutdown();
+        executor.awaitTermination(EXECUTION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        verify(delegate, times(2)).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+    }
+
+    @Test
+    @SneakyThrows
+    void reconfiguringCooldownPartitioned_shouldScheduleKnownDomainsByNewCooldown() {
+        sender.setPartitionedByDomain(true);
+        sender.sendAsync(simpleMessage("john.doe@example.com")).get(EXECUTION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        sender.setCooldownMillis(-1);
+
+        sender.send(simpleMessage("jane.doe@example.com"));
+
+        executor.shutdown();
+        executor.awaitTermination(EXECUTION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        verify(delegate, times(2)).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+    }
+
+    @Test
+    void reconfiguringCooldown_shouldKeepConfiguredBulkRateLimiter() {
+        RateLimiter bulkRateLimiter = new TokenBucketRateLimiter(10, 10);
+        sender.setRateLimiter(MailPriority.BULK, bulkRateLimiter);
+
+        sender.setCooldownMillis(-1);
+
+        assertSame(bulkRateLimiter, sender.getRateLimiter(MailPriority.BULK));
+    }
+
+    @Test
+    void reconfiguringCooldown_shouldRecreateDerivedBulkRateLimiter() {
+        RateLimiter bulkRateLimiter = sender.getRateLimiter(MailPriority.BULK);
+
+        sender.setCooldownMillis(-1);
+
+        assertNotSame(bulkRateLimiter, sender.getRateLimiter(MailPriority.BULK));
+    }
+
+    @Test
+    @SneakyThrows
+    void sendingTransactionalAfterBulk_shouldNotWaitForBulkSchedule() {
+        sender.setCooldownMillis(COOLDOWN_MILLIS * 20);
+        sender.send(MailPriority.BULK, simpleMessage("john.doe@example.com"), simpleMessage("jane.doe@example.com"),
+            simpleMessage("max.mustermann@example.com"));
+        CompletableFuture<Void> future = sender.sendAsync(MailPriority.TRANSACTIONAL,
+            simpleMessage("erika.mustermann@example.com"));
+
+        assertDoesNotThrow(() -> future.get(COOLDOWN_MILLIS * 4, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    @SneakyThrows
+    void sendingSinglesUpToBatchSizeWhileLingering_shouldDispatchOneBatch() {
+        sender.setLingerMillis(COOLDOWN_MILLIS);
+
+        sender.send(simpleMessage("john.doe@example.com"));
+        sender.send(simpleMessage("jane.doe@example.com"));
+
+        executor.shutdown();
+        executor.awaitTermination(EXECUTION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        verify(delegate, times(1)).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+        assertEquals(2, delegate.getSentMessages().size());
+    }
+
+    @Test
+    @SneakyThrows
+    void sendingSingleWhileLingering_shouldDispatchOnceLingerExpired() {
+        sender.setLingerMillis(COOLDOWN_MILLIS);
+
+        CompletableFuture<Void> future = sender.sendAsync(simpleMessage("john.doe@example.com"));
+
+        Thread.sleep(EXECUTION_TIMEOUT_MILLIS);
+        assertFalse(future.isDone());
+
+        future.get(COOLED_DOWN_EXECUTION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        verify(delegate, times(1)).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+    }
+
+    @Test
+    @SneakyThrows
+    void shuttingDown_shouldDispatchDueBatchAndRejectFurtherMessages() {
+        CompletableFuture<Void> future = sender.sendAsync(simpleMessage("john.doe@example.com"));
+
+        sender.shutdown();
+
+        assertTrue(future.isDone());
+        assertFalse(future.isCompletedExceptionally());
+        assertFalse(executor.isShutdown());
+        assertTrue(sender.isShutdown());
+        assertThrows(MailQueueException.class, () -> sender.send(simpleMessage("jane.doe@example.com")));
+    }
+
+    @Test
+    @SneakyThrows
+    void shuttingDownWithBatchesDueLater_shouldHandOverToUnsentMailSink() {
+        List<Object> unsent = new CopyOnWriteArrayList<>();
+        sender.setDrainTimeoutMillis(EXECUTION_TIMEOUT_MILLIS);
+        sender.setUnsentMailSink(messages -> unsent.addAll(Arrays.asList(messages)));
+
+        SimpleMailMessage lateMessage = simpleMessage("max.mustermann@example.com");
+        CompletableFuture<Void> future = sender.sendAsync(simpleMessage("john.doe@example.com"),
+            simpleMessage("jane.doe@example.com"), lateMessage);
+
+        sender.shutdown();
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof MailQueueException);
+        assertEquals(Collections.singletonList(lateMessage), unsent);
+        verify(delegate, times(1)).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+    }
+
+    @Test
+    @SneakyThrows
+    void shuttingDownWhileLingering_shouldDispatchLingeringMessages() {
+        sender.setLingerMillis(COOLDOWN_MILLIS * 20);
+
+        CompletableFuture<Void> future = sender.sendAsync(simpleMessage("john.doe@example.com"));
+
+        sender.shutdown();
+
+        future.get(EXECUTION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        verify(delegate, times(1)).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+    }
+
+    @Test
+    @SneakyThrows
+    void shuttingDown_shouldReleaseThreadOfCallersThreadPool() {
+        sender.shutdown();
+
+        assertDoesNotThrow(() -> executor.submit(() -> {
+        }).get(EXECUTION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void shuttingDownTwice_shouldNotThrowException() {
+        sender.shutdown();
+
+        assertDoesNotThrow(sender::shutdown);
+    }
+
+    @Test
+    void configuringRateController_shouldTakeBatchSizeFromController() {
+        AdaptiveRateController controller = new AdaptiveRateController(1, 5, 0, COOLDOWN_MILLIS);
+
+        sender.setRateController(controller);
+
+        assertEquals(5, sender.getBatchSize());
+        assertEquals(controller, sender.getRateLimiter());
+    }
+
+    private static SimpleMailMessage simpleMessage(String to) {
+        SimpleMailMessage simpleMessage = new SimpleMailMessage();
+        simpleMessage.setFrom("test@example.com");
+        simpleMessage.setTo(to);
+        simpleMessage.setSubject("Ping");
+        simpleMessage.setText("Lorem Ipsum");
+        return simpleMessage;
+    }
+
+    @Test
+    void configuringNullRateLimiter_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> sender.setRateLimiter(null));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {Integer.MIN_VALUE, -1, 0})
+    void configuringNonPositiveWorkers_shouldThrowException(int workers) {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentJavaMailSender(delegate, executor, workers));
+    }
+
     @ParameterizedTest
     @ValueSource(ints = {Integer.MIN_VALUE, -1, 0})
     void configuringNonPositiveBatchSize_shouldThrowException(int batchSize) {
@@ -0,0 +1,191 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import de.vinado.spring.mail.javamail.MockJavaMailSender;
+import de.vinado.spring.mail.javamail.MockTransport;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.mail.Address;
+import javax.mail.AuthenticationFailedException;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class ConnectionHoldingJavaMailSenderTest {
+
+    private static final long IDLE_TIMEOUT_MILLIS = 50;
+
+    private List<MockTransport> transports;
+    private ConnectionHoldingJavaMailSender sender;
+
+    @BeforeEach
+    void setUp() {
+        transports = new ArrayList<>();
+        MockJavaMailSender delegate = MockJavaMailSender.defaultSender().build();
+        sender = new ConnectionHoldingJavaMailSender(delegate, IDLE_TIMEOUT_MILLIS) {
+            @Override
+            protected Transport connectTransport() {
+                MockTransport transport = new MockTransport(delegate.getSession(), null);
+                transport.connect(delegate.getHost(), delegate.getPort(), delegate.getUsername(),
+                    delegate.getPassword());
+                transports.add(transport);
+                return transport;
+            }
+        };
+    }
+
+    @Test
+    void initializingNonPositiveIdleTimeout_shouldThrowException() {
+        MockJavaMailSender delegate = MockJavaMailSender.defaultSender().build();
+
+        assertThrows(IllegalArgumentException.class, () -> new ConnectionHoldingJavaMailSender(delegate, 0));
+    }
+
+    @Test
+    @SneakyThrows
+    void sendingTwice_shouldReuseConnection() {
+        sender.send(createMimeMessage("john.doe@example.com"));
+        sender.send(createMimeMessage("jane.doe@example.com"));
+
+        assertEquals(1, transports.size());
+        assertEquals(2, transports.get(0).getSentMessages().size());
+        assertTrue(transports.get(0).isConnected());
+    }
+
+    @Test
+    void sendingSimpleMessages_shouldReuseConnection() {
+        SimpleMailMessage simpleMessage1 = new SimpleMailMessage();
+        simpleMessage1.setFrom("test@example.com");
+        simpleMessage1.setTo("john.doe@example.com");
+        simpleMessage1.setSubject("Ping");
+        simpleMessage1.setText("Lorem Ipsum");
+        SimpleMailMessage simpleMessage2 = new SimpleMailMessage();
+        simpleMessage2.setFrom("test@example.com");
+        simpleMessage2.setTo("jane.doe@example.com");
+        simpleMessage2.setSubject("Ping");
+        simpleMessage2.setText("Lorem Ipsum");
+
+        sender.send(simpleMessage1, simpleMessage2);
+        sender.send(simpleMessage1);
+
+        assertEquals(1, transports.size());
+        assertEquals(3, transports.get(0).getSentMessages().size());
+    }
+
+    @Test
+    @SneakyThrows
+    void sendingAfterConnectionDropped_shouldReconnect() {
+        sender.send(createMimeMessage("john.doe@example.com"));
+        transports.get(0).close();
+
+        sender.send(createMimeMessage("jane.doe@example.com"));
+
+        assertEquals(2, transports.size());
+        assertEquals(1, transports.get(1).getSentMessages().size());
+    }
+
+    @Test
+    @SneakyThrows
+    void sendingFailingMessage_shouldReportOriginalAndKeepSendingRemaining() {
+        MimeMessage failing = createMimeMessage("john.doe@example.com");
+        failing.setSubject("fail");
+        MimeMessage succeeding = createMimeMessage("jane.doe@example.com");
+
+        MailSendException exception = assertThrows(MailSendException.class, () -> sender.send(failing, succeeding));
+
+        assertEquals(1, exception.getFailedMessages().size());
+        assertTrue(exception.getFailedMessages().containsKey(failing));
+        assertEquals(1, transports.get(0).getSentMessages().size());
+        assertEquals(succeeding, transports.get(0).getSentMessage(0));
+    }
+
+    @Test
+    @SneakyThrows
+    void failingAuthenticationOnReconnect_shouldReportRemainingMessagesOnly() {
+        MockJavaMailSender delegate = MockJavaMailSender.defaultSender().build();
+        ConnectionHoldingJavaMailSender reconnectingSender = new ConnectionHoldingJavaMailSender(delegate,
+            IDLE_TIMEOUT_MILLIS) {
+            @Override
+            protected Transport connectTransport() throws MessagingException {
+                if (!transports.isEmpty()) {
+                    throw new AuthenticationFailedException("535 5.7.8 Authentication credentials invalid");
+                }
+
+                MockTransport transport = new MockTransport(delegate.getSession(), null) {
+                    @Override
+                    public void sendMessage(Message msg, Address[] addresses) throws MessagingException {
+                        try {
+                            super.sendMessage(msg, addresses);
+                        } catch (MessagingException e) {
+                            close();
+                            throw e;
+                        }
+                    }
+                };
+                transport.connect(delegate.getHost(), delegate.getPort(), delegate.getUsername(),
+                    delegate.getPassword());
+                transports.add(transport);
+                return transport;
+            }
+        };
+        MimeMessage sent = createMimeMessage("john.doe@example.com");
+        MimeMessage failing = createMimeMessage("jane.doe@example.com");
+        failing.setSubject("fail");
+        MimeMessage remaining = createMimeMessage("max.mustermann@example.com");
+
+        MailSendException exception = assertThrows(MailSendException.class,
+            () -> reconnectingSender.send(sent, failing, remaining));
+
+        assertEquals(2, exception.getFailedMessages().size());
+        assertFalse(exception.getFailedMessages().containsKey(sent));
+        assertTrue(exception.getFailedMessages().get(remaining) instanceof AuthenticationFailedException);
+        assertEquals(1, transports.get(0).getSentMessages().size());
+    }
+
+    @Test
+    @SneakyThrows
+    void closingIdleConnection_shouldCloseAfterTimeout() {
+        sender.send(createMimeMessage("john.doe@example.com"));
+
+        sender.closeIfIdle();
+        assertTrue(transports.get(0).isConnected());
+
+        Thread.sleep(IDLE_TIMEOUT_MILLIS);
+        sender.closeIfIdle();
+        assertFalse(transports.get(0).isConnected());
+    }
+
+    @Test
+    @SneakyThrows
+    void closing_shouldCloseConnection() {
+        sender.send(createMimeMessage("john.doe@example.com"));
+
+        sender.close();
+
+        assertFalse(transports.get(0).isConnected());
+    }
+
+    @SneakyThrows
+    private MimeMessage createMimeMessage(String recipient) {
+        MimeMessage mimeMessage = sender.createMimeMessage();
+        mimeMessage.setFrom("test@example.com");
+        mimeMessage.setRecipients(Message.RecipientType.TO, recipient);
+        mimeMessage.setSubject("Ping");
+        mimeMessage.setText("Lorem Ipsum");
+        return mimeMessage;
+    }
+}
@@ -0,0 +1,220 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Stream;
+import javax.mail.Message;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * @author Vincent Nadoll
+ */
+class FileMailSpoolTest {
+
+    private static final Session SESSION = Session.getInstance(new Properties());
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @SneakyThrows
+    void reopeningWithUnacknowledgedBatch_shouldRecoverMessages() {
+        try (FileMailSpool spool = FileMailSpool.open(directory)) {
+            spool.append(mimeMessage("john.doe@example.com"), mimeMessage("jane.doe@example.com"));
+        }
+
+        try (FileMailSpool spool = FileMailSpool.open(directory)) {
+            Map<Long, MimeMessage[]> batches = spool.recover(FileMailSpoolTest::parse);
+
+            assertEquals(1, batches.size());
+            MimeMessage[] mimeMessages = batches.values().iterator().next();
+            assertEquals(2, mimeMessages.length);
+            assertEquals("john.doe@example.com", mimeMessages[0].getRecipients(Message.RecipientType.TO)[0].toString());
+            assertEquals("Lorem Ipsum", mimeMessages[1].getContent());
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void reopeningWithPrioritizedAndAttemptedBatch_shouldRecoverPriorityAndAttempt() {
+        long id;
+        try (FileMailSpool spool = FileMailSpool.open(directory)) {
+            id = spool.append(MailPriority.BULK, mimeMessage("john.doe@example.com"));
+            spool.recordAttempt(id, 3);
+        }
+
+        try (FileMailSpool spool = FileMailSpool.open(directory)) {
+            MimeMessage[] mimeMessages = spool.recover(FileMailSpoolTest::parse).get(id);
+
+            assertEquals("john.doe@example.com", mimeMessages[0].getRecipients(Message.RecipientType.TO)[0].toString());
+            assertEquals(MailPriority.BULK, spool.getPriority(id));
+            assertEquals(3, spool.getAttempt(id));
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void reopeningWithAcknowledgedBatch_shouldRecoverNothing() {
+        try (FileMailSpool spool = FileMailSpool.open(directory)) {
+            long id = spool.append(mimeMessage("john.doe@example.com"));
+            spool.append(mimeMessage("jane.doe@example.com"));
+            spool.acknowledge(id);
+        }
+
+        try (FileMailSpool spool = FileMailSpool.open(directory)) {
+            Map<Long, MimeMessage[]> batches = spool.recover(FileMailSpoolTest::parse);
+
+            assertEquals(1, batches.size());
+            assertEquals(1, spool.size());
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void reopeningWithTornRecord_shouldSkipTail() {
+        try (FileMailSpool spool = FileMailSpool.open(directory)) {
+            spool.append(mimeMessage("john.doe@example.com"));
+        }
+        try (Stream<Path> segments = Files.list(directory);
+             FileChannel channel = FileChannel.open(segments.findFirst().get(), StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 0, 0, 0, 0, 0, 0, 0, 7, 0, 0, 4}));
+        }
+
+        try (FileMailSpool spool = FileMailSpool.open(directory)) {
+            assertEquals(1, spool.recover(FileMailSpoolTest::parse).size());
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void acknowledgingEveryBatch_shouldDeleteRolledSegments() {
+        try (FileMailSpool spool = FileMailSpool.open(directory, 1)) {
+            long first = spool.append(mimeMessage("john.doe@example.com"));
+            long second = spool.append(mimeMessage("jane.doe@example.com"));
+            spool.acknowledge(first);
+            spool.acknowledge(second);
+
+            try (Stream<Path> segments = Files.list(directory)) {
+                assertEquals(1, segments.count());
+            }
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void readingFromMappedSpool_shouldParseMessages() {
+        try (FileMailSpool spool = FileMailSpool.open(directory, FileMailSpool.DEFAULT_SEGMENT_SIZE, true)) {
+            long id = spool.append(mimeMessage("john.doe@example.com"), mimeMessage("jane.doe@example.com"));
+
+            MimeMessage[] mimeMessages = spool.read(id, FileMailSpoolTest::parse);
+
+            assertEquals(2, mimeMessages.length);
+            assertEquals("Ping", mimeMessages[0].getSubject());
+            assertEquals("jane.doe@example.com", mimeMessages[1].getRecipients(Message.RecipientType.TO)[0].toString());
+            assertEquals("Lorem Ipsum", mimeMessages[1].getContent());
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void recoveringFromMappedSpool_shouldParseMessages() {
+        try (FileMailSpool spool = FileMailSpool.open(directory)) {
+            spool.append(mimeMessage("john.doe@example.com"));
+        }
+
+        try (FileMailSpool spool = FileMailSpool.open(directory, FileMailSpool.DEFAULT_SEGMENT_SIZE, true)) {
+            MimeMessage[] mimeMessages = spool.recover(FileMailSpoolTest::parse).values().iterator().next();
+
+            assertEquals("Lorem Ipsum", mimeMessages[0].getContent());
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void readingAcknowledgedBatch_shouldReturnNull() {
+        try (FileMailSpool spool = FileMailSpool.open(directory)) {
+            long id = spool.append(mimeMessage("john.doe@example.com"));
+            spool.acknowledge(id);
+
+            assertNull(spool.read(id, FileMailSpoolTest::parse));
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void acknowledgingWhileReading_shouldReadEveryMessage() {
+        try (FileMailSpool spool = FileMailSpool.open(directory, 1)) {
+            long id = spool.append(mimeMessage("john.doe@example.com"), mimeMessage("jane.doe@example.com"));
+
+            MimeMessage[] mimeMessages = spool.read(id, contentStream -> {
+                acknowledge(spool, id);
+                return parse(contentStream);
+            });
+
+            assertEquals("jane.doe@example.com", mimeMessages[1].getRecipients(Message.RecipientType.TO)[0].toString());
+            try (Stream<Path> segments = Files.list(directory)) {
+                assertEquals(1, segments.count());
+            }
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void appendingConcurrently_shouldKeepEveryBatch() {
+        try (FileMailSpool spool = FileMailSpool.open(directory)) {
+            Thread[] threads = new Thread[8];
+            for (int i = 0; i < threads.length; i++) {
+                threads[i] = new Thread(() -> append(spool));
+                threads[i].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertEquals(threads.length, spool.size());
+        }
+
+        try (FileMailSpool spool = FileMailSpool.open(directory)) {
+            assertEquals(8, spool.recover(FileMailSpoolTest::parse).size());
+        }
+    }
+
+    @SneakyThrows
+    private static void append(FileMailSpool spool) {
+        spool.append(mimeMessage("john.doe@example.com"));
+    }
+
+    @SneakyThrows
+    private static void acknowledge(FileMailSpool spool, long id) {
+        spool.acknowledge(id);
+    }
+
+    @SneakyThrows
+    private static MimeMessage mimeMessage(String to) {
+        MimeMessage mimeMessage = new MimeMessage(SESSION);
+        mimeMessage.setFrom("test@example.com");
+        mimeMessage.setRecipients(Message.RecipientType.TO, to);
+        mimeMessage.setSubject("Ping");
+        mimeMessage.setText("Lorem Ipsum");
+        return mimeMessage;
+    }
+
+    @SneakyThrows
+    private static MimeMessage parse(InputStream contentStream) {
+        return new MimeMessage(SESSION, contentStream);
+    }
+}
@@ -0,0 +1,40 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.SimpleMailMessage;
+
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Vincent Nadoll
+ */
+class MailPriorityTest {
+
+    @Test
+    @SneakyThrows
+    void readingHeader_shouldReturnNamedPriority() {
+        MimeMessage mimeMessage = new MimeMessage((Session) null);
+        mimeMessage.setHeader(MailPriority.HEADER, " Bulk ");
+
+        assertEquals(MailPriority.BULK, MailPriority.of(mimeMessage));
+    }
+
+    @Test
+    @SneakyThrows
+    void readingUnknownHeader_shouldReturnTransactional() {
+        MimeMessage mimeMessage = new MimeMessage((Session) null);
+        mimeMessage.setHeader(MailPriority.HEADER, "urgent");
+
+        assertEquals(MailPriority.TRANSACTIONAL, MailPriority.of(mimeMessage));
+    }
+
+    @Test
+    void readingWithoutHeader_shouldReturnTransactional() {
+        assertEquals(MailPriority.TRANSACTIONAL, MailPriority.of(new MimeMessage((Session) null)));
+        assertEquals(MailPriority.TRANSACTIONAL, MailPriority.of(new SimpleMailMessage()));
+    }
+}
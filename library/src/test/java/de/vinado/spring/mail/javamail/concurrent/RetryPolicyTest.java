@@ -0,0 +1,116 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailSendException;
+
+import java.net.ConnectException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.mail.MessagingException;
+import javax.mail.internet.InternetAddress;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class RetryPolicyTest {
+
+    @Test
+    void failingTransiently_shouldRetryUntilMaxAttempts() {
+        RetryPolicy policy = new RetryPolicy(3, 100, 1000);
+        MailSendException throttled = new MailSendException("Failed messages",
+            new MessagingException("421 4.7.0 Try again later"));
+
+        assertTrue(policy.shouldRetry(1, throttled));
+        assertTrue(policy.shouldRetry(2, throttled));
+        assertFalse(policy.shouldRetry(3, throttled));
+    }
+
+    @Test
+    void failingToConnect_shouldRetry() {
+        RetryPolicy policy = new RetryPolicy(3, 100, 1000);
+        MailSendException unreachable = new MailSendException("Mail server connection failed",
+            new MessagingException("Could not connect to SMTP host", new ConnectException("Connection refused")));
+
+        assertTrue(policy.shouldRetry(1, unreachable));
+    }
+
+    @Test
+    void failingPermanently_shouldNotRetry() {
+        RetryPolicy policy = new RetryPolicy(3, 100, 1000);
+        MailSendException rejected = new MailSendException(Collections.singletonMap(new Object(),
+            new MessagingException("550 5.1.1 User unknown")));
+
+        assertFalse(policy.shouldRetry(1, rejected));
+        assertFalse(policy.shouldRetry(1, new MailParseException("Could not parse")));
+    }
+
+    @Test
+    void failingTransientlyWithoutReplyInMessage_shouldRetryByReturnCode() {
+        RetryPolicy policy = new RetryPolicy(3, 100, 1000);
+        MailSendException throttled = new MailSendException(Collections.singletonMap(new Object(),
+            new SMTPSendFailedException("DATA", 451, "Requested action aborted", null, null, null, null)));
+
+        assertTrue(policy.shouldRetry(1, throttled));
+    }
+
+    @Test
+    @SneakyThrows
+    void failingPermanentlyWithoutReplyInMessage_shouldNotRetryByReturnCode() {
+        RetryPolicy policy = new RetryPolicy(3, 100, 1000);
+        SMTPAddressFailedException unknownUser = new SMTPAddressFailedException(
+            new InternetAddress("john.doe@example.com"), "RCPT TO:<john.doe@example.com>", 550, "User unknown");
+        Map<Object, Exception> failedMessages = new HashMap<>();
+        failedMessages.put(new Object(), new MessagingException("421 4.7.0 Try again later"));
+        failedMessages.put(new Object(), new MessagingException("Invalid Addresses", unknownUser));
+        MailSendException rejected = new MailSendException(failedMessages);
+
+        assertFalse(policy.shouldRetry(1, rejected));
+    }
+
+    @Test
+    void backingOff_shouldGrowExponentiallyUpToMaximum() {
+        RetryPolicy policy = new RetryPolicy(10, 100, 1000);
+        policy.setJitter(0);
+
+        assertEquals(100, policy.backoffMillis(1));
+        assertEquals(200, policy.backoffMillis(2));
+        assertEquals(400, policy.backoffMillis(3));
+        assertEquals(1000, policy.backoffMillis(5));
+    }
+
+    @Test
+    void backingOffWithJitter_shouldStayWithinJitteredRange() {
+        RetryPolicy policy = new RetryPolicy(10, 1000, 1000);
+        policy.setJitter(0.5);
+
+        for (int i = 0; i < 100; i++) {
+            long backoff = policy.backoffMillis(1);
+            assertTrue(backoff >= 500 && backoff <= 1000);
+        }
+    }
+
+    @Test
+    void none_shouldNeverRetry() {
+        MailSendException throttled = new MailSendException("Failed messages",
+            new MessagingException("421 4.7.0 Try again later"));
+
+        assertFalse(RetryPolicy.none().shouldRetry(1, throttled));
+    }
+
+    @Test
+    void creatingWithInvalidArguments_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new RetryPolicy(0, 100, 1000));
+        assertThrows(IllegalArgumentException.class, () -> new RetryPolicy(3, 1000, 100));
+        assertThrows(IllegalArgumentException.class, () -> new RetryPolicy(3, 100, 1000).setJitter(2));
+    }
+}
@@ -0,0 +1,63 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class TokenBucketRateLimiterTest {
+
+    private static final long TOLERANCE_MILLIS = 50;
+
+    @Test
+    void reservingWithinBurstCapacity_shouldDispatchImmediately() {
+        RateLimiter rateLimiter = new TokenBucketRateLimiter(1, 10);
+
+        long time = System.currentTimeMillis();
+        long first = rateLimiter.reserve(5);
+        long second = rateLimiter.reserve(5);
+
+        assertTrue(first - time <= TOLERANCE_MILLIS);
+        assertTrue(second - time <= TOLERANCE_MILLIS);
+    }
+
+    @Test
+    void reservingBeyondBurstCapacity_shouldDelayUntilRefilled() {
+        RateLimiter rateLimiter = new TokenBucketRateLimiter(10, 2);
+
+        long time = System.currentTimeMillis();
+        rateLimiter.reserve(2);
+        long delayed = rateLimiter.reserve(2);
+
+        assertTrue(delayed - time >= 200 - TOLERANCE_MILLIS);
+        assertTrue(delayed - time <= 200 + TOLERANCE_MILLIS);
+    }
+
+    @Test
+    void reservingWhileInDebt_shouldDelayEverySubsequentBatch() {
+        RateLimiter rateLimiter = new TokenBucketRateLimiter(10, 1);
+
+        rateLimiter.reserve(1);
+        long first = rateLimiter.reserve(1);
+        long second = rateLimiter.reserve(1);
+
+        assertTrue(second - first >= 100 - TOLERANCE_MILLIS);
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {-1, 0})
+    void configuringNonPositiveRate_shouldThrowException(double permitsPerSecond) {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(permitsPerSecond, 1));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {Integer.MIN_VALUE, -1, 0})
+    void configuringNonPositiveBurstCapacity_shouldThrowException(int burstCapacity) {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(1, burstCapacity));
+    }
+}
@@ -0,0 +1,49 @@
+package de.vinado.spring.mail.javamail.concurrent;
+
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class WorkerExecutorTest {
+
+    @Test
+    @SneakyThrows
+    void creatingPlatformExecutor_shouldRunWorkers() {
+        ExecutorService executor = WorkerExecutor.PLATFORM.create(2);
+
+        assertEquals("done", executor.submit(() -> "done").get(1, TimeUnit.SECONDS));
+
+        executor.shutdownNow();
+    }
+
+    @Test
+    @SneakyThrows
+    void creatingVirtualExecutor_shouldRunWorkersOnVirtualThreads() {
+        assumeTrue(WorkerExecutor.VIRTUAL.isSupported());
+        ExecutorService executor = WorkerExecutor.VIRTUAL.create(2);
+
+        Object virtual = executor.submit(() -> Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()))
+            .get(1, TimeUnit.SECONDS);
+
+        assertEquals(Boolean.TRUE, virtual);
+
+        executor.shutdownNow();
+    }
+
+    @Test
+    void creatingVirtualExecutorWithoutSupport_shouldThrowException() {
+        assumeFalse(WorkerExecutor.VIRTUAL.isSupported());
+
+        assertThrows(IllegalStateException.class, () -> WorkerExecutor.VIRTUAL.create(2));
+    }
+}
@@ -0,0 +1,67 @@
+package de.vinado.spring.mail.javamail.dkim;
+
+import lombok.SneakyThrows;
+import net.markenwerk.utils.mail.dkim.Canonicalization;
+import org.junit.jupiter.api.Test;
+
+import java.security.MessageDigest;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Uses the examples of RFC 6376, section 3.4.5.
+ *
+ * @author Vincent Nadoll
+ */
+class BodyCanonicalizerTest {
+
+    private static final String BODY = " C \r\nD \t E\r\n\r\n\r\n";
+
+    @Test
+    void canonicalizingRelaxed_shouldReduceWhitespaceAndTrailingLines() {
+        assertCanonicalBody(" C\r\nD E\r\n", Canonicalization.RELAXED, BODY);
+    }
+
+    @Test
+    void canonicalizingSimple_shouldOnlyRemoveTrailingLines() {
+        assertCanonicalBody(" C \r\nD \t E\r\n", Canonicalization.SIMPLE, BODY);
+    }
+
+    @Test
+    void canonicalizingBareLineFeeds_shouldTreatThemAsLineBreaks() {
+        assertCanonicalBody("A\r\n\r\nB\r\n", Canonicalization.SIMPLE, "A\n\nB");
+    }
+
+    @Test
+    void canonicalizingEmptyBody_shouldDifferByCanonicalization() {
+        assertCanonicalBody("\r\n", Canonicalization.SIMPLE, "\r\n\r\n");
+        assertCanonicalBody("", Canonicalization.RELAXED, " \r\n\r\n");
+    }
+
+    @Test
+    void canonicalizingHeaderRelaxed_shouldUnfoldAndReduceWhitespace() {
+        assertEquals("a:X", DkimMimeMessageSigner.canonicalizeHeader(Canonicalization.RELAXED, "A: X"));
+        assertEquals("b:Y Z", DkimMimeMessageSigner.canonicalizeHeader(Canonicalization.RELAXED, "B : Y\t\r\n\tZ  "));
+    }
+
+    @Test
+    void canonicalizingHeaderSimple_shouldKeepLine() {
+        assertEquals("B : Y\t\r\n\tZ  ", DkimMimeMessageSigner.canonicalizeHeader(Canonicalization.SIMPLE,
+            "B : Y\t\r\n\tZ  "));
+    }
+
+    @SneakyThrows
+    private static void assertCanonicalBody(String expected, Canonicalization canonicalization, String body) {
+        BodyCanonicalizer canonicalizer = new BodyCanonicalizer(MessageDigest.getInstance("SHA-256"),
+            canonicalization);
+        canonicalizer.write(body.getBytes(US_ASCII));
+
+        BodyHash bodyHash = canonicalizer.finish();
+
+        byte[] expectedHash = MessageDigest.getInstance("SHA-256").digest(expected.getBytes(US_ASCII));
+        assertArrayEquals(expectedHash, bodyHash.getHash());
+        assertEquals(expected.length(), bodyHash.getLength());
+    }
+}
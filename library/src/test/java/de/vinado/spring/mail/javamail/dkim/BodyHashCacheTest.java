@@ -0,0 +1,62 @@
+package de.vinado.spring.mail.javamail.dkim;
+
+import net.markenwerk.utils.mail.dkim.Canonicalization;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Vincent Nadoll
+ */
+class BodyHashCacheTest {
+
+    @Test
+    void gettingSameBodyTwice_shouldHashOnce() {
+        BodyHashCache cache = new BodyHashCache(10);
+        BodyHash bodyHash = new BodyHash(new byte[]{1}, 1);
+
+        BodyHash first = cache.get(new byte[]{42}, Canonicalization.RELAXED, "SHA-256", () -> bodyHash);
+        BodyHash second = cache.get(new byte[]{42}, Canonicalization.RELAXED, "SHA-256", () -> {
+            throw new AssertionError("Body must not be hashed twice");
+        });
+
+        assertSame(bodyHash, first);
+        assertSame(bodyHash, second);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void gettingSameBodyWithDifferentCanonicalization_shouldHashAgain() {
+        BodyHashCache cache = new BodyHashCache(10);
+
+        cache.get(new byte[]{42}, Canonicalization.RELAXED, "SHA-256", () -> new BodyHash(new byte[]{1}, 1));
+        cache.get(new byte[]{42}, Canonicalization.SIMPLE, "SHA-256", () -> new BodyHash(new byte[]{2}, 1));
+
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void exceedingMaximumSize_shouldEvictLeastRecentlyUsed() {
+        BodyHashCache cache = new BodyHashCache(2);
+        BodyHash bodyHash = new BodyHash(new byte[]{1}, 1);
+
+        cache.get(new byte[]{1}, Canonicalization.RELAXED, "SHA-256", () -> bodyHash);
+        cache.get(new byte[]{2}, Canonicalization.RELAXED, "SHA-256", () -> bodyHash);
+        cache.get(new byte[]{1}, Canonicalization.RELAXED, "SHA-256", () -> bodyHash);
+        cache.get(new byte[]{3}, Canonicalization.RELAXED, "SHA-256", () -> bodyHash);
+        cache.get(new byte[]{1}, Canonicalization.RELAXED, "SHA-256", () -> bodyHash);
+
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.getHits());
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    void creatingWithNonPositiveSize_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new BodyHashCache(0));
+    }
+}
@@ -1,23 +1,39 @@
 package de.vinado.spring.mail.javamail.dkim;
 
+import de.vinado.spring.mail.javamail.AsyncJavaMailSender;
+import de.vinado.spring.mail.javamail.JavaMailSenderDecorator;
 import de.vinado.spring.mail.javamail.MockJavaMailSender;
+import lombok.Getter;
 import lombok.SneakyThrows;
 import net.markenwerk.utils.mail.dkim.DkimMessage;
 import net.markenwerk.utils.mail.dkim.DkimSigner;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailParseException;
 import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessagePreparator;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import javax.mail.Message;
 import javax.mail.MessagingException;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -149,7 +165,7 @@ class DkimJavaMailSenderTest {
             sender.send(mimeMessage);
         } catch (MailSendException e) {
             assertEquals(1, e.getFailedMessages().size());
-            assertEquals(DkimMessage.class, e.getFailedMessages().keySet().iterator().next().getClass());
+            assertSame(mimeMessage, e.getFailedMessages().keySet().iterator().next());
             Object nested = e.getFailedMessages().values().iterator().next();
             assertTrue(nested instanceof MessagingException);
             assertEquals("failed", ((MessagingException) nested).getMessage());
@@ -158,6 +174,150 @@ class DkimJavaMailSenderTest {
         verify(sender, times(1)).createSignedMimeMessage(any());
     }
 
+    @Test
+    void sendSimpleMessagesPartiallyFailing_shouldReportFailedOriginal() {
+        SimpleMailMessage succeeding = new SimpleMailMessage();
+        succeeding.setFrom("test@example.com");
+        succeeding.setTo("john.doe@example.com");
+        succeeding.setSubject("Ping");
+        succeeding.setText("Lorem Ipsum");
+        SimpleMailMessage failing = new SimpleMailMessage(succeeding);
+        failing.setTo("jane.doe@example.com");
+        failing.setSubject("fail");
+
+        MailSendException exception = assertThrows(MailSendException.class, () -> sender.send(succeeding, failing));
+
+        assertEquals(1, exception.getFailedMessages().size());
+        assertSame(failing, exception.getFailedMessages().keySet().iterator().next());
+        assertEquals(1, delegate.getSentMessages().size());
+    }
+
+    @Test
+    @SneakyThrows
+    void sendFailingWithMessage_shouldKeepMessageOfDelegate() {
+        FailingJavaMailSender failingDelegate = new FailingJavaMailSender(delegate);
+        DkimSigner dkimSigner = new DkimSignerBuilder().defaultSigner().build();
+        DkimJavaMailSender failingSender = new DkimJavaMailSender(failingDelegate, dkimSigner);
+        MimeMessage mimeMessage = mimeMessages(1)[0];
+
+        MailSendException exception = assertThrows(MailSendException.class, () -> failingSender.send(mimeMessage));
+
+        assertSame(mimeMessage, exception.getFailedMessages().keySet().iterator().next());
+        assertSame(failingDelegate.getException().getCause(), exception.getCause());
+        assertEquals(failingDelegate.getException().getMessage(), exception.getMessage());
+        assertTrue(exception.getMessage().startsWith("Mail server connection failed; "));
+    }
+
+    @Test
+    @SneakyThrows
+    void sendAsyncSimpleMessage_shouldAttemptToSign() {
+        SimpleMailMessage simpleMessage = new SimpleMailMessage();
+        simpleMessage.setFrom("test@example.com");
+        simpleMessage.setTo("john.doe@example.com");
+        simpleMessage.setSubject("Ping");
+        simpleMessage.setText("Lorem Ipsum");
+
+        sender.sendAsync(simpleMessage).get(1, TimeUnit.SECONDS);
+
+        assertSignedMessages(1);
+    }
+
+    @Test
+    @SneakyThrows
+    void sendAsyncFailingMessage_shouldCompleteExceptionally() {
+        MimeMessage mimeMessage = sender.createMimeMessage();
+        mimeMessage.setFrom("test@example.com");
+        mimeMessage.setRecipient(Message.RecipientType.TO, new InternetAddress("john.doe@example.com"));
+        mimeMessage.setSubject("fail");
+        mimeMessage.setText("Lorem Ipsum");
+
+        CompletableFuture<Void> future = sender.sendAsync(mimeMessage);
+
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    @Test
+    @SneakyThrows
+    void sendAsyncSimpleMessagesPartiallyFailing_shouldReportFailedOriginal() {
+        SimpleMailMessage succeeding = new SimpleMailMessage();
+        succeeding.setFrom("test@example.com");
+        succeeding.setTo("john.doe@example.com");
+        succeeding.setSubject("Ping");
+        succeeding.setText("Lorem Ipsum");
+        SimpleMailMessage failing = new SimpleMailMessage(succeeding);
+        failing.setTo("jane.doe@example.com");
+        failing.setSubject("fail");
+        DkimSigner dkimSigner = new DkimSignerBuilder().defaultSigner().build();
+        DkimJavaMailSender asyncSender = new DkimJavaMailSender(new AsyncMockJavaMailSender(delegate), dkimSigner);
+
+        CompletableFuture<Void> future = asyncSender.sendAsync(succeeding, failing);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+        MailSendException cause = (MailSendException) exception.getCause();
+        assertEquals(1, cause.getFailedMessages().size());
+        assertSame(failing, cause.getFailedMessages().keySet().iterator().next());
+    }
+
+    @Test
+    @SneakyThrows
+    void sendMimeMessagesInParallel_shouldPreserveOrder() {
+        ForkJoinPool signingPool = new ForkJoinPool(4);
+        sender.setSigningPool(signingPool);
+        sender.setParallelSigningThreshold(10);
+        MimeMessage[] mimeMessages = mimeMessages(100);
+
+        sender.send(mimeMessages);
+
+        assertSignedMessages(100);
+        for (int i = 0; i < mimeMessages.length; i++) {
+            assertEquals(mimeMessages[i].getSubject(), delegate.getSentMessage(i).getSubject());
+        }
+
+        signingPool.shutdown();
+    }
+
+    @Test
+    @SneakyThrows
+    void sendMimeMessagesInParallelFailing_shouldPropagateFirstFailure() {
+        ForkJoinPool signingPool = new ForkJoinPool(4);
+        sender.setSigningPool(signingPool);
+        sender.setParallelSigningThreshold(10);
+        MimeMessage[] mimeMessages = mimeMessages(100);
+        MailParseException first = new MailParseException("first");
+        doThrow(first).when(sender).createSignedMimeMessage(mimeMessages[30]);
+        doThrow(new MailParseException("second")).when(sender).createSignedMimeMessage(mimeMessages[70]);
+
+        MailParseException exception = assertThrows(MailParseException.class, () -> sender.send(mimeMessages));
+
+        assertSame(first, exception);
+
+        signingPool.shutdown();
+    }
+
+    @Test
+    @SneakyThrows
+    void sendMimeMessagesWithSigningListener_shouldReportEveryMessage() {
+        List<Long> signingTimes = new CopyOnWriteArrayList<>();
+        sender.setSigningListener(signingTimes::add);
+
+        sender.send(mimeMessages(3));
+
+        assertEquals(3, signingTimes.size());
+    }
+
+    @SneakyThrows
+    private MimeMessage[] mimeMessages(int amount) {
+        MimeMessage[] mimeMessages = new MimeMessage[amount];
+        for (int i = 0; i < amount; i++) {
+            mimeMessages[i] = sender.createMimeMessage();
+            mimeMessages[i].setFrom("test@example.com");
+            mimeMessages[i].setRecipient(Message.RecipientType.TO, new InternetAddress("john.doe@example.com"));
+            mimeMessages[i].setSubject("Ping " + i);
+            mimeMessages[i].setText("Lorem Ipsum");
+        }
+        return mimeMessages;
+    }
+
     private void assertSignedMessages(int expectedAmount) {
         assertEquals(expectedAmount, delegate.getSentMessages().size());
 
@@ -167,4 +327,55 @@ class DkimJavaMailSenderTest {
 
         verify(sender, times(expectedAmount)).createSignedMimeMessage(any());
     }
+
+
+    /**
+     * Fails every message the way {@link org.springframework.mail.javamail.JavaMailSenderImpl} does if it can't
+     * connect.
+     */
+    private static final class FailingJavaMailSender extends JavaMailSenderDecorator {
+
+        @Getter
+        private MailSendException exception;
+
+        private FailingJavaMailSender(JavaMailSender delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void send(MimeMessage... mimeMessages) {
+            MessagingException cause = new MessagingException("Connection refused");
+            Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+            for (MimeMessage mimeMessage : mimeMessages) {
+                failedMessages.put(mimeMessage, cause);
+            }
+            exception = new MailSendException("Mail server connection failed", cause, failedMessages);
+            throw exception;
+        }
+    }
+
+    /**
+     * Dispatches on another thread, the way the concurrent sender does.
+     */
+    private static final class AsyncMockJavaMailSender extends JavaMailSenderDecorator implements AsyncJavaMailSender {
+
+        private AsyncMockJavaMailSender(JavaMailSender delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public CompletableFuture<Void> sendAsync(MimeMessage... mimeMessages) {
+            return CompletableFuture.runAsync(() -> send(mimeMessages));
+        }
+
+        @Override
+        public CompletableFuture<Void> sendAsync(MimeMessagePreparator... mimeMessagePreparators) {
+            return CompletableFuture.runAsync(() -> send(mimeMessagePreparators));
+        }
+
+        @Override
+        public CompletableFuture<Void> sendAsync(SimpleMailMessage... simpleMessages) {
+            return CompletableFuture.runAsync(() -> send(simpleMessages));
+        }
+    }
 }
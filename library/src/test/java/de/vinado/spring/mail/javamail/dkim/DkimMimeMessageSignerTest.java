@@ -0,0 +1,335 @@
+package de.vinado.spring.mail.javamail.dkim;
+
+import lombok.SneakyThrows;
+import net.markenwerk.utils.mail.dkim.Canonicalization;
+import net.markenwerk.utils.mail.dkim.DkimMessage;
+import net.markenwerk.utils.mail.dkim.DkimSigner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class DkimMimeMessageSignerTest {
+
+    private static final Pattern SIGNATURE_HEADER = Pattern.compile("^DKIM-Signature: (.*?)\r\n(?![ \t])",
+        Pattern.DOTALL);
+    private static final Pattern ANY_SIGNATURE_HEADER = Pattern.compile("(?:^|\r\n)(DKIM-Signature:.*?)\r\n(?![ \t])",
+        Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
+
+    private KeyPair keyPair;
+    private DkimMimeMessageSigner signer;
+    private MimeMessage message;
+
+    @BeforeEach
+    @SneakyThrows
+    void setUp() {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        keyPair = generator.generateKeyPair();
+        signer = new DkimMimeMessageSigner("example.com", "dkim1", keyPair.getPrivate());
+
+        message = new MimeMessage(Session.getInstance(new Properties()));
+        message.setFrom("test@example.com");
+        message.setRecipients(Message.RecipientType.TO, "john.doe@example.com");
+        message.setSubject("Ping");
+        message.setText("Lorem Ipsum");
+        message.saveChanges();
+    }
+
+    @Test
+    @SneakyThrows
+    void writingSignedMessage_shouldPrependBodyHash() {
+        String signature = signatureOf(write(signer.sign(message)));
+
+        String bodyHash = Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256")
+            .digest("Lorem Ipsum\r\n".getBytes(US_ASCII)));
+        assertTrue(signature.contains("d=example.com;"));
+        assertTrue(signature.contains("s=dkim1;"));
+        assertTrue(signature.contains("bh=" + bodyHash + ";"));
+        assertTrue(signature.contains("l=13;"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Canonicalization.class)
+    @SneakyThrows
+    void writingSignedMessage_shouldBeVerifiable(Canonicalization headerCanonicalization) {
+        signer.setHeaderCanonicalization(headerCanonicalization);
+        DkimSignedMimeMessage signed = signer.sign(message);
+
+        String signature = signatureOf(write(signed));
+
+        Signature verifier = Signature.getInstance("SHA256withRSA");
+        verifier.initVerify(keyPair.getPublic());
+        for (String name : tag(signature, "h").split(":")) {
+            String line = signed.getMatchingHeaderLines(new String[]{name}).nextElement();
+            verifier.update((DkimMimeMessageSigner.canonicalizeHeader(headerCanonicalization, line) + "\r\n")
+                .getBytes(UTF_8));
+        }
+        String unsigned = "DKIM-Signature: " + signature.substring(0, signature.lastIndexOf("b=") + 2);
+        verifier.update(DkimMimeMessageSigner.canonicalizeHeader(headerCanonicalization, unsigned).getBytes(US_ASCII));
+
+        assertTrue(verifier.verify(Base64.getDecoder().decode(tag(signature, "b"))));
+    }
+
+    @Test
+    @SneakyThrows
+    void writingEd25519SignedMessage_shouldBeVerifiable() {
+        assumeTrue(DkimAlgorithm.ED25519_SHA256.isSupported(), "Ed25519 requires Java 15 or later");
+        KeyPair ed25519KeyPair = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        signer = new DkimMimeMessageSigner("example.com", "dkim2", ed25519KeyPair.getPrivate());
+        signer.setAlgorithm(DkimAlgorithm.ED25519_SHA256);
+        DkimSignedMimeMessage signed = signer.sign(message);
+
+        String signature = signatureOf(write(signed));
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        for (String name : tag(signature, "h").split(":")) {
+            String line = signed.getMatchingHeaderLines(new String[]{name}).nextElement();
+            data.write((DkimMimeMessageSigner.canonicalizeHeader(Canonicalization.SIMPLE, line) + "\r\n")
+                .getBytes(UTF_8));
+        }
+        String unsigned = "DKIM-Signature: " + signature.substring(0, signature.lastIndexOf("b=") + 2);
+        data.write(DkimMimeMessageSigner.canonicalizeHeader(Canonicalization.SIMPLE, unsigned).getBytes(US_ASCII));
+
+        Signature verifier = Signature.getInstance("Ed25519");
+        verifier.initVerify(ed25519KeyPair.getPublic());
+        verifier.update(MessageDigest.getInstance("SHA-256").digest(data.toByteArray()));
+        assertTrue(signature.contains("a=ed25519-sha256;"));
+        assertTrue(verifier.verify(Base64.getDecoder().decode(tag(signature, "b"))));
+    }
+
+    @Test
+    @SneakyThrows
+    void writingDualSignedMessage_shouldPrependBothSignaturesSharingBodyHash() {
+        BodyHashCache cache = new BodyHashCache(10);
+        signer.setBodyHashCache(cache);
+        DkimMimeMessageSigner secondSigner = new DkimMimeMessageSigner("example.com", "dkim2", keyPair.getPrivate());
+        secondSigner.setBodyHashCache(cache);
+        CompositeDkimMimeMessageSigner composite = new CompositeDkimMimeMessageSigner(signer, secondSigner);
+
+        String content = write(composite.sign(message));
+
+        String first = signatureOf(content);
+        String second = signatureOf(content.substring(content.indexOf("\r\nDKIM-Signature: ") + 2));
+        assertTrue(first.contains("s=dkim1;"));
+        assertTrue(second.contains("s=dkim2;"));
+        assertEquals(tag(first, "bh"), tag(second, "bh"));
+        assertEquals(1, cache.getMisses());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    @SneakyThrows
+    void writingCopiesOfSameBody_shouldHashBodyOnce() {
+        BodyHashCache cache = new BodyHashCache(10);
+        signer.setBodyHashCache(cache);
+
+        String first = signatureOf(write(signer.sign(message)));
+        String second = signatureOf(write(signer.sign(message)));
+
+        assertEquals(tag(first, "bh"), tag(second, "bh"));
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    @SneakyThrows
+    void writingSignedMultipart_shouldHashWrittenBody() {
+        byte[] attachment = new byte[256 * 1024];
+        new Random(42).nextBytes(attachment);
+        MimeMessageHelper helper = new MimeMessageHelper(message, true);
+        helper.setText("Lorem Ipsum");
+        helper.addAttachment("attachment.bin", new ByteArrayResource(attachment));
+        message.saveChanges();
+
+        String content = write(signer.sign(message));
+
+        String body = content.substring(content.indexOf("\r\n\r\n") + 4);
+        BodyCanonicalizer canonicalizer = new BodyCanonicalizer(MessageDigest.getInstance("SHA-256"),
+            Canonicalization.RELAXED);
+        canonicalizer.write(body.getBytes(UTF_8));
+        BodyHash bodyHash = canonicalizer.finish();
+        String signature = signatureOf(content);
+        assertEquals(bodyHash.encode(), tag(signature, "bh"));
+        assertEquals(String.valueOf(bodyHash.getLength()), tag(signature, "l"));
+    }
+
+    @Test
+    @SneakyThrows
+    void writingSignedMessageCopyingHeaderFields_shouldCopySignedHeaders() {
+        signer.setCopyHeaderFields(true);
+
+        String signature = signatureOf(write(signer.sign(message)));
+
+        List<String> fields = Arrays.asList(tag(signature, "z").split("\\|"));
+        assertEquals(tag(signature, "h").split(":").length, fields.size());
+        assertEquals("From:test@example.com", fields.get(0));
+        assertTrue(fields.contains("Subject:Ping"));
+        assertTrue(fields.contains("Content-Type:text/plain=3B=20charset=3Dus-ascii"));
+    }
+
+    @Test
+    @SneakyThrows
+    void writingSignedMessagesCheckingMatchingDomainKey_shouldLookUpDomainKeyOnce() {
+        List<String> lookups = new ArrayList<>();
+        signer.setCheckDomainKey(true);
+        signer.setDomainKeyResolver(name -> {
+            lookups.add(name);
+            return domainKeyOf(keyPair.getPublic());
+        });
+
+        write(signer.sign(message));
+        write(signer.sign(message));
+
+        assertEquals(Collections.singletonList("dkim1._domainkey.example.com"), lookups);
+    }
+
+    @Test
+    @SneakyThrows
+    void writingSignedMessageCheckingMismatchingDomainKey_shouldThrowException() {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        PublicKey otherKey = generator.generateKeyPair().getPublic();
+        signer.setCheckDomainKey(true);
+        signer.setDomainKeyResolver(name -> domainKeyOf(otherKey));
+        DkimSignedMimeMessage signed = signer.sign(message);
+
+        assertThrows(MessagingException.class, () -> write(signed));
+    }
+
+    @Test
+    @SneakyThrows
+    void writingSignedMessageCheckingRevokedDomainKey_shouldThrowException() {
+        signer.setCheckDomainKey(true);
+        signer.setDomainKeyResolver(name -> "v=DKIM1; k=rsa; p=");
+        DkimSignedMimeMessage signed = signer.sign(message);
+
+        assertThrows(MessagingException.class, () -> write(signed));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Canonicalization.class)
+    @SneakyThrows
+    void writingSignedMessage_shouldComputeBodyHashLikeDkimSigner(Canonicalization bodyCanonicalization) {
+        message.setText("Lorem \t Ipsum  \r\n\r\n dolor sit amet \r\n\r\n\r\n");
+        message.saveChanges();
+        DkimSigner dkimSigner = new DkimSignerBuilder().defaultSigner()
+            .bodyCanonicalization(bodyCanonicalization)
+            .build();
+        signer.setBodyCanonicalization(bodyCanonicalization);
+
+        String expected = anySignatureOf(write(new DkimMessage(message, dkimSigner)));
+        String actual = signatureOf(write(signer.sign(message)));
+
+        assertEquals(tag(expected, "bh"), tag(actual, "bh"));
+        assertEquals(tag(expected, "l"), tag(actual, "l"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Canonicalization.class)
+    @SneakyThrows
+    void verifyingDkimSignerSignature_shouldCanonicalizeHeadersLikeDkimSigner(Canonicalization headerCanonicalization) {
+        DkimSigner dkimSigner = new DkimSignerBuilder().defaultSigner()
+            .headerCanonicalization(headerCanonicalization)
+            .build();
+
+        String content = write(new DkimMessage(message, dkimSigner));
+
+        String signature = anySignatureOf(content);
+        Signature verifier = Signature.getInstance("SHA256withRSA");
+        verifier.initVerify(testPublicKey());
+        for (String name : tag(signature, "h").split(":")) {
+            verifier.update((DkimMimeMessageSigner.canonicalizeHeader(headerCanonicalization, headerOf(content, name))
+                + "\r\n").getBytes(UTF_8));
+        }
+        String unsigned = signature.substring(0, signature.lastIndexOf("b=") + 2);
+        verifier.update(DkimMimeMessageSigner.canonicalizeHeader(headerCanonicalization, unsigned).getBytes(US_ASCII));
+        assertTrue(verifier.verify(Base64.getDecoder().decode(tag(signature, "b"))));
+    }
+
+    @SneakyThrows
+    private static String write(MimeMessage message) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        message.writeTo(outputStream);
+        return new String(outputStream.toByteArray(), UTF_8);
+    }
+
+    private static String signatureOf(String content) {
+        Matcher matcher = SIGNATURE_HEADER.matcher(content);
+        assertTrue(matcher.find(), "Message must start with a DKIM signature");
+        return matcher.group(1);
+    }
+
+    private static String tag(String signature, String name) {
+        Matcher matcher = Pattern.compile("(?:^|[;\\s])" + name + "=([^;]*)").matcher(signature);
+        assertTrue(matcher.find(), "Signature must contain " + name + "= tag");
+        return matcher.group(1).replaceAll("\\s", "");
+    }
+
+    /**
+     * @return the complete {@code DKIM-Signature} header, wherever it is located in the header
+     */
+    private static String anySignatureOf(String content) {
+        Matcher matcher = ANY_SIGNATURE_HEADER.matcher(content.substring(0, content.indexOf("\r\n\r\n") + 2));
+        assertTrue(matcher.find(), "Message must contain a DKIM signature");
+        return matcher.group(1);
+    }
+
+    private static String headerOf(String content, String name) {
+        String header = content.substring(0, content.indexOf("\r\n\r\n"));
+        return Arrays.stream(header.split("\r\n(?![ \t])"))
+            .filter(line -> line.substring(0, line.indexOf(':')).trim().equalsIgnoreCase(name))
+            .findFirst()
+            .orElseThrow(() -> new AssertionError("Message must contain " + name + " header"));
+    }
+
+    private static String domainKeyOf(PublicKey publicKey) {
+        return "v=DKIM1; k=rsa; p=" + Base64.getEncoder().encodeToString(publicKey.getEncoded());
+    }
+
+    @SneakyThrows
+    private static PublicKey testPublicKey() {
+        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+        RSAPrivateCrtKey privateKey = (RSAPrivateCrtKey) keyFactory.generatePrivate(
+            new PKCS8EncodedKeySpec(Files.readAllBytes(Paths.get("src/test/resources/test.key.der"))));
+        return keyFactory.generatePublic(new RSAPublicKeySpec(privateKey.getModulus(), privateKey.getPublicExponent()));
+    }
+}
@@ -0,0 +1,95 @@
+package de.vinado.spring.mail.javamail.dkim;
+
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Vincent Nadoll
+ */
+class DkimSignerRegistryTest {
+
+    private MimeMessageSigner tenantSigner;
+    private MimeMessageSigner otherSigner;
+    private DkimSignerRegistry registry;
+    private MimeMessage message;
+
+    @BeforeEach
+    @SneakyThrows
+    void setUp() {
+        tenantSigner = mock(MimeMessageSigner.class);
+        otherSigner = mock(MimeMessageSigner.class);
+        registry = new DkimSignerRegistry();
+        registry.register("tenant.tld", tenantSigner);
+        registry.register("Other.TLD", otherSigner);
+
+        message = new MimeMessage(Session.getInstance(new Properties()));
+    }
+
+    @Test
+    @SneakyThrows
+    void signingMessage_shouldPickSignerByFromDomain() {
+        MimeMessage signed = mock(MimeMessage.class);
+        when(tenantSigner.sign(message)).thenReturn(signed);
+        message.setFrom("john.doe@tenant.tld");
+        message.setSender(new InternetAddress("noreply@other.tld"));
+
+        assertSame(signed, registry.sign(message));
+        verify(otherSigner, never()).sign(any());
+    }
+
+    @Test
+    @SneakyThrows
+    void signingMessageOfUnknownFromDomain_shouldPickSignerBySenderDomain() {
+        message.setFrom("john.doe@unknown.tld");
+        message.setSender(new InternetAddress("noreply@OTHER.tld"));
+
+        registry.sign(message);
+
+        verify(otherSigner).sign(message);
+    }
+
+    @Test
+    @SneakyThrows
+    void signingMessageOfSubdomain_shouldPickSignerByParentDomain() {
+        message.setFrom("john.doe@mail.tenant.tld");
+
+        registry.sign(message);
+
+        verify(tenantSigner).sign(message);
+    }
+
+    @Test
+    @SneakyThrows
+    void signingMessageOfUnknownDomain_shouldUseDefaultSigner() {
+        MimeMessageSigner defaultSigner = mock(MimeMessageSigner.class);
+        registry.setDefaultSigner(defaultSigner);
+        message.setFrom("john.doe@unknown.tld");
+
+        registry.sign(message);
+
+        verify(defaultSigner).sign(message);
+    }
+
+    @Test
+    @SneakyThrows
+    void signingMessageOfUnknownDomainWithoutDefault_shouldNotSign() {
+        message.setFrom("john.doe@tld");
+
+        assertSame(message, registry.sign(message));
+        verify(tenantSigner, never()).sign(any());
+        verify(otherSigner, never()).sign(any());
+    }
+}
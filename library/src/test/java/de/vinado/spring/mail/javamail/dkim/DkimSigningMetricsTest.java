@@ -0,0 +1,29 @@
+package de.vinado.spring.mail.javamail.dkim;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Vincent Nadoll
+ */
+class DkimSigningMetricsTest {
+
+    @Test
+    void signing_shouldRecordIntoEveryBoundRegistry() {
+        MeterRegistry registry1 = new SimpleMeterRegistry();
+        MeterRegistry registry2 = new SimpleMeterRegistry();
+        DkimSigningMetrics metrics = new DkimSigningMetrics();
+        metrics.bindTo(registry1);
+        metrics.bindTo(registry2);
+
+        metrics.onSigned(TimeUnit.MILLISECONDS.toNanos(3));
+
+        assertEquals(1, registry1.get("mail.dkim.signing").timer().count());
+        assertEquals(3, registry2.get("mail.dkim.signing").timer().totalTime(TimeUnit.MILLISECONDS));
+    }
+}
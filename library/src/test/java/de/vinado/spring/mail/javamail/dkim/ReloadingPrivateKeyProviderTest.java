@@ -0,0 +1,85 @@
+package de.vinado.spring.mail.javamail.dkim;
+
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class ReloadingPrivateKeyProviderTest {
+
+    @TempDir
+    Path directory;
+
+    private Path keyFile;
+    private PrivateKey initialKey;
+    private ReloadingPrivateKeyProvider provider;
+
+    @BeforeEach
+    @SneakyThrows
+    void setUp() {
+        keyFile = directory.resolve("private.key.der");
+        initialKey = generateKey();
+        Files.write(keyFile, initialKey.getEncoded());
+        provider = new ReloadingPrivateKeyProvider(new FileSystemResource(keyFile), "RSA");
+    }
+
+    @Test
+    void creatingProvider_shouldReadKey() {
+        assertEquals(initialKey, provider.getPrivateKey());
+    }
+
+    @Test
+    void reloadingUnmodifiedResource_shouldKeepKey() {
+        assertFalse(provider.reload());
+        assertEquals(initialKey, provider.getPrivateKey());
+    }
+
+    @Test
+    @SneakyThrows
+    void reloadingModifiedResource_shouldReplaceKey() {
+        PrivateKey rotatedKey = generateKey();
+        Files.write(keyFile, rotatedKey.getEncoded());
+        touch();
+
+        assertTrue(provider.reload());
+        assertEquals(rotatedKey, provider.getPrivateKey());
+        assertFalse(provider.reload());
+    }
+
+    @Test
+    @SneakyThrows
+    void reloadingCorruptResource_shouldKeepPreviousKey() {
+        Files.write(keyFile, new byte[]{1, 2, 3});
+        touch();
+
+        assertFalse(provider.reload());
+        assertEquals(initialKey, provider.getPrivateKey());
+    }
+
+    @SneakyThrows
+    private void touch() {
+        FileTime modified = Files.getLastModifiedTime(keyFile);
+        Files.setLastModifiedTime(keyFile, FileTime.fromMillis(modified.toMillis() + 1000));
+    }
+
+    @SneakyThrows
+    private static PrivateKey generateKey() {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        return generator.generateKeyPair().getPrivate();
+    }
+}
@@ -0,0 +1,114 @@
+package de.vinado.spring.mail.javamail.reactive;
+
+import de.vinado.spring.mail.javamail.MockJavaMailSender;
+import de.vinado.spring.mail.javamail.concurrent.ConcurrentJavaMailSender;
+import de.vinado.spring.mail.javamail.concurrent.ConcurrentJavaMailSenderFactory;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.mail.Message;
+import javax.mail.internet.MimeMessage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Vincent Nadoll
+ */
+class ReactiveMailSinkTest {
+
+    private ExecutorService executor;
+    private MockJavaMailSender delegate;
+    private ReactiveMailSink sink;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        delegate = spy(MockJavaMailSender.defaultSender().build());
+
+        ConcurrentJavaMailSender sender = new ConcurrentJavaMailSenderFactory(executor, 2).decorate(delegate);
+        sender.setBatchSize(2);
+        sender.setCooldownMillis(0);
+        sink = new ReactiveMailSink(sender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void sendingPublisher_shouldEmitResultPerMessageInOrder() {
+        MimeMessage[] messages = {message("Ping"), message("Ping"), message("Ping"), message("Ping"), message("Ping")};
+
+        List<SendResult> results = sink.send(Flux.fromArray(messages)).collectList().block(Duration.ofSeconds(5));
+
+        assertNotNull(results);
+        assertEquals(messages.length, results.size());
+        for (int i = 0; i < messages.length; i++) {
+            assertSame(messages[i], results.get(i).getMessage());
+            assertTrue(results.get(i).isSent());
+        }
+        verify(delegate, times(3)).send(ArgumentMatchers.<MimeMessage[]>any());
+    }
+
+    @Test
+    void sendingFailingMessage_shouldOnlyReportFailingMessage() {
+        List<SendResult> results = sink.send(Flux.just(message("Ping"), message("fail"), message("Ping")))
+            .collectList()
+            .block(Duration.ofSeconds(5));
+
+        assertNotNull(results);
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSent());
+        assertFalse(results.get(1).isSent());
+        assertNotNull(results.get(1).getException());
+        assertTrue(results.get(2).isSent());
+    }
+
+    @Test
+    void sendingToIdleSender_shouldOnlyRequestBatchesInFlight() {
+        ConcurrentJavaMailSender idleSender = new ConcurrentJavaMailSenderFactory(mock(ExecutorService.class))
+            .decorate(delegate);
+        idleSender.setBatchSize(2);
+        ReactiveMailSink idleSink = new ReactiveMailSink(idleSender);
+        AtomicInteger published = new AtomicInteger();
+
+        Disposable subscription = idleSink.send(Flux.range(0, 10)
+                .map(i -> message("Ping"))
+                .doOnNext(message -> published.incrementAndGet()))
+            .subscribe();
+
+        assertEquals(2, published.get());
+        assertEquals(1, idleSender.getQueuedBatches());
+
+        subscription.dispose();
+    }
+
+    @SneakyThrows
+    private MimeMessage message(String subject) {
+        MimeMessage mimeMessage = delegate.createMimeMessage();
+        mimeMessage.setFrom("test@example.com");
+        mimeMessage.setRecipients(Message.RecipientType.TO, "john.doe@example.com");
+        mimeMessage.setSubject(subject);
+        mimeMessage.setText("Lorem Ipsum");
+        return mimeMessage;
+    }
+}
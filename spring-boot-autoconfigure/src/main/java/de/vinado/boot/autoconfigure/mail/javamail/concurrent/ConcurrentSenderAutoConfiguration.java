@@ -1,7 +1,9 @@
 package de.vinado.boot.autoconfigure.mail.javamail.concurrent;
 
 import de.vinado.spring.mail.javamail.concurrent.ConcurrentJavaMailSender;
-import de.vinado.spring.mail.javamail.concurrent.ConcurrentJavaMailSenderFactory;
+import de.vinado.spring.mail.javamail.concurrent.DeadLetterSink;
+import de.vinado.spring.mail.javamail.concurrent.UnsentMailSink;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -12,10 +14,9 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 
+import java.io.IOException;
 import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * {@link org.springframework.boot.autoconfigure.EnableAutoConfiguration Auto-configuration} for concurrent mail
@@ -32,9 +33,21 @@ public class ConcurrentSenderAutoConfiguration {
     @ConditionalOnProperty(prefix = "javamail.concurrent", name = "enabled", havingValue = "true")
     @ConditionalOnMissingClass("net.markenwerk.utils.mail.dkim.DkimSigner")
     ConcurrentJavaMailSender concurrentJavaMailSender(MailProperties mailProperties,
-                                                      ConcurrentSenderProperties concurrentSenderProperties) {
+                                                      ConcurrentSenderProperties concurrentSenderProperties,
+                                                      ObjectProvider<DeadLetterSink> deadLetterSink,
+                                                      ObjectProvider<UnsentMailSink> unsentMailSink)
+        throws IOException {
         JavaMailSenderImpl delegate = mailSender(mailProperties);
-        return mailSender(concurrentSenderProperties, delegate);
+        ConcurrentJavaMailSender concurrentJavaMailSender = mailSender(concurrentSenderProperties, delegate);
+        concurrentJavaMailSender.setDeadLetterSink(deadLetterSink.getIfAvailable());
+        concurrentJavaMailSender.setUnsentMailSink(unsentMailSink.getIfAvailable());
+        return concurrentJavaMailSender;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "javamail.concurrent", name = "enabled", havingValue = "true")
+    ConcurrentSenderLifecycle concurrentSenderLifecycle(ObjectProvider<JavaMailSender> mailSenders) {
+        return new ConcurrentSenderLifecycle(mailSenders);
     }
 
     JavaMailSenderImpl mailSender(MailProperties properties) {
@@ -44,12 +57,10 @@ public class ConcurrentSenderAutoConfiguration {
     }
 
     ConcurrentJavaMailSender mailSender(ConcurrentSenderProperties concurrentSenderProperties,
-                                        JavaMailSender delegate) {
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        ConcurrentJavaMailSenderFactory concurrentSenderFactory = new ConcurrentJavaMailSenderFactory(executor);
-
-        ConcurrentJavaMailSender concurrentJavaMailSender = concurrentSenderFactory.decorate(delegate);
-        applyProperties(concurrentSenderProperties, concurrentJavaMailSender);
+                                        JavaMailSender delegate) throws IOException {
+        ConcurrentSenderConfigurer configurer = new ConcurrentSenderConfigurer(concurrentSenderProperties);
+        ConcurrentJavaMailSender concurrentJavaMailSender = configurer.createFactory().decorate(delegate);
+        configurer.configure(concurrentJavaMailSender);
         return concurrentJavaMailSender;
     }
 
@@ -69,11 +80,6 @@ public class ConcurrentSenderAutoConfiguration {
         }
     }
 
-    private void applyProperties(ConcurrentSenderProperties properties, ConcurrentJavaMailSender sender) {
-        sender.setBatchSize(properties.getBatchSize());
-        sender.setCooldownMillis(properties.getCooldownMillis());
-    }
-
     private Properties asProperties(Map<String, String> source) {
         Properties properties = new Properties();
         properties.putAll(source);
@@ -0,0 +1,107 @@
+package de.vinado.boot.autoconfigure.mail.javamail.concurrent;
+
+import de.vinado.spring.mail.javamail.concurrent.AdaptiveRateController;
+import de.vinado.spring.mail.javamail.concurrent.ConcurrentJavaMailSender;
+import de.vinado.spring.mail.javamail.concurrent.ConcurrentJavaMailSenderFactory;
+import de.vinado.spring.mail.javamail.concurrent.FileMailSpool;
+import de.vinado.spring.mail.javamail.concurrent.MailPriority;
+import de.vinado.spring.mail.javamail.concurrent.RetryPolicy;
+import de.vinado.spring.mail.javamail.concurrent.TokenBucketRateLimiter;
+import org.springframework.boot.context.properties.source.InvalidConfigurationPropertyValueException;
+
+import java.io.IOException;
+
+/**
+ * Applies {@link ConcurrentSenderProperties} to a {@link ConcurrentJavaMailSender} and the factory creating it. Shared
+ * by every configuration creating a concurrent sender, whether its messages are signed or not.
+ *
+ * @author Vincent Nadoll
+ */
+public class ConcurrentSenderConfigurer {
+
+    private final ConcurrentSenderProperties properties;
+
+    public ConcurrentSenderConfigurer(ConcurrentSenderProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Creates a factory whose senders dispatch with the configured executor and number of workers.
+     *
+     * @return a new instance of {@link ConcurrentJavaMailSenderFactory}
+     */
+    public ConcurrentJavaMailSenderFactory createFactory() {
+        ConcurrentJavaMailSenderFactory factory = new ConcurrentJavaMailSenderFactory(properties.getExecutor(),
+            properties.getWorkers());
+        factory.setConnectionIdleTimeoutMillis(properties.getConnectionIdleTimeoutMillis());
+        return factory;
+    }
+
+    /**
+     * Configures the given sender according to the properties.
+     *
+     * @param sender the sender to be configured
+     * @throws IOException if the spool could not be opened
+     * @throws InvalidConfigurationPropertyValueException if a rate limit and adaptive control are configured both
+     */
+    public void configure(ConcurrentJavaMailSender sender) throws IOException {
+        sender.setBatchSize(properties.getBatchSize());
+        sender.setCooldownMillis(properties.getCooldownMillis());
+        sender.setLingerMillis(properties.getLingerMillis());
+
+        ConcurrentSenderProperties.RateLimitProperties rateLimit = properties.getRateLimit();
+        ConcurrentSenderProperties.AdaptiveProperties adaptive = properties.getAdaptive();
+        if (rateLimit.getMessagesPerSecond() > 0 && adaptive.isEnabled()) {
+            throw new InvalidConfigurationPropertyValueException("javamail.concurrent.adaptive.enabled", true,
+                "The adaptive controller replaces the token bucket of javamail.concurrent.rate-limit");
+        }
+        if (rateLimit.getMessagesPerSecond() > 0) {
+            sender.setRateLimiter(new TokenBucketRateLimiter(rateLimit.getMessagesPerSecond(),
+                rateLimit.getBurstCapacity()));
+        }
+
+        if (adaptive.isEnabled()) {
+            sender.setRateController(new AdaptiveRateController(adaptive.getMinBatchSize(), properties.getBatchSize(),
+                adaptive.getMinCooldownMillis(), properties.getCooldownMillis()));
+        }
+
+        ConcurrentSenderProperties.RetryProperties retry = properties.getRetry();
+        RetryPolicy retryPolicy = new RetryPolicy(retry.getMaxAttempts(), retry.getInitialBackoffMillis(),
+            retry.getMaxBackoffMillis());
+        retryPolicy.setMultiplier(retry.getMultiplier());
+        retryPolicy.setJitter(retry.getJitter());
+        sender.setRetryPolicy(retryPolicy);
+
+        ConcurrentSenderProperties.QueueProperties queue = properties.getQueue();
+        sender.setQueueCapacity(queue.getCapacity());
+        sender.setQueueCapacityBytes(queue.getCapacityBytes());
+        sender.setBackpressurePolicy(queue.getBackpressure());
+        sender.setBlockTimeoutMillis(queue.getBlockTimeoutMillis());
+
+        ConcurrentSenderProperties.DomainProperties domains = properties.getDomains();
+        sender.setPartitionedByDomain(domains.isPartitioned());
+        sender.setMaxConcurrencyPerDomain(domains.getMaxConcurrency());
+        ConcurrentSenderProperties.RateLimitProperties domainRateLimit = domains.getRateLimit();
+        if (domainRateLimit.getMessagesPerSecond() > 0) {
+            sender.setDomainRateLimiterFactory(() -> new TokenBucketRateLimiter(
+                domainRateLimit.getMessagesPerSecond(), domainRateLimit.getBurstCapacity()));
+        }
+
+        ConcurrentSenderProperties.PriorityProperties priority = properties.getPriority();
+        sender.setPriorityWeight(MailPriority.TRANSACTIONAL, priority.getTransactionalWeight());
+        sender.setPriorityWeight(MailPriority.BULK, priority.getBulkWeight());
+        ConcurrentSenderProperties.RateLimitProperties bulkRateLimit = priority.getBulkRateLimit();
+        if (bulkRateLimit.getMessagesPerSecond() > 0) {
+            sender.setRateLimiter(MailPriority.BULK, new TokenBucketRateLimiter(bulkRateLimit.getMessagesPerSecond(),
+                bulkRateLimit.getBurstCapacity()));
+        }
+
+        ConcurrentSenderProperties.SpoolProperties spool = properties.getSpool();
+        if (spool.getDirectory() != null) {
+            sender.setSpool(FileMailSpool.open(spool.getDirectory().toPath(), spool.getSegmentSizeBytes(),
+                spool.isMapped()));
+        }
+
+        sender.setDrainTimeoutMillis(properties.getShutdown().getDrainTimeoutMillis());
+    }
+}
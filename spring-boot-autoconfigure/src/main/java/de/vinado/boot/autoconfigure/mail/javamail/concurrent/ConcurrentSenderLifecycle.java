@@ -0,0 +1,57 @@
+package de.vinado.boot.autoconfigure.mail.javamail.concurrent;
+
+import de.vinado.spring.mail.javamail.JavaMailSenderDecorator;
+import de.vinado.spring.mail.javamail.concurrent.ConcurrentJavaMailSender;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.util.Objects;
+
+/**
+ * {@link SmartLifecycle} shutting down every {@link ConcurrentJavaMailSender}, which is either a bean itself or
+ * decorated by one, once the application context is closed. The senders are shut down before any singleton is
+ * destroyed, so that the queued batches are drained while the beans they depend on are still available.
+ *
+ * @author Vincent Nadoll
+ */
+class ConcurrentSenderLifecycle implements SmartLifecycle {
+
+    /**
+     * Lower than the phase of the embedded web server, so that the web server stops accepting requests, which may
+     * send messages, before the senders are shut down.
+     */
+    static final int PHASE = Integer.MAX_VALUE - 2048;
+
+    private final ObjectProvider<JavaMailSender> mailSenders;
+    private volatile boolean running;
+
+    ConcurrentSenderLifecycle(ObjectProvider<JavaMailSender> mailSenders) {
+        this.mailSenders = mailSenders;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        mailSenders.orderedStream()
+            .map(sender -> JavaMailSenderDecorator.find(sender, ConcurrentJavaMailSender.class))
+            .filter(Objects::nonNull)
+            .distinct()
+            .forEach(ConcurrentJavaMailSender::shutdown);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
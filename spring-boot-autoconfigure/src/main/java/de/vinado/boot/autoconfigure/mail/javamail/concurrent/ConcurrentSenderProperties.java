@@ -1,9 +1,15 @@
 package de.vinado.boot.autoconfigure.mail.javamail.concurrent;
 
+import de.vinado.spring.mail.javamail.concurrent.BackpressurePolicy;
+import de.vinado.spring.mail.javamail.concurrent.FileMailSpool;
+import de.vinado.spring.mail.javamail.concurrent.MailPriority;
+import de.vinado.spring.mail.javamail.concurrent.WorkerExecutor;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.io.File;
+
 /**
  * Configuration properties for {@link de.vinado.spring.mail.javamail.concurrent.ConcurrentJavaMailSender} support.
  *
@@ -17,4 +23,149 @@ public class ConcurrentSenderProperties {
     private boolean enabled;
     private int batchSize = 20;
     private int cooldownMillis = 20 * 1000;
+    private int workers = 1;
+    private WorkerExecutor executor = WorkerExecutor.PLATFORM;
+    private long connectionIdleTimeoutMillis = 0;
+    private long lingerMillis = 0;
+    private RateLimitProperties rateLimit = new RateLimitProperties();
+    private AdaptiveProperties adaptive = new AdaptiveProperties();
+    private RetryProperties retry = new RetryProperties();
+    private QueueProperties queue = new QueueProperties();
+    private SpoolProperties spool = new SpoolProperties();
+    private DomainProperties domains = new DomainProperties();
+    private PriorityProperties priority = new PriorityProperties();
+    private ShutdownProperties shutdown = new ShutdownProperties();
+
+
+    /**
+     * Configuration properties for the {@link de.vinado.spring.mail.javamail.concurrent.TokenBucketRateLimiter}. A
+     * non-positive rate keeps the fixed cooldown between batches.
+     *
+     * @author Vincent Nadoll
+     */
+    @Getter
+    @Setter
+    public static class RateLimitProperties {
+
+        private double messagesPerSecond = 0;
+        private int burstCapacity = 20;
+    }
+
+
+    /**
+     * Configuration properties for the {@link de.vinado.spring.mail.javamail.concurrent.AdaptiveRateController}. The
+     * configured batch size and cooldown become the upper bounds, the lower bounds are set here.
+     *
+     * @author Vincent Nadoll
+     */
+    @Getter
+    @Setter
+    public static class AdaptiveProperties {
+
+        private boolean enabled = false;
+        private int minBatchSize = 1;
+        private long minCooldownMillis = 1000;
+    }
+
+
+    /**
+     * Configuration properties for the {@link de.vinado.spring.mail.javamail.concurrent.RetryPolicy}. A single attempt
+     * disables retries.
+     *
+     * @author Vincent Nadoll
+     */
+    @Getter
+    @Setter
+    public static class RetryProperties {
+
+        private int maxAttempts = 1;
+        private long initialBackoffMillis = 1000;
+        private long maxBackoffMillis = 60 * 1000;
+        private double multiplier = 2;
+        private double jitter = 0.5;
+    }
+
+
+    /**
+     * Configuration properties for bounding the queue of the
+     * {@link de.vinado.spring.mail.javamail.concurrent.ConcurrentJavaMailSender}. Non-positive capacities leave the
+     * queue unbounded.
+     *
+     * @author Vincent Nadoll
+     */
+    @Getter
+    @Setter
+    public static class QueueProperties {
+
+        private int capacity = 0;
+        private long capacityBytes = 0;
+        private BackpressurePolicy backpressure = BackpressurePolicy.BLOCK;
+        private long blockTimeoutMillis = 0;
+    }
+
+
+    /**
+     * Configuration properties for the {@link de.vinado.spring.mail.javamail.concurrent.FileMailSpool}. Batches are
+     * only spooled if a directory is set.
+     *
+     * @author Vincent Nadoll
+     */
+    @Getter
+    @Setter
+    public static class SpoolProperties {
+
+        private File directory;
+        private long segmentSizeBytes = FileMailSpool.DEFAULT_SEGMENT_SIZE;
+        private boolean mapped = false;
+    }
+
+
+    /**
+     * Configuration properties for partitioning the queue by the domain of the recipients. Every domain is scheduled by
+     * a rate limiter of its own, which is a token bucket if a positive rate is set and the fixed cooldown otherwise. A
+     * non-positive concurrency leaves the number of batches per domain being dispatched at once unlimited.
+     *
+     * @author Vincent Nadoll
+     */
+    @Getter
+    @Setter
+    public static class DomainProperties {
+
+        private boolean partitioned = false;
+        private int maxConcurrency = 0;
+        private RateLimitProperties rateLimit = new RateLimitProperties();
+    }
+
+
+    /**
+     * Configuration properties for the priority classes of the
+     * {@link de.vinado.spring.mail.javamail.concurrent.ConcurrentJavaMailSender}. Bulk mail is scheduled on its own,
+     * by a token bucket if a positive rate is set and by the fixed cooldown otherwise.
+     *
+     * @author Vincent Nadoll
+     */
+    @Getter
+    @Setter
+    public static class PriorityProperties {
+
+        private int transactionalWeight = MailPriority.TRANSACTIONAL.getDefaultWeight();
+        private int bulkWeight = MailPriority.BULK.getDefaultWeight();
+        private RateLimitProperties bulkRateLimit = new RateLimitProperties();
+    }
+
+
+    /**
+     * Configuration properties for shutting down the
+     * {@link de.vinado.spring.mail.javamail.concurrent.ConcurrentJavaMailSender}. Batches due within the drain
+     * timeout are still dispatched, the ones left over afterwards are handed over to the
+     * {@link de.vinado.spring.mail.javamail.concurrent.UnsentMailSink}, if any.
+     *
+     * @author Vincent Nadoll
+     */
+    @Getter
+    @Setter
+    public static class ShutdownProperties {
+
+        private long drainTimeoutMillis = 30 * 1000;
+    }
 }
@@ -0,0 +1,17 @@
+package de.vinado.boot.autoconfigure.mail.javamail.dkim;
+
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * Condition which ensures <em>dkim.deferred</em> is disabled or missing.
+ *
+ * @author Vincent Nadoll
+ */
+class DeferredSigningDisabled extends DeferredSigningEnabled {
+
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        return !super.matches(context, metadata);
+    }
+}
@@ -0,0 +1,19 @@
+package de.vinado.boot.autoconfigure.mail.javamail.dkim;
+
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * Condition which ensures <em>dkim.deferred</em> is enabled, so that messages are signed by the workers of the
+ * concurrent sender instead of the calling thread.
+ *
+ * @author Vincent Nadoll
+ */
+class DeferredSigningEnabled implements Condition {
+
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        return context.getEnvironment().getProperty("javamail.dkim.deferred", Boolean.class, false);
+    }
+}
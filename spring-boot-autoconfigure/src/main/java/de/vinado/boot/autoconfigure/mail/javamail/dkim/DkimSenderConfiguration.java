@@ -1,25 +1,33 @@
 package de.vinado.boot.autoconfigure.mail.javamail.dkim;
 
+import de.vinado.boot.autoconfigure.mail.javamail.concurrent.ConcurrentSenderConfigurer;
 import de.vinado.boot.autoconfigure.mail.javamail.concurrent.ConcurrentSenderProperties;
+import de.vinado.spring.mail.javamail.JavaMailSenderDecoratorFactory;
 import de.vinado.spring.mail.javamail.concurrent.ConcurrentJavaMailSender;
 import de.vinado.spring.mail.javamail.concurrent.ConcurrentJavaMailSenderFactory;
+import de.vinado.spring.mail.javamail.concurrent.DeadLetterSink;
+import de.vinado.spring.mail.javamail.concurrent.UnsentMailSink;
 import de.vinado.spring.mail.javamail.dkim.DkimJavaMailSender;
 import de.vinado.spring.mail.javamail.dkim.DkimJavaMailSenderDecoratorFactory;
+import de.vinado.spring.mail.javamail.dkim.MimeMessageSigner;
+import de.vinado.spring.mail.javamail.dkim.SigningListener;
 import net.markenwerk.utils.mail.dkim.DkimSigner;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.mail.MailProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 
+import java.io.IOException;
 import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * {@link Configuration Configuration} for advanced {@link JavaMailSender} support. Depending which combination of
@@ -37,9 +45,15 @@ class DkimSenderConfiguration {
         name = "enabled",
         havingValue = "false",
         matchIfMissing = true)
-    @ConditionalOnBean(DkimSigner.class)
-    DkimJavaMailSender dkimJavaMailSender(MailProperties mailProperties, DkimSigner dkimSigner) {
-        DkimJavaMailSenderDecoratorFactory factory = new DkimJavaMailSenderDecoratorFactory(dkimSigner);
+    @Conditional(SignerAvailable.class)
+    DkimJavaMailSender dkimJavaMailSender(MailProperties mailProperties,
+                                          DkimSignerProperties dkimSignerProperties,
+                                          ObjectProvider<DkimSigner> dkimSigner,
+                                          ObjectProvider<MimeMessageSigner> mimeMessageSigner,
+                                          ObjectProvider<SigningListener> signingListener,
+                                          @Qualifier("dkimSigningPool") ObjectProvider<ForkJoinPool> signingPool) {
+        DkimJavaMailSenderDecoratorFactory factory =
+            dkimSenderFactory(dkimSignerProperties, dkimSigner, mimeMessageSigner, signingListener, signingPool);
         JavaMailSenderImpl delegate = mailSender(mailProperties);
         return factory.decorate(delegate);
     }
@@ -47,31 +61,104 @@ class DkimSenderConfiguration {
     @Bean("mailSender")
     @ConditionalOnProperty(prefix = "javamail.concurrent", name = "enabled", havingValue = "true")
     @ConditionalOnClass(ConcurrentJavaMailSender.class)
-    @ConditionalOnBean(DkimSigner.class)
+    @Conditional({SignerAvailable.class, DeferredSigningDisabled.class})
     DkimJavaMailSender concurrentDkimJavaMailSender(MailProperties mailProperties,
                                                     ConcurrentSenderProperties concurrentSenderProperties,
-                                                    DkimSigner dkimSigner) {
-        DkimJavaMailSenderDecoratorFactory dkimSenderFactory = new DkimJavaMailSenderDecoratorFactory(dkimSigner);
+                                                    DkimSignerProperties dkimSignerProperties,
+                                                    ObjectProvider<DkimSigner> dkimSigner,
+                                                    ObjectProvider<MimeMessageSigner> mimeMessageSigner,
+                                                    ObjectProvider<SigningListener> signingListener,
+                                                    @Qualifier("dkimSigningPool")
+                                                        ObjectProvider<ForkJoinPool> signingPool,
+                                                    ObjectProvider<DeadLetterSink> deadLetterSink,
+                                                    ObjectProvider<UnsentMailSink> unsentMailSink)
+        throws IOException {
+        DkimJavaMailSenderDecoratorFactory dkimSenderFactory =
+            dkimSenderFactory(dkimSignerProperties, dkimSigner, mimeMessageSigner, signingListener,
+                signingPool);
 
         JavaMailSenderImpl rootSender = mailSender(mailProperties);
-        ConcurrentJavaMailSender concurrentJavaMailSender = mailSender(concurrentSenderProperties, rootSender);
+        ConcurrentJavaMailSender concurrentJavaMailSender = mailSender(concurrentSenderProperties, rootSender, null,
+            deadLetterSink.getIfAvailable(), unsentMailSink.getIfAvailable());
 
         return dkimSenderFactory.decorate(concurrentJavaMailSender);
     }
 
+    @Bean("mailSender")
+    @ConditionalOnProperty(prefix = "javamail.concurrent", name = "enabled", havingValue = "true")
+    @ConditionalOnClass(ConcurrentJavaMailSender.class)
+    @Conditional({SignerAvailable.class, DeferredSigningEnabled.class})
+    ConcurrentJavaMailSender deferredDkimJavaMailSender(MailProperties mailProperties,
+                                                        ConcurrentSenderProperties concurrentSenderProperties,
+                                                        DkimSignerProperties dkimSignerProperties,
+                                                        ObjectProvider<DkimSigner> dkimSigner,
+                                                        ObjectProvider<MimeMessageSigner> mimeMessageSigner,
+                                                        ObjectProvider<SigningListener> signingListener,
+                                                        @Qualifier("dkimSigningPool")
+                                                            ObjectProvider<ForkJoinPool> signingPool,
+                                                        ObjectProvider<DeadLetterSink> deadLetterSink,
+                                                        ObjectProvider<UnsentMailSink> unsentMailSink)
+        throws IOException {
+        DkimJavaMailSenderDecoratorFactory dkimSenderFactory =
+            dkimSenderFactory(dkimSignerProperties, dkimSigner, mimeMessageSigner, signingListener,
+                signingPool);
+
+        JavaMailSenderImpl rootSender = mailSender(mailProperties);
+        return mailSender(concurrentSenderProperties, rootSender, dkimSenderFactory, deadLetterSink.getIfAvailable(),
+            unsentMailSink.getIfAvailable());
+    }
+
+    /**
+     * Creates the pool signing messages sent at once in parallel. It's shut down along with the context, so that its
+     * threads don't outlive a refresh.
+     */
+    @Bean(destroyMethod = "shutdown")
+    @Conditional(ParallelSigningEnabled.class)
+    ForkJoinPool dkimSigningPool(DkimSignerProperties properties) {
+        return new ForkJoinPool(properties.getParallel().getThreads());
+    }
+
+    /**
+     * Creates a factory signing with the configured {@link MimeMessageSigner}, or with the {@link DkimSigner} if
+     * there is none. The signing time is reported to the configured {@link SigningListener}, if any, and messages
+     * sent at once are signed in parallel by the given pool, if any.
+     */
+    private DkimJavaMailSenderDecoratorFactory dkimSenderFactory(DkimSignerProperties properties,
+                                                                 ObjectProvider<DkimSigner> dkimSigner,
+                                                                 ObjectProvider<MimeMessageSigner> mimeMessageSigner,
+                                                                 ObjectProvider<SigningListener> signingListener,
+                                                                 ObjectProvider<ForkJoinPool> signingPool) {
+        DkimJavaMailSenderDecoratorFactory factory = new DkimJavaMailSenderDecoratorFactory(
+            mimeMessageSigner.getIfAvailable(() -> MimeMessageSigner.of(dkimSigner.getObject())));
+        factory.setSigningListener(signingListener.getIfAvailable());
+        factory.setSigningPool(signingPool.getIfAvailable());
+        factory.setParallelSigningThreshold(properties.getParallel().getThreshold());
+        return factory;
+    }
+
     JavaMailSenderImpl mailSender(MailProperties properties) {
         JavaMailSenderImpl sender = new JavaMailSenderImpl();
         applyProperties(properties, sender);
         return sender;
     }
 
+    /**
+     * Creates a concurrent sender, whose workers dispatch through a sender decorated by the given factory, if any, and
+     * which hands failed and left over messages over to the given sinks, if any.
+     */
     private ConcurrentJavaMailSender mailSender(ConcurrentSenderProperties concurrentSenderProperties,
-                                                JavaMailSender delegate) {
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        ConcurrentJavaMailSenderFactory concurrentSenderFactory = new ConcurrentJavaMailSenderFactory(executor);
+                                                JavaMailSender delegate,
+                                                JavaMailSenderDecoratorFactory dispatchDecorator,
+                                                DeadLetterSink deadLetterSink,
+                                                UnsentMailSink unsentMailSink) throws IOException {
+        ConcurrentSenderConfigurer configurer = new ConcurrentSenderConfigurer(concurrentSenderProperties);
+        ConcurrentJavaMailSenderFactory concurrentSenderFactory = configurer.createFactory();
+        concurrentSenderFactory.setDispatchDecorator(dispatchDecorator);
 
         ConcurrentJavaMailSender concurrentJavaMailSender = concurrentSenderFactory.decorate(delegate);
-        applyProperties(concurrentSenderProperties, concurrentJavaMailSender);
+        configurer.configure(concurrentJavaMailSender);
+        concurrentJavaMailSender.setDeadLetterSink(deadLetterSink);
+        concurrentJavaMailSender.setUnsentMailSink(unsentMailSink);
         return concurrentJavaMailSender;
     }
 
@@ -91,11 +178,6 @@ class DkimSenderConfiguration {
         }
     }
 
-    private void applyProperties(ConcurrentSenderProperties properties, ConcurrentJavaMailSender sender) {
-        sender.setBatchSize(properties.getBatchSize());
-        sender.setCooldownMillis(properties.getCooldownMillis());
-    }
-
     private Properties asProperties(Map<String, String> source) {
         Properties properties = new Properties();
         properties.putAll(source);
@@ -1,19 +1,34 @@
 package de.vinado.boot.autoconfigure.mail.javamail.dkim;
 
+import de.vinado.spring.mail.javamail.dkim.BodyHashCache;
+import de.vinado.spring.mail.javamail.dkim.CompositeDkimMimeMessageSigner;
+import de.vinado.spring.mail.javamail.dkim.DkimAlgorithm;
+import de.vinado.spring.mail.javamail.dkim.DkimMimeMessageSigner;
+import de.vinado.spring.mail.javamail.dkim.DkimSignerRegistry;
+import de.vinado.spring.mail.javamail.dkim.MimeMessageSigner;
+import de.vinado.spring.mail.javamail.dkim.PrivateKeyProvider;
 import net.markenwerk.utils.mail.dkim.DkimSigner;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.core.io.Resource;
 
 import java.io.IOException;
+import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.interfaces.RSAPrivateKey;
 import java.security.spec.InvalidKeySpecException;
+import java.util.Map;
 
 /**
- * Configuration component for the {@link DkimSigner}.
+ * Configuration component for the {@link DkimMimeMessageSigner}, which signs messages by default, and the
+ * {@link DkimSigner}, which is the opt-in fallback.
  *
  * @author Vincent Nadoll
  */
@@ -24,6 +39,7 @@ class DkimSignerConfiguration {
 
     @Bean
     @ConditionalOnMissingBean
+    @Conditional(DkimSignerRequired.class)
     DkimSigner dkimSigner(DkimSignerProperties properties) throws IOException,
         InvalidKeySpecException, NoSuchAlgorithmException {
         Resource resource = properties.getPrivateKey();
@@ -34,6 +50,131 @@ class DkimSignerConfiguration {
         return signer;
     }
 
+    @Bean
+    PrivateKeyProviders dkimPrivateKeyProviders(DkimSignerProperties properties) {
+        return new PrivateKeyProviders(properties.getKeyReloadIntervalMillis());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @Conditional({MimeMessageSignerRequired.class, Ed25519NotConfigured.class})
+    DkimMimeMessageSigner dkimMimeMessageSigner(DkimSignerProperties properties, PrivateKeyProviders privateKeys)
+        throws IOException, GeneralSecurityException {
+        return rsaSigner(properties, privateKeys, bodyHashCache(properties));
+    }
+
+    /**
+     * Creates a signer adding an Ed25519 signature, and an RSA one if dual signing is enabled. Both share the body
+     * hash.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @Conditional(Ed25519Configured.class)
+    CompositeDkimMimeMessageSigner compositeDkimMimeMessageSigner(DkimSignerProperties properties,
+                                                                  PrivateKeyProviders privateKeys)
+        throws IOException, GeneralSecurityException {
+        DkimSignerProperties.Ed25519Properties ed25519 = properties.getEd25519();
+        BodyHashCache bodyHashCache = bodyHashCache(properties);
+
+        DkimMimeMessageSigner ed25519Signer = new DkimMimeMessageSigner(properties.getSigningDomain(),
+            ed25519.getSelector(),
+            privateKeys.get(ed25519.getPrivateKey(), DkimAlgorithm.ED25519_SHA256));
+        applyProperties(properties, ed25519Signer);
+        ed25519Signer.setAlgorithm(DkimAlgorithm.ED25519_SHA256);
+        ed25519Signer.setBodyHashCache(bodyHashCache);
+
+        return ed25519.isDual()
+            ? new CompositeDkimMimeMessageSigner(rsaSigner(properties, privateKeys, bodyHashCache), ed25519Signer)
+            : new CompositeDkimMimeMessageSigner(ed25519Signer);
+    }
+
+    private DkimMimeMessageSigner rsaSigner(DkimSignerProperties properties,
+                                            PrivateKeyProviders privateKeys,
+                                            BodyHashCache bodyHashCache) throws IOException, GeneralSecurityException {
+        DkimAlgorithm algorithm = DkimAlgorithm.of(properties.getSigner().getSigningAlgorithm());
+        DkimMimeMessageSigner signer = new DkimMimeMessageSigner(properties.getSigningDomain(),
+            properties.getSelector(),
+            privateKeys.get(properties.getPrivateKey(), algorithm));
+        applyProperties(properties, signer);
+        signer.setBodyHashCache(bodyHashCache);
+        return signer;
+    }
+
+    private static BodyHashCache bodyHashCache(DkimSignerProperties properties) {
+        DkimSignerProperties.BodyHashCacheProperties bodyHashCache = properties.getBodyHashCache();
+        return bodyHashCache.isEnabled() ? new BodyHashCache(bodyHashCache.getSize()) : null;
+    }
+
+    /**
+     * Creates a registry signing messages of each configured domain with its own selector and key. Any other message
+     * is signed by the default signer. Keys shared by several domains are read only once. Additional domains are
+     * signed with RSA keys only.
+     */
+    @Bean
+    @Primary
+    @ConditionalOnMissingBean
+    @Conditional(DomainsConfigured.class)
+    DkimSignerRegistry dkimSignerRegistry(DkimSignerProperties properties,
+                                          ObjectProvider<DkimSigner> dkimSigner,
+                                          ObjectProvider<DkimMimeMessageSigner> dkimMimeMessageSigner,
+                                          ObjectProvider<CompositeDkimMimeMessageSigner> compositeSigner,
+                                          PrivateKeyProviders privateKeys)
+        throws IOException, GeneralSecurityException {
+        DkimSignerRegistry registry = new DkimSignerRegistry();
+        CompositeDkimMimeMessageSigner composite = compositeSigner.getIfAvailable();
+        DkimMimeMessageSigner defaultSigner;
+        if (composite != null) {
+            defaultSigner = composite.getSigners().get(0);
+            registry.setDefaultSigner(composite);
+        } else {
+            defaultSigner = dkimMimeMessageSigner.getIfAvailable();
+            registry.setDefaultSigner(defaultSigner != null
+                ? defaultSigner
+                : MimeMessageSigner.of(dkimSigner.getObject()));
+        }
+
+        DkimAlgorithm algorithm = DkimAlgorithm.of(properties.getSigner().getSigningAlgorithm());
+        for (Map.Entry<String, DkimSignerProperties.DomainProperties> entry : properties.getDomains().entrySet()) {
+            String domain = entry.getKey();
+            DkimSignerProperties.DomainProperties domainProperties = entry.getValue();
+            Resource resource = domainProperties.getPrivateKey() != null
+                ? domainProperties.getPrivateKey()
+                : properties.getPrivateKey();
+            PrivateKeyProvider privateKey = privateKeys.get(resource, algorithm);
+
+            if (defaultSigner != null) {
+                registry.register(domain,
+                    domainSigner(properties, domain, domainProperties, privateKey, defaultSigner));
+            } else {
+                registry.register(domain,
+                    domainSigner(properties, domain, domainProperties, privateKey.getPrivateKey()));
+            }
+        }
+        return registry;
+    }
+
+    private DkimMimeMessageSigner domainSigner(DkimSignerProperties properties,
+                                               String domain,
+                                               DkimSignerProperties.DomainProperties domainProperties,
+                                               PrivateKeyProvider privateKey,
+                                               DkimMimeMessageSigner defaultSigner) {
+        DkimMimeMessageSigner signer = new DkimMimeMessageSigner(domain, domainProperties.getSelector(), privateKey);
+        applyProperties(properties, signer);
+        signer.setIdentity(domainProperties.getIdentity());
+        signer.setBodyHashCache(defaultSigner.getBodyHashCache());
+        return signer;
+    }
+
+    private DkimSigner domainSigner(DkimSignerProperties properties,
+                                    String domain,
+                                    DkimSignerProperties.DomainProperties domainProperties,
+                                    PrivateKey privateKey) {
+        DkimSigner signer = new DkimSigner(domain, domainProperties.getSelector(), (RSAPrivateKey) privateKey);
+        applyProperties(properties, signer);
+        signer.setIdentity(domainProperties.getIdentity());
+        return signer;
+    }
+
     private void applyProperties(DkimSignerProperties dkimProperties, DkimSigner signer) {
         DkimSignerProperties.SignerProperties properties = dkimProperties.getSigner();
         signer.setIdentity(properties.getIdentity());
@@ -44,4 +185,15 @@ class DkimSignerConfiguration {
         signer.setLengthParam(properties.isLengthParam());
         signer.setCopyHeaderFields(properties.isCopyHeaderFields());
     }
+
+    private void applyProperties(DkimSignerProperties dkimProperties, DkimMimeMessageSigner signer) {
+        DkimSignerProperties.SignerProperties properties = dkimProperties.getSigner();
+        signer.setIdentity(properties.getIdentity());
+        signer.setHeaderCanonicalization(properties.getHeaderCanonicalization());
+        signer.setBodyCanonicalization(properties.getBodyCanonicalization());
+        signer.setCheckDomainKey(properties.isCheckDomainKey());
+        signer.setAlgorithm(DkimAlgorithm.of(properties.getSigningAlgorithm()));
+        signer.setLengthParam(properties.isLengthParam());
+        signer.setCopyHeaderFields(properties.isCopyHeaderFields());
+    }
 }
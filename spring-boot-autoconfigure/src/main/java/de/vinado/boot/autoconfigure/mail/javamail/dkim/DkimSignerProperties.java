@@ -8,6 +8,9 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.core.io.Resource;
 import org.springframework.util.StringUtils;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Configuration properties for DKIM signing support.
  *
@@ -21,11 +24,19 @@ public class DkimSignerProperties {
     private String signingDomain;
     private String selector;
     private Resource privateKey;
+    private boolean deferred = false;
+    private long keyReloadIntervalMillis = 0;
     private SignerProperties signer = new SignerProperties();
+    private ParallelProperties parallel = new ParallelProperties();
+    private BodyHashCacheProperties bodyHashCache = new BodyHashCacheProperties();
+    private Map<String, DomainProperties> domains = new LinkedHashMap<>();
+    private Ed25519Properties ed25519 = new Ed25519Properties();
 
 
     /**
-     * Configuration properties for the {@link net.markenwerk.utils.mail.dkim.DkimSigner} itself.
+     * Configuration properties for the signer itself. Messages are signed by the streaming
+     * {@link de.vinado.spring.mail.javamail.dkim.DkimMimeMessageSigner} unless streaming is disabled, in which case the
+     * {@link net.markenwerk.utils.mail.dkim.DkimSigner} is used as long as no feature requires the former.
      *
      * @author Vincent Nadoll
      */
@@ -40,9 +51,79 @@ public class DkimSignerProperties {
         private SigningAlgorithm signingAlgorithm = SigningAlgorithm.SHA256_WITH_RSA;
         private boolean lengthParam = true;
         private boolean copyHeaderFields = false;
+        private boolean streaming = true;
+
+        public String getIdentity() {
+            return StringUtils.hasText(identity) ? identity : null;
+        }
+    }
+
+
+    /**
+     * Configuration properties for signing large amounts of messages in parallel. Messages are signed on the calling
+     * thread unless a positive number of threads is configured.
+     *
+     * @author Vincent Nadoll
+     */
+    @Getter
+    @Setter
+    public static class ParallelProperties {
+
+        private int threads = 0;
+        private int threshold = 64;
+    }
+
+
+    /**
+     * Configuration properties for the {@link de.vinado.spring.mail.javamail.dkim.BodyHashCache}. If enabled, the
+     * {@link de.vinado.spring.mail.javamail.dkim.DkimMimeMessageSigner} reuses the body hash of identical bodies, even
+     * if streaming is disabled.
+     *
+     * @author Vincent Nadoll
+     */
+    @Getter
+    @Setter
+    public static class BodyHashCacheProperties {
+
+        private boolean enabled = false;
+        private int size = 1000;
+    }
+
+
+    /**
+     * Configuration properties for an additional signing domain, keyed by the domain itself. Messages sent from such a
+     * domain are signed with its own selector and key instead of the default ones. If no private key is configured, the
+     * default one is used.
+     *
+     * @author Vincent Nadoll
+     */
+    @Getter
+    @Setter
+    public static class DomainProperties {
+
+        private String selector;
+        private Resource privateKey;
+        private String identity = null;
 
         public String getIdentity() {
             return StringUtils.hasText(identity) ? identity : null;
         }
     }
+
+
+    /**
+     * Configuration properties for signing with an Ed25519 key according to RFC 8463, which requires Java 15 or later.
+     * Messages are signed with both the RSA and the Ed25519 key unless dual signing is disabled, in which case they
+     * carry the Ed25519 signature only.
+     *
+     * @author Vincent Nadoll
+     */
+    @Getter
+    @Setter
+    public static class Ed25519Properties {
+
+        private String selector;
+        private Resource privateKey;
+        private boolean dual = true;
+    }
 }
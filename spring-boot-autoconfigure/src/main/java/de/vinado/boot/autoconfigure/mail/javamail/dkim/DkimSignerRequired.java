@@ -0,0 +1,37 @@
+package de.vinado.boot.autoconfigure.mail.javamail.dkim;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.NoneNestedConditions;
+import org.springframework.context.annotation.Conditional;
+
+/**
+ * Condition which ensures messages are signed by the {@link net.markenwerk.utils.mail.dkim.DkimSigner}. It only
+ * matches if streaming is disabled and no feature is enabled that requires the
+ * {@link de.vinado.spring.mail.javamail.dkim.DkimMimeMessageSigner}, so that the private key isn't read by a signer
+ * which is never used.
+ *
+ * @author Vincent Nadoll
+ */
+class DkimSignerRequired extends NoneNestedConditions {
+
+    DkimSignerRequired() {
+        super(ConfigurationPhase.REGISTER_BEAN);
+    }
+
+    @ConditionalOnProperty(prefix = "javamail.dkim.signer", name = "streaming", havingValue = "true",
+        matchIfMissing = true)
+    static class StreamingEnabled {
+    }
+
+    @ConditionalOnProperty(prefix = "javamail.dkim.body-hash-cache", name = "enabled", havingValue = "true")
+    static class BodyHashCacheEnabled {
+    }
+
+    @Conditional(KeyReloadEnabled.class)
+    static class KeyReloadingEnabled {
+    }
+
+    @Conditional(Ed25519Configured.class)
+    static class Ed25519KeyConfigured {
+    }
+}
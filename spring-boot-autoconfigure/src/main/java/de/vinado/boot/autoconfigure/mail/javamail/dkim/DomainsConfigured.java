@@ -0,0 +1,25 @@
+package de.vinado.boot.autoconfigure.mail.javamail.dkim;
+
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+import java.util.Map;
+
+/**
+ * Condition which ensures at least one additional signing domain is configured by <em>dkim.domains</em>.
+ *
+ * @author Vincent Nadoll
+ */
+class DomainsConfigured implements Condition {
+
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        return Binder.get(context.getEnvironment())
+            .bind("javamail.dkim.domains", Bindable.mapOf(String.class, DkimSignerProperties.DomainProperties.class))
+            .map(domains -> !domains.isEmpty())
+            .orElse(false);
+    }
+}
@@ -0,0 +1,23 @@
+package de.vinado.boot.autoconfigure.mail.javamail.dkim;
+
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.util.StringUtils;
+
+/**
+ * Condition which ensures <em>dkim.ed25519.selector</em> and <em>dkim.ed25519.private-key</em> have non-empty values,
+ * so that messages are signed with an Ed25519 key.
+ *
+ * @author Vincent Nadoll
+ */
+class Ed25519Configured implements Condition {
+
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        Environment environment = context.getEnvironment();
+        return StringUtils.hasText(environment.getProperty("javamail.dkim.ed25519.selector"))
+            && StringUtils.hasText(environment.getProperty("javamail.dkim.ed25519.private-key"));
+    }
+}
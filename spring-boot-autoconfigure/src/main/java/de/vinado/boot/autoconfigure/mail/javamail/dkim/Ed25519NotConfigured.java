@@ -0,0 +1,17 @@
+package de.vinado.boot.autoconfigure.mail.javamail.dkim;
+
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * Condition which ensures no Ed25519 key is configured by <em>dkim.ed25519</em>.
+ *
+ * @author Vincent Nadoll
+ */
+class Ed25519NotConfigured extends Ed25519Configured {
+
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        return !super.matches(context, metadata);
+    }
+}
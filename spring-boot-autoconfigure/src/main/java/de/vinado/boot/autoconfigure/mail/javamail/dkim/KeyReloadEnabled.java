@@ -0,0 +1,19 @@
+package de.vinado.boot.autoconfigure.mail.javamail.dkim;
+
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * Condition which ensures <em>dkim.key-reload-interval-millis</em> is positive, so that private keys are reloaded
+ * once their resources are modified.
+ *
+ * @author Vincent Nadoll
+ */
+class KeyReloadEnabled implements Condition {
+
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        return context.getEnvironment().getProperty("javamail.dkim.key-reload-interval-millis", Long.class, 0L) > 0;
+    }
+}
@@ -0,0 +1,32 @@
+package de.vinado.boot.autoconfigure.mail.javamail.dkim;
+
+import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Conditional;
+
+/**
+ * Condition which ensures messages are signed by the streaming
+ * {@link de.vinado.spring.mail.javamail.dkim.DkimMimeMessageSigner}. It only fails if the
+ * {@link net.markenwerk.utils.mail.dkim.DkimSigner} is opted into and no feature is enabled that it doesn't support.
+ *
+ * @author Vincent Nadoll
+ */
+class MimeMessageSignerRequired extends AnyNestedCondition {
+
+    MimeMessageSignerRequired() {
+        super(ConfigurationPhase.REGISTER_BEAN);
+    }
+
+    @ConditionalOnProperty(prefix = "javamail.dkim.signer", name = "streaming", havingValue = "true",
+        matchIfMissing = true)
+    static class StreamingEnabled {
+    }
+
+    @ConditionalOnProperty(prefix = "javamail.dkim.body-hash-cache", name = "enabled", havingValue = "true")
+    static class BodyHashCacheEnabled {
+    }
+
+    @Conditional(KeyReloadEnabled.class)
+    static class KeyReloadingEnabled {
+    }
+}
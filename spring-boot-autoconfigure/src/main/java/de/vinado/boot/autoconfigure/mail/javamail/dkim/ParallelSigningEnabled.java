@@ -0,0 +1,19 @@
+package de.vinado.boot.autoconfigure.mail.javamail.dkim;
+
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * Condition which ensures <em>dkim.parallel.threads</em> is positive, so that messages sent at once are signed in
+ * parallel.
+ *
+ * @author Vincent Nadoll
+ */
+class ParallelSigningEnabled implements Condition {
+
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        return context.getEnvironment().getProperty("javamail.dkim.parallel.threads", Integer.class, 0) > 0;
+    }
+}
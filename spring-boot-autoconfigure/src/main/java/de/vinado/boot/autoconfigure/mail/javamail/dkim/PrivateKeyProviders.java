@@ -0,0 +1,86 @@
+package de.vinado.boot.autoconfigure.mail.javamail.dkim;
+
+import de.vinado.spring.mail.javamail.dkim.DkimAlgorithm;
+import de.vinado.spring.mail.javamail.dkim.PrivateKeyProvider;
+import de.vinado.spring.mail.javamail.dkim.ReloadingPrivateKeyProvider;
+import org.springframework.core.io.Resource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides the configured private keys, each of which is read only once no matter how many signers use it. If a
+ * positive reload interval is configured, every resource is polled for modifications by a single daemon thread.
+ *
+ * @author Vincent Nadoll
+ */
+class PrivateKeyProviders implements Closeable {
+
+    private final long reloadIntervalMillis;
+    private final Map<List<Object>, PrivateKeyProvider> providers = new HashMap<>();
+    private final List<ReloadingPrivateKeyProvider> reloading = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService scheduler;
+
+    PrivateKeyProviders(long reloadIntervalMillis) {
+        this.reloadIntervalMillis = reloadIntervalMillis;
+    }
+
+    /**
+     * Provides the key read from the given resource.
+     *
+     * @param resource  the resource to read the key from
+     * @param algorithm the algorithm the key is used for
+     * @return the provider of the key, which is reloaded if enabled
+     * @throws IOException              if the resource could not be read
+     * @throws GeneralSecurityException if the resource does not contain a key of the given algorithm
+     */
+    synchronized PrivateKeyProvider get(Resource resource, DkimAlgorithm algorithm)
+        throws IOException, GeneralSecurityException {
+        List<Object> key = Arrays.asList(resource, algorithm.getKeyAlgorithm());
+        PrivateKeyProvider cached = providers.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        ReloadingPrivateKeyProvider provider = new ReloadingPrivateKeyProvider(resource, algorithm.getKeyAlgorithm());
+        if (reloadIntervalMillis <= 0) {
+            PrivateKeyProvider staticProvider = PrivateKeyProvider.of(provider.getPrivateKey());
+            providers.put(key, staticProvider);
+            return staticProvider;
+        }
+
+        providers.put(key, provider);
+        reloading.add(provider);
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "dkim-key-reload");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::reload, reloadIntervalMillis, reloadIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        }
+        return provider;
+    }
+
+    private void reload() {
+        reloading.forEach(ReloadingPrivateKeyProvider::reload);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
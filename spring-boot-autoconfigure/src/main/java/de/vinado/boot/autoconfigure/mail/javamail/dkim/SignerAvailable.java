@@ -0,0 +1,27 @@
+package de.vinado.boot.autoconfigure.mail.javamail.dkim;
+
+import de.vinado.spring.mail.javamail.dkim.MimeMessageSigner;
+import net.markenwerk.utils.mail.dkim.DkimSigner;
+import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+
+/**
+ * Condition which ensures there is a signer to sign messages with, either a {@link MimeMessageSigner} or the
+ * {@link DkimSigner}.
+ *
+ * @author Vincent Nadoll
+ */
+class SignerAvailable extends AnyNestedCondition {
+
+    SignerAvailable() {
+        super(ConfigurationPhase.REGISTER_BEAN);
+    }
+
+    @ConditionalOnBean(MimeMessageSigner.class)
+    static class MimeMessageSignerAvailable {
+    }
+
+    @ConditionalOnBean(DkimSigner.class)
+    static class DkimSignerAvailable {
+    }
+}
@@ -0,0 +1,70 @@
+package de.vinado.boot.autoconfigure.mail.javamail.metrics;
+
+import de.vinado.boot.autoconfigure.mail.javamail.concurrent.ConcurrentSenderAutoConfiguration;
+import de.vinado.boot.autoconfigure.mail.javamail.dkim.DkimAutoConfiguration;
+import de.vinado.spring.mail.javamail.JavaMailSenderDecorator;
+import de.vinado.spring.mail.javamail.concurrent.ConcurrentJavaMailSender;
+import de.vinado.spring.mail.javamail.concurrent.ConcurrentJavaMailSenderMetrics;
+import de.vinado.spring.mail.javamail.dkim.DkimSigningMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.mail.MailSenderAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.util.Objects;
+
+/**
+ * {@link org.springframework.boot.autoconfigure.EnableAutoConfiguration Auto-configuration} for Micrometer metrics of
+ * the concurrent mail dispatch and of DKIM signing. Both are provided as {@link MeterBinder meter binders}, which are
+ * bound to every {@link MeterRegistry} by Spring Boot Actuator.
+ *
+ * @author Vincent Nadoll
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnClass({JavaMailSender.class, MeterRegistry.class})
+@ConditionalOnBean(MeterRegistry.class)
+@AutoConfigureAfter(
+    value = {MailSenderAutoConfiguration.class, ConcurrentSenderAutoConfiguration.class, DkimAutoConfiguration.class},
+    name = {
+        "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration",
+        "org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration",
+    })
+public class MailMetricsAutoConfiguration {
+
+    /**
+     * Binds the metrics of every {@link ConcurrentJavaMailSender}, which is either a bean itself or decorated by one.
+     */
+    @Bean
+    @ConditionalOnBean(JavaMailSender.class)
+    MeterBinder concurrentJavaMailSenderMetrics(ObjectProvider<JavaMailSender> mailSenders) {
+        return registry -> mailSenders.orderedStream()
+            .map(sender -> JavaMailSenderDecorator.find(sender, ConcurrentJavaMailSender.class))
+            .filter(Objects::nonNull)
+            .distinct()
+            .forEach(sender -> new ConcurrentJavaMailSenderMetrics(sender).bindTo(registry));
+    }
+
+
+    /**
+     * {@link Configuration Configuration} recording the time it took to sign off every single message.
+     *
+     * @author Vincent Nadoll
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "net.markenwerk.utils.mail.dkim.DkimSigner")
+    static class DkimSigningMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        DkimSigningMetrics dkimSigningMetrics() {
+            return new DkimSigningMetrics();
+        }
+    }
+}
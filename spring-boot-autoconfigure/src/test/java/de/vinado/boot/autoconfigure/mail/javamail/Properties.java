@@ -8,6 +8,7 @@ public class Properties {
     public static final String DKIM_SIGNING_DOMAIN = "domain.tld";
     public static final String DKIM_PRIVATE_KEY_LOCATION = "test.key.der";
     public static final String DKIM_SELECTOR = "default";
+    public static final String DKIM_ED25519_PRIVATE_KEY_LOCATION = "test-ed25519.key.der";
 
     public static String[] propertyPairs(boolean concurrent) {
         return new String[]{
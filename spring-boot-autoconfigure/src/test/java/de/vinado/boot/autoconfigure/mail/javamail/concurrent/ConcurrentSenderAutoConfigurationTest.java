@@ -1,9 +1,16 @@
 package de.vinado.boot.autoconfigure.mail.javamail.concurrent;
 
 import de.vinado.boot.autoconfigure.mail.javamail.Properties;
+import de.vinado.spring.mail.javamail.concurrent.AdaptiveRateController;
 import de.vinado.spring.mail.javamail.concurrent.ConcurrentJavaMailSender;
+import de.vinado.spring.mail.javamail.concurrent.DeadLetterSink;
+import de.vinado.spring.mail.javamail.concurrent.MailPriority;
+import de.vinado.spring.mail.javamail.concurrent.RetryPolicy;
+import de.vinado.spring.mail.javamail.concurrent.TokenBucketRateLimiter;
+import de.vinado.spring.mail.javamail.concurrent.UnsentMailSink;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.context.properties.source.InvalidConfigurationPropertyValueException;
 import org.springframework.boot.test.context.FilteredClassLoader;
 import org.springframework.boot.test.context.runner.ApplicationContextRunner;
 
@@ -41,6 +48,140 @@ class ConcurrentSenderAutoConfigurationTest {
                 .hasSingleBean(ConcurrentJavaMailSender.class));
     }
 
+    @Test
+    void configuringWorkers_shouldCreateConcurrentSenderWithWorkers() {
+        contextRunner
+            .withClassLoader(new FilteredClassLoader("net.markenwerk.utils.mail.dkim"))
+            .withPropertyValues(Properties.propertyPairs(true))
+            .withPropertyValues("javamail.concurrent.workers=3")
+            .run(context -> {
+                ConcurrentJavaMailSender mailSender = context.getBean(ConcurrentJavaMailSender.class);
+                assertThat(mailSender.getWorkers()).isEqualTo(3);
+            });
+    }
+
+    @Test
+    void configuringLinger_shouldCreateCoalescingConcurrentSender() {
+        contextRunner
+            .withClassLoader(new FilteredClassLoader("net.markenwerk.utils.mail.dkim"))
+            .withPropertyValues(Properties.propertyPairs(true))
+            .withPropertyValues("javamail.concurrent.linger-millis=100")
+            .run(context -> {
+                ConcurrentJavaMailSender mailSender = context.getBean(ConcurrentJavaMailSender.class);
+                assertThat(mailSender.getLingerMillis()).isEqualTo(100);
+            });
+    }
+
+    @Test
+    void enablingAdaptive_shouldBoundControllerByBatchSizeAndCooldown() {
+        contextRunner
+            .withClassLoader(new FilteredClassLoader("net.markenwerk.utils.mail.dkim"))
+            .withPropertyValues(Properties.propertyPairs(true))
+            .withPropertyValues(
+                "javamail.concurrent.batch-size=50",
+                "javamail.concurrent.cooldown-millis=10000",
+                "javamail.concurrent.adaptive.enabled=true",
+                "javamail.concurrent.adaptive.min-batch-size=5",
+                "javamail.concurrent.adaptive.min-cooldown-millis=500")
+            .run(context -> {
+                AdaptiveRateController controller = context.getBean(ConcurrentJavaMailSender.class)
+                    .getRateController();
+                assertThat(controller.getMinBatchSize()).isEqualTo(5);
+                assertThat(controller.getMaxBatchSize()).isEqualTo(50);
+                assertThat(controller.getMinCooldownMillis()).isEqualTo(500);
+                assertThat(controller.getMaxCooldownMillis()).isEqualTo(10000);
+            });
+    }
+
+    @Test
+    void enablingAdaptiveWithRateLimit_shouldFailToStart() {
+        contextRunner
+            .withClassLoader(new FilteredClassLoader("net.markenwerk.utils.mail.dkim"))
+            .withPropertyValues(Properties.propertyPairs(true))
+            .withPropertyValues(
+                "javamail.concurrent.rate-limit.messages-per-second=10",
+                "javamail.concurrent.adaptive.enabled=true")
+            .run(context -> assertThat(context).getFailure()
+                .hasRootCauseInstanceOf(InvalidConfigurationPropertyValueException.class));
+    }
+
+    @Test
+    void configuringRetry_shouldCreateRetryingConcurrentSender() {
+        DeadLetterSink deadLetterSink = (messages, exception) -> {
+        };
+        contextRunner
+            .withClassLoader(new FilteredClassLoader("net.markenwerk.utils.mail.dkim"))
+            .withPropertyValues(Properties.propertyPairs(true))
+            .withPropertyValues(
+                "javamail.concurrent.retry.max-attempts=3",
+                "javamail.concurrent.retry.initial-backoff-millis=500",
+                "javamail.concurrent.retry.jitter=0")
+            .withBean(DeadLetterSink.class, () -> deadLetterSink)
+            .run(context -> {
+                ConcurrentJavaMailSender mailSender = context.getBean(ConcurrentJavaMailSender.class);
+                RetryPolicy retryPolicy = mailSender.getRetryPolicy();
+                assertThat(retryPolicy.getMaxAttempts()).isEqualTo(3);
+                assertThat(retryPolicy.getInitialBackoffMillis()).isEqualTo(500);
+                assertThat(retryPolicy.getMaxBackoffMillis()).isEqualTo(60000);
+                assertThat(retryPolicy.getJitter()).isEqualTo(0);
+                assertThat(mailSender.getDeadLetterSink()).isSameAs(deadLetterSink);
+            });
+    }
+
+    @Test
+    void configuringDomains_shouldCreatePartitionedConcurrentSender() {
+        contextRunner
+            .withClassLoader(new FilteredClassLoader("net.markenwerk.utils.mail.dkim"))
+            .withPropertyValues(Properties.propertyPairs(true))
+            .withPropertyValues(
+                "javamail.concurrent.domains.partitioned=true",
+                "javamail.concurrent.domains.max-concurrency=2",
+                "javamail.concurrent.domains.rate-limit.messages-per-second=5")
+            .run(context -> {
+                ConcurrentJavaMailSender mailSender = context.getBean(ConcurrentJavaMailSender.class);
+                assertThat(mailSender.isPartitionedByDomain()).isTrue();
+                assertThat(mailSender.getMaxConcurrencyPerDomain()).isEqualTo(2);
+                assertThat(mailSender.getDomainRateLimiterFactory()).isNotNull();
+            });
+    }
+
+    @Test
+    void configuringPriorities_shouldCreateWeightedConcurrentSender() {
+        contextRunner
+            .withClassLoader(new FilteredClassLoader("net.markenwerk.utils.mail.dkim"))
+            .withPropertyValues(Properties.propertyPairs(true))
+            .withPropertyValues(
+                "javamail.concurrent.priority.transactional-weight=9",
+                "javamail.concurrent.priority.bulk-weight=2",
+                "javamail.concurrent.priority.bulk-rate-limit.messages-per-second=5")
+            .run(context -> {
+                ConcurrentJavaMailSender mailSender = context.getBean(ConcurrentJavaMailSender.class);
+                assertThat(mailSender.getPriorityWeight(MailPriority.TRANSACTIONAL)).isEqualTo(9);
+                assertThat(mailSender.getPriorityWeight(MailPriority.BULK)).isEqualTo(2);
+                assertThat(mailSender.getRateLimiter(MailPriority.BULK)).isInstanceOf(TokenBucketRateLimiter.class);
+            });
+    }
+
+    @Test
+    void stoppingLifecycle_shouldShutDownConcurrentSender() {
+        UnsentMailSink unsentMailSink = messages -> {
+        };
+        contextRunner
+            .withClassLoader(new FilteredClassLoader("net.markenwerk.utils.mail.dkim"))
+            .withPropertyValues(Properties.propertyPairs(true))
+            .withPropertyValues("javamail.concurrent.shutdown.drain-timeout-millis=100")
+            .withBean(UnsentMailSink.class, () -> unsentMailSink)
+            .run(context -> {
+                ConcurrentJavaMailSender mailSender = context.getBean(ConcurrentJavaMailSender.class);
+                assertThat(mailSender.getDrainTimeoutMillis()).isEqualTo(100);
+                assertThat(mailSender.getUnsentMailSink()).isSameAs(unsentMailSink);
+
+                context.getBean(ConcurrentSenderLifecycle.class).stop();
+
+                assertThat(mailSender.isShutdown()).isTrue();
+            });
+    }
+
     @Test
     void configuringWithConcurrentSenderPropertiesEnabledButDkimSigner_shouldNotCreateConcurrentSender() {
         contextRunner
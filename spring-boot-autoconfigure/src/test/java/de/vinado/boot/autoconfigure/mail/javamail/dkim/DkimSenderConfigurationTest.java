@@ -2,6 +2,7 @@ package de.vinado.boot.autoconfigure.mail.javamail.dkim;
 
 import de.vinado.spring.mail.javamail.concurrent.ConcurrentJavaMailSender;
 import de.vinado.spring.mail.javamail.dkim.DkimJavaMailSender;
+import de.vinado.spring.mail.javamail.dkim.MimeMessageSigner;
 import lombok.SneakyThrows;
 import net.markenwerk.utils.mail.dkim.DkimSigner;
 import org.junit.jupiter.api.Test;
@@ -11,12 +12,16 @@ import org.springframework.core.io.ClassPathResource;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
 import static de.vinado.boot.autoconfigure.mail.javamail.Properties.DKIM_PRIVATE_KEY_LOCATION;
 import static de.vinado.boot.autoconfigure.mail.javamail.Properties.DKIM_SELECTOR;
 import static de.vinado.boot.autoconfigure.mail.javamail.Properties.DKIM_SIGNING_DOMAIN;
 import static de.vinado.boot.autoconfigure.mail.javamail.Properties.dkimPropertyPairs;
 import static de.vinado.boot.autoconfigure.mail.javamail.Properties.propertyPairs;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -61,6 +66,17 @@ class DkimSenderConfigurationTest {
             });
     }
 
+    @Test
+    void configuringMimeMessageSigner_shouldCreateDkimSender() {
+        contextRunner
+            .withBean(MimeMessageSigner.class, () -> MimeMessageSigner.of(createDkimSigner()))
+            .withPropertyValues(dkimPropertyPairs())
+            .run(context -> {
+                assertThat(context).hasSingleBean(DkimJavaMailSender.class);
+                assertThat(context).doesNotHaveBean(DkimSigner.class);
+            });
+    }
+
     @Test
     void configuringDkimAndConcurrent_shouldCreateDecoratedDkimSender() {
         contextRunner
@@ -85,6 +101,46 @@ class DkimSenderConfigurationTest {
             });
     }
 
+    @Test
+    void configuringDeferredDkimAndConcurrent_shouldCreateConcurrentSender() {
+        contextRunner
+            .withBean(DkimSigner.class, this::createDkimSigner)
+            .withPropertyValues(propertyPairs(true))
+            .withPropertyValues("javamail.dkim.deferred=true")
+            .run(context -> {
+                assertThat(context).doesNotHaveBean(DkimJavaMailSender.class);
+                assertThat(context).hasSingleBean(ConcurrentJavaMailSender.class);
+                ConcurrentJavaMailSender mailSender = (ConcurrentJavaMailSender) context.getBean("mailSender");
+                assertTrue(mailSender.getDelegate() instanceof JavaMailSenderImpl);
+            });
+    }
+
+    @Test
+    void configuringWithoutParallelThreads_shouldNotCreateSigningPool() {
+        contextRunner
+            .withBean(DkimSigner.class, this::createDkimSigner)
+            .withPropertyValues(dkimPropertyPairs())
+            .run(context -> assertThat(context)
+                .doesNotHaveBean(ForkJoinPool.class));
+    }
+
+    @Test
+    void closingContextWithParallelThreads_shouldShutDownSigningPool() {
+        AtomicReference<ForkJoinPool> signingPool = new AtomicReference<>();
+
+        contextRunner
+            .withBean(DkimSigner.class, this::createDkimSigner)
+            .withPropertyValues(dkimPropertyPairs())
+            .withPropertyValues("javamail.dkim.parallel.threads=2")
+            .run(context -> {
+                assertThat(context).hasSingleBean(ForkJoinPool.class);
+                signingPool.set(context.getBean("dkimSigningPool", ForkJoinPool.class));
+                assertFalse(signingPool.get().isShutdown());
+            });
+
+        assertTrue(signingPool.get().isShutdown());
+    }
+
     @SneakyThrows
     private DkimSigner createDkimSigner() {
         ClassPathResource privateKey = new ClassPathResource(DKIM_PRIVATE_KEY_LOCATION);
@@ -1,12 +1,19 @@
 package de.vinado.boot.autoconfigure.mail.javamail.dkim;
 
+import de.vinado.spring.mail.javamail.dkim.CompositeDkimMimeMessageSigner;
+import de.vinado.spring.mail.javamail.dkim.DkimAlgorithm;
+import de.vinado.spring.mail.javamail.dkim.DkimMimeMessageSigner;
+import de.vinado.spring.mail.javamail.dkim.DkimSignerRegistry;
 import net.markenwerk.utils.mail.dkim.DkimSigner;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.runner.ApplicationContextRunner;
 
+import static de.vinado.boot.autoconfigure.mail.javamail.Properties.DKIM_ED25519_PRIVATE_KEY_LOCATION;
 import static de.vinado.boot.autoconfigure.mail.javamail.Properties.DKIM_PRIVATE_KEY_LOCATION;
 import static de.vinado.boot.autoconfigure.mail.javamail.Properties.DKIM_SIGNING_DOMAIN;
+import static de.vinado.boot.autoconfigure.mail.javamail.Properties.dkimPropertyPairs;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 /**
  * @author Vincent Nadoll
@@ -33,11 +40,150 @@ class DkimSignerConfigurationTest {
         assertSuccessfulDkimBeanCreation("classpath:" + DKIM_PRIVATE_KEY_LOCATION);
     }
 
+    @Test
+    void enablingBodyHashCache_shouldCreateMimeMessageSignerBean() {
+        this.contextRunner
+            .withPropertyValues(dkimPropertyPairs())
+            .withPropertyValues("javamail.dkim.body-hash-cache.enabled=true")
+            .run(context -> assertThat(context).hasSingleBean(DkimMimeMessageSigner.class));
+    }
+
+    @Test
+    void configuringDefaults_shouldCreateMimeMessageSignerBean() {
+        this.contextRunner
+            .withPropertyValues(dkimPropertyPairs())
+            .run(context -> assertThat(context).hasSingleBean(DkimMimeMessageSigner.class));
+    }
+
+    @Test
+    void disablingStreaming_shouldNotCreateMimeMessageSignerBean() {
+        this.contextRunner
+            .withPropertyValues(dkimPropertyPairs())
+            .withPropertyValues("javamail.dkim.signer.streaming=false")
+            .run(context -> assertThat(context).doesNotHaveBean(DkimMimeMessageSigner.class));
+    }
+
+    @Test
+    void configuringDefaults_shouldNotCreateDkimSignerBean() {
+        this.contextRunner
+            .withPropertyValues(dkimPropertyPairs())
+            .run(context -> assertThat(context).doesNotHaveBean(DkimSigner.class));
+    }
+
+    @Test
+    void disablingStreamingWithKeyReload_shouldNotCreateDkimSignerBean() {
+        this.contextRunner
+            .withPropertyValues(dkimPropertyPairs())
+            .withPropertyValues("javamail.dkim.signer.streaming=false", "javamail.dkim.key-reload-interval-millis=60000")
+            .run(context -> assertThat(context).doesNotHaveBean(DkimSigner.class));
+    }
+
+    @Test
+    void disablingStreamingWithDomains_shouldFallBackToDkimSigner() {
+        this.contextRunner
+            .withPropertyValues(dkimPropertyPairs())
+            .withPropertyValues("javamail.dkim.signer.streaming=false",
+                "javamail.dkim.domains[tenant.tld].selector=tenant")
+            .run(context -> {
+                assertThat(context).hasSingleBean(DkimSigner.class);
+                assertThat(context.getBean(DkimSignerRegistry.class).getDefaultSigner()).isNotNull();
+            });
+    }
+
+    @Test
+    void disablingStreamingWithBodyHashCache_shouldCreateMimeMessageSignerBean() {
+        this.contextRunner
+            .withPropertyValues(dkimPropertyPairs())
+            .withPropertyValues("javamail.dkim.signer.streaming=false", "javamail.dkim.body-hash-cache.enabled=true")
+            .run(context -> assertThat(context).hasSingleBean(DkimMimeMessageSigner.class));
+    }
+
+    @Test
+    void enablingKeyReload_shouldCreateMimeMessageSignerBean() {
+        this.contextRunner
+            .withPropertyValues(dkimPropertyPairs())
+            .withPropertyValues("javamail.dkim.key-reload-interval-millis=60000")
+            .run(context -> assertThat(context).hasSingleBean(DkimMimeMessageSigner.class));
+    }
+
+    @Test
+    void configuringDomains_shouldCreateSignerRegistryBean() {
+        this.contextRunner
+            .withPropertyValues(dkimPropertyPairs())
+            .withPropertyValues("javamail.dkim.domains[tenant.tld].selector=tenant",
+                "javamail.dkim.domains[other.tld].selector=other",
+                "javamail.dkim.domains[other.tld].private-key=classpath:" + DKIM_PRIVATE_KEY_LOCATION)
+            .run(context -> {
+                assertThat(context).hasSingleBean(DkimSignerRegistry.class);
+                DkimSignerRegistry registry = context.getBean(DkimSignerRegistry.class);
+                assertThat(registry.getSigner("tenant.tld")).isNotNull();
+                assertThat(registry.getSigner("other.tld")).isNotNull();
+                assertThat(registry.getDefaultSigner()).isNotNull();
+            });
+    }
+
+    @Test
+    void configuringDomainsAndBodyHashCache_shouldShareBodyHashCache() {
+        this.contextRunner
+            .withPropertyValues(dkimPropertyPairs())
+            .withPropertyValues("javamail.dkim.body-hash-cache.enabled=true",
+                "javamail.dkim.domains[tenant.tld].selector=tenant")
+            .run(context -> {
+                DkimSignerRegistry registry = context.getBean(DkimSignerRegistry.class);
+                DkimMimeMessageSigner defaultSigner = (DkimMimeMessageSigner) registry.getDefaultSigner();
+                DkimMimeMessageSigner tenantSigner = (DkimMimeMessageSigner) registry.getSigner("tenant.tld");
+                assertThat(tenantSigner.getSigningDomain()).isEqualTo("tenant.tld");
+                assertThat(tenantSigner.getBodyHashCache()).isSameAs(defaultSigner.getBodyHashCache());
+            });
+    }
+
+    @Test
+    void missingDomains_shouldNotCreateSignerRegistryBean() {
+        this.contextRunner
+            .withPropertyValues(dkimPropertyPairs())
+            .run(context -> assertThat(context).doesNotHaveBean(DkimSignerRegistry.class));
+    }
+
+    @Test
+    void configuringEd25519_shouldCreateDualSignerBean() {
+        assumeTrue(DkimAlgorithm.ED25519_SHA256.isSupported(), "Ed25519 requires Java 15 or later");
+        this.contextRunner
+            .withPropertyValues(dkimPropertyPairs())
+            .withPropertyValues("javamail.dkim.body-hash-cache.enabled=true",
+                "javamail.dkim.ed25519.selector=ed25519",
+                "javamail.dkim.ed25519.private-key=classpath:" + DKIM_ED25519_PRIVATE_KEY_LOCATION)
+            .run(context -> {
+                assertThat(context).hasSingleBean(CompositeDkimMimeMessageSigner.class);
+                assertThat(context).doesNotHaveBean(DkimMimeMessageSigner.class);
+                CompositeDkimMimeMessageSigner signer = context.getBean(CompositeDkimMimeMessageSigner.class);
+                assertThat(signer.getSigners())
+                    .extracting(DkimMimeMessageSigner::getAlgorithm)
+                    .containsExactly(DkimAlgorithm.RSA_SHA256, DkimAlgorithm.ED25519_SHA256);
+                assertThat(signer.getSigners().get(0).getBodyHashCache())
+                    .isNotNull()
+                    .isSameAs(signer.getSigners().get(1).getBodyHashCache());
+            });
+    }
+
+    @Test
+    void disablingDualSigning_shouldSignWithEd25519Only() {
+        assumeTrue(DkimAlgorithm.ED25519_SHA256.isSupported(), "Ed25519 requires Java 15 or later");
+        this.contextRunner
+            .withPropertyValues(dkimPropertyPairs())
+            .withPropertyValues("javamail.dkim.ed25519.selector=ed25519",
+                "javamail.dkim.ed25519.private-key=classpath:" + DKIM_ED25519_PRIVATE_KEY_LOCATION,
+                "javamail.dkim.ed25519.dual=false")
+            .run(context -> assertThat(context.getBean(CompositeDkimMimeMessageSigner.class).getSigners())
+                .extracting(DkimMimeMessageSigner::getAlgorithm)
+                .containsExactly(DkimAlgorithm.ED25519_SHA256));
+    }
+
     private void assertSuccessfulDkimBeanCreation(String privateKeyLocation) {
         String[] properties = {
             "javamail.dkim.signing-domain=domain.tld",
             "javamail.dkim.private-key=" + privateKeyLocation,
-            "javamail.dkim.selector=default"
+            "javamail.dkim.selector=default",
+            "javamail.dkim.signer.streaming=false"
         };
 
         this.contextRunner
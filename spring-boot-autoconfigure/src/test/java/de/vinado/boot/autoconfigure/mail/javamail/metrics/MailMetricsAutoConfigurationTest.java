@@ -0,0 +1,84 @@
+package de.vinado.boot.autoconfigure.mail.javamail.metrics;
+
+import de.vinado.boot.autoconfigure.mail.javamail.Properties;
+import de.vinado.boot.autoconfigure.mail.javamail.concurrent.ConcurrentSenderAutoConfiguration;
+import de.vinado.boot.autoconfigure.mail.javamail.dkim.DkimAutoConfiguration;
+import de.vinado.spring.mail.javamail.dkim.DkimJavaMailSender;
+import de.vinado.spring.mail.javamail.dkim.DkimSigningMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.FilteredClassLoader;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Vincent Nadoll
+ */
+class MailMetricsAutoConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+        .withConfiguration(AutoConfigurations.of(ConcurrentSenderAutoConfiguration.class,
+            DkimAutoConfiguration.class, MailMetricsAutoConfiguration.class));
+
+    @Test
+    void configuringWithoutMeterRegistry_shouldNotCreateConfiguration() {
+        contextRunner
+            .withPropertyValues(Properties.propertyPairs(true))
+            .run(context -> assertThat(context)
+                .doesNotHaveBean(MailMetricsAutoConfiguration.class));
+    }
+
+    @Test
+    void configuringWithoutMicrometer_shouldNotCreateConfiguration() {
+        contextRunner
+            .withClassLoader(new FilteredClassLoader("io.micrometer"))
+            .withPropertyValues(Properties.propertyPairs(true))
+            .run(context -> assertThat(context)
+                .doesNotHaveBean(MailMetricsAutoConfiguration.class));
+    }
+
+    @Test
+    void configuringConcurrentSenderWithMeterRegistry_shouldBindQueueMetrics() {
+        contextRunner
+            .withClassLoader(new FilteredClassLoader("net.markenwerk.utils.mail.dkim"))
+            .withBean(SimpleMeterRegistry.class)
+            .withPropertyValues(Properties.propertyPairs(true))
+            .run(context -> {
+                MeterRegistry registry = context.getBean(MeterRegistry.class);
+                context.getBean("concurrentJavaMailSenderMetrics", MeterBinder.class).bindTo(registry);
+
+                assertThat(registry.find("mail.queue.batches").gauge()).isNotNull();
+                assertThat(context).doesNotHaveBean(DkimSigningMetrics.class);
+            });
+    }
+
+    @Test
+    void configuringDkimSenderWithMeterRegistry_shouldReportSigningTime() {
+        contextRunner
+            .withBean(SimpleMeterRegistry.class)
+            .withPropertyValues(Properties.dkimPropertyPairs())
+            .run(context -> {
+                DkimSigningMetrics metrics = context.getBean(DkimSigningMetrics.class);
+                DkimJavaMailSender mailSender = context.getBean(DkimJavaMailSender.class);
+
+                assertThat(mailSender.getSigningListener()).isSameAs(metrics);
+            });
+    }
+
+    @Test
+    void configuringConcurrentDkimSenderWithMeterRegistry_shouldBindQueueMetrics() {
+        contextRunner
+            .withBean(SimpleMeterRegistry.class)
+            .withPropertyValues(Properties.propertyPairs(true))
+            .run(context -> {
+                MeterRegistry registry = context.getBean(MeterRegistry.class);
+                context.getBean("concurrentJavaMailSenderMetrics", MeterBinder.class).bindTo(registry);
+
+                assertThat(registry.find("mail.queue.messages").gauge()).isNotNull();
+            });
+    }
+}